@@ -10,7 +10,13 @@ import java.lang.annotation.Target;
 @Target(ElementType.TYPE)
 public @interface BenchmarkSuite {
     public Frequency whenToInstantiate() default Frequency.NEVER;
+    public boolean poolInstances() default false;
+    public String resetMethod() default "";
     public OutputType outputTo() default OutputType.JSON;
     public String saveLocation() default "src/main/output";
     public String fileName() default "results.json";
+    public int forks() default 0;
+    public String[] jvmArgs() default {};
+    public int threads() default 1;
+    public CpuPolicy cpuPolicy() default CpuPolicy.SHARED;
 }
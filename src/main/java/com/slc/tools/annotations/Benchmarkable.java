@@ -8,9 +8,23 @@ import java.lang.annotation.Target;
 @Retention(RetentionPolicy.RUNTIME)
 @Target(ElementType.METHOD)
 public @interface Benchmarkable {
+    /** Pass as clockFrequency to let the loop size its batches to the cost of reading the clock */
+    public static final int ADAPTIVE_CLOCK = 0;
+
     public int nanoTime() default 1_000_000_000;
     public int clockFrequency() default 15;
+    public double maxClockOverhead() default 0.01;
     public String idName() default "size";
     public boolean idIsMethod() default true;
     public String testName() default "";
+    public SamplingMode samplingMode() default SamplingMode.NONE;
+    public int warmupIterations() default 0;
+    public int warmupNanoTime() default 100_000_000;
+    public int measurementIterations() default 1;
+    public double targetRelativeError() default 0;
+    public int maxMeasurementIterations() default 50;
+    public long measurementBudgetNanoTime() default 0;
+    public int threads() default 1;
+    public boolean freshInput() default false;
+    public String inputCopier() default "";
 }
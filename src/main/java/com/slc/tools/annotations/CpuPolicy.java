@@ -0,0 +1,6 @@
+package com.slc.tools.annotations;
+
+public enum CpuPolicy {
+    SHARED,
+    EXCLUSIVE
+}
@@ -0,0 +1,20 @@
+package com.slc.tools.annotations;
+
+/**
+ * When a <code>@Setup</code> or <code>@TearDown</code> method runs. Every level runs with the clock stopped.
+ */
+public enum Level {
+    /** Once around the whole suite (or, when forked, once per child JVM) */
+    TRIAL,
+    /** Once around each Benchmarkable method */
+    METHOD,
+    /** Once around each input, i.e. each size value; warmup and measurement both happen in between */
+    SIZE,
+    /**
+     * Once around every single call. If the benchmark takes <code>freshInput</code> and every INVOCATION hook takes
+     * the input, each hook is assumed to touch only its own call's copy, so a whole batch of copies is set up ahead
+     * of time and timed together. Otherwise a hook might change state every call shares, so each call is set up
+     * straight before it and timed on its own.
+     */
+    INVOCATION
+}
@@ -0,0 +1,7 @@
+package com.slc.tools.annotations;
+
+public enum SamplingMode {
+    NONE,
+    BATCH,
+    PER_CALL
+}
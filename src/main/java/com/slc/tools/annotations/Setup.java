@@ -0,0 +1,17 @@
+package com.slc.tools.annotations;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a public method of a <code>@BenchmarkSuite</code> class to be run before every benchmark at the given level,
+ * outside the timed loop. Instance hooks run on the same object as the benchmarks they surround; SIZE and INVOCATION
+ * hooks may also take the input as their only parameter.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface Setup {
+    public Level value() default Level.TRIAL;
+}
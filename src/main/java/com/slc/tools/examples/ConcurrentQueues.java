@@ -0,0 +1,43 @@
+package com.slc.tools.examples;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import com.slc.tools.annotations.BenchmarkSuite;
+import com.slc.tools.annotations.Benchmarkable;
+import com.slc.tools.annotations.Frequency;
+import com.slc.tools.annotations.OutputType;
+import com.slc.tools.annotations.SamplingMode;
+import com.slc.tools.runners.ClassRunner;
+
+
+@BenchmarkSuite(outputTo = OutputType.PRINT, whenToInstantiate = Frequency.PER_METHOD)
+public class ConcurrentQueues {
+    private final Queue<Integer> _lockedQueue = new ArrayDeque<>();
+    private final Queue<Integer> _lockFreeQueue = new ConcurrentLinkedQueue<>();
+
+    @Benchmarkable(testName = "Synchronized ArrayDeque", idName = "intValue", threads = 4, samplingMode = SamplingMode.BATCH)
+    public void lockedQueueBenchmark(int n) {
+        synchronized (_lockedQueue) {
+            _lockedQueue.add(n);
+        }
+        synchronized (_lockedQueue) {
+            _lockedQueue.poll();
+        }
+    }
+
+    @Benchmarkable(testName = "ConcurrentLinkedQueue", idName = "intValue", threads = 4, samplingMode = SamplingMode.BATCH)
+    public void lockFreeQueueBenchmark(int n) {
+        _lockFreeQueue.add(n);
+        _lockFreeQueue.poll();
+    }
+
+    public static void main(String[] args) throws IOException {
+        List<Integer> sizes = List.of(1, 2, 3);
+        ClassRunner.runBenchmarks(ConcurrentQueues.class, sizes, sizes);
+    }
+
+}
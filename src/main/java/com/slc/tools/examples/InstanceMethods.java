@@ -9,15 +9,19 @@ import java.util.Queue;
 import com.slc.tools.annotations.BenchmarkSuite;
 import com.slc.tools.annotations.Benchmarkable;
 import com.slc.tools.annotations.Frequency;
+import com.slc.tools.annotations.Level;
 import com.slc.tools.annotations.OutputType;
+import com.slc.tools.annotations.Setup;
 import com.slc.tools.runners.ClassRunner;
 
 
-@BenchmarkSuite(outputTo = OutputType.JSON, whenToInstantiate = Frequency.PER_SIZE_VALUE)
+@BenchmarkSuite(outputTo = OutputType.JSON, whenToInstantiate = Frequency.ON_INIT)
 public class InstanceMethods {
     private Queue<Integer> _q1, _q2;
 
-    public InstanceMethods() {
+    /** Starts every size with empty queues, so capacity grown for one size doesn't carry over to the next */
+    @Setup(Level.SIZE)
+    public void newQueues() {
         _q1 = new ArrayDeque<>();
         _q2 = new LinkedList<>();
     }
@@ -5,6 +5,7 @@ import java.util.List;
 import java.util.stream.Stream;
 
 import com.slc.tools.runners.LambdaRunner;
+import com.slc.tools.runners.RunSettings;
 import com.slc.tools.util.BenchmarkStats;
 import com.slc.tools.util.Jsonifier;
 
@@ -22,7 +23,16 @@ public class LambdaMethods {
                 Duration.ofMillis(100), 10,
                 "size", true, "insertionSort");
 
-        Jsonifier jsonifier = new Jsonifier(results1, results2);
+        // The same sort on int[] instead of List<Integer>, with a fixed seed so every run sorts the same arrays
+        Stream<int[]> arrayStream = Sorters.getRandomIntArrayStream(1000, 10, Sorters.TestGrowth.LINEAR, 42);
+        RunSettings arraySettings = RunSettings.defaults()
+                                        .withMaxDuration(Duration.ofMillis(100))
+                                        .withFreshInput(true)
+                                        .withTestName("insertionSort (int[])");
+        Stream<BenchmarkStats> results3 = LambdaRunner.benchmarkConsumable(Sorters::insertionSort, arrayStream,
+                                                                            arraySettings);
+
+        Jsonifier jsonifier = new Jsonifier(results1, results2, results3);
         jsonifier.jsonify();
     }
 }
@@ -3,15 +3,18 @@ package com.slc.tools.examples;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Random;
+import java.util.stream.IntStream;
 import java.util.stream.Stream;
 
 import com.slc.tools.annotations.BenchmarkSuite;
 import com.slc.tools.annotations.Benchmarkable;
+import com.slc.tools.util.RandomInputs;
 
 @BenchmarkSuite
 public class Sorters {
 
-    @Benchmarkable(testName = "Bubble Sort")
+    // Both sorts work in place, so each call needs its own copy of the list or it'd only ever sort a sorted list
+    @Benchmarkable(testName = "Bubble Sort", freshInput = true)
     public static boolean bubbleSort(List<Integer> a) {
         for (int i = 0; i < a.size(); i++) {
             for (int j = i; j < a.size(); j++) {
@@ -23,13 +26,26 @@ public class Sorters {
         return true;
     }
     
-    @Benchmarkable(testName = "Insertion Sort")
+    @Benchmarkable(testName = "Insertion Sort", freshInput = true)
     public static void insertionSort(List<Integer> arrToSort) {
         for (int i = 1; i < arrToSort.size(); i++) {
             _insertIntoSorted(arrToSort, i, arrToSort.get(i));
         }
     }
 
+    /** The same insertion sort on a primitive array, which avoids unboxing and following a pointer per element */
+    public static void insertionSort(int[] arrToSort) {
+        for (int i = 1; i < arrToSort.length; i++) {
+            int n = arrToSort[i];
+            int j = i;
+            while (j > 0 && n < arrToSort[j - 1]) {
+                arrToSort[j] = arrToSort[j - 1];
+                j--;
+            }
+            arrToSort[j] = n;
+        }
+    }
+
     private static void _swap(List<Integer> a, int i1, int i2) {
         int placeholder = a.get(i1);
         a.set(i1, a.get(i2));
@@ -59,27 +75,44 @@ public class Sorters {
      * @param minSize minimum size of the lists to generate, list size increases linearly relative to listNUmber
      * @param listNumber number of lists to generate
      * @param testGrowth specify growth rate of "size" in tests, either TestGrowth.LINEAR or TestGrowth.EXPONENTIAL
-     * @return a stream of 
+     * @return a lazy stream of random lists, each of which is only generated when it's needed
      */
     public static Stream<List<Integer>> getRandomIntStream(int minSize, int listNumber, TestGrowth testGrowth) {
-        Stream.Builder<List<Integer>> sb = Stream.builder();
-        switch (testGrowth) {
-            case LINEAR:
-                for (int i = 0; i < listNumber; i++) {
-                    sb.add(getRandomIntList((1 + i) * minSize));
-                }                
-                break;
-            case EXPONENTIAL:
-                for (int i = 0; i < listNumber; i++) {
-                    sb.add(getRandomIntList((1 << i) * minSize));
-                }
-                break;
-        }
-        return sb.build();
+        return getSizes(minSize, listNumber, testGrowth).mapToObj(Sorters::getRandomIntList);
     }
 
+    /** Generate the sizes used by <code>getRandomIntStream()</code>, e.g. to pass to <code>InputSource.bySize()</code>
+     * @param minSize the first size
+     * @param count number of sizes to generate
+     * @param testGrowth specify growth rate of the sizes, either TestGrowth.LINEAR or TestGrowth.EXPONENTIAL
+     * @return a stream of sizes
+     */
+    public static IntStream getSizes(int minSize, int count, TestGrowth testGrowth) {
+        return IntStream.range(0, count).map((int i) -> switch (testGrowth) {
+            case LINEAR -> (1 + i) * minSize;
+            case EXPONENTIAL -> (1 << i) * minSize;
+        });
+    }
+
+    /** Generate random int arrays for testing, using the same sizes as <code>getRandomIntStream()</code>
+     * @param minSize minimum size of the arrays to generate
+     * @param arrayNumber number of arrays to generate
+     * @param testGrowth specify growth rate of "size" in tests, either TestGrowth.LINEAR or TestGrowth.EXPONENTIAL
+     * @param seed the seed for the random number generator; the same seed always gives the same arrays
+     * @return a lazy stream of random int arrays, each of which is only generated when it's needed
+     */
+    public static Stream<int[]> getRandomIntArrayStream(int minSize, int arrayNumber, TestGrowth testGrowth,
+                                                        long seed) {
+        return RandomInputs.intArrays(getSizes(minSize, arrayNumber, testGrowth), seed);
+    }
+
+    /** Generate a list of random ints which is different every time; for results that can be compared between runs or
+     * machines, use the seeded overload or an InputCorpus instead
+     * @param size number of ints to generate
+     * @return a new list of random ints
+     */
     public static List<Integer> getRandomIntList(int size) {
-        List<Integer> list = new ArrayList<>();
+        List<Integer> list = new ArrayList<>(size);
         Random random = new Random();
         for (int i = 0; i < size; i++) {
             list.add(random.nextInt());
@@ -87,6 +120,14 @@ public class Sorters {
         return list;
     }
 
+    public static List<Integer> getRandomIntList(int size, long seed) {
+        List<Integer> list = new ArrayList<>(size);
+        for (int n : RandomInputs.ints(size, seed)) {
+            list.add(n);
+        }
+        return list;
+    }
+
     public static List<Integer> getRandomIntList(int size, int min, int max) {
         List<Integer> list = new ArrayList<>();
         Random random = new Random();
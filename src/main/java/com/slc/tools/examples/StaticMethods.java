@@ -1,13 +1,15 @@
 package com.slc.tools.examples;
 
 import java.util.List;
-import java.util.stream.Stream;
 
 import com.slc.tools.runners.ClassRunner;
+import com.slc.tools.util.InputSource;
 
 public class StaticMethods {
     public static void main(String[] args) throws Exception {
-        Stream<List<Integer>> dataStream = Sorters.getRandomIntStream(5, 6, Sorters.TestGrowth.EXPONENTIAL);
-        ClassRunner.runBenchmarks(Sorters.class, dataStream);
+        // Each list is generated just before it's sorted, and with a fixed seed so both sorts get the same lists
+        InputSource<List<Integer>> data = InputSource.bySize((int size) -> Sorters.getRandomIntList(size, 42L),
+                                                            Sorters.getSizes(5, 6, Sorters.TestGrowth.EXPONENTIAL));
+        ClassRunner.runBenchmarks(Sorters.class, data);
     }
 }
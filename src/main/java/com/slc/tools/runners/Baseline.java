@@ -0,0 +1,26 @@
+package com.slc.tools.runners;
+
+import java.lang.reflect.Method;
+
+/**
+ * Builds the empty baseline for a benchmarked method: the same call, through the same kind of handle, to an empty
+ * method with exactly the same signature, so it pays for the same unboxing, casts and result consumption.
+ * BenchmarkLoop times it right after each measured iteration, with that iteration's batch size, so the harness's
+ * cost per call is measured under the same conditions as the benchmark itself, and never shared between
+ * benchmarks.
+ */
+final class Baseline {
+
+    private Baseline() {    }
+
+    /**
+     * @param method The method being benchmarked
+     * @param target The object it's called on, or null if it's static
+     * @param input The input it'll be called with, or null if it takes no arguments
+     * @return A body that calls an empty method like <code>method</code>, with the same arguments
+     */
+    static BenchmarkLoop.Body of(Method method, Object target, Object input) {
+        MethodInvoker empty = MethodInvoker.emptyLike(method);
+        return () -> empty.invokeAndConsume(target, input);
+    }
+}
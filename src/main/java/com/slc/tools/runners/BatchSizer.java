@@ -0,0 +1,124 @@
+package com.slc.tools.runners;
+
+/**
+ * Decides how many calls BenchmarkLoop makes between clock checks. The fixed sizer always uses the settings'
+ * clockFrequency. The adaptive sizer starts at one call per check and doubles from there, until reading the clock
+ * costs no more than the allowed fraction of the time spent in the benchmark; it also never plans a batch that
+ * would run past the deadline, so slow benchmarks overshoot by at most about one call.
+ */
+abstract class BatchSizer {
+
+    /** What it costs to call <code>System.nanoTime()</code> on this machine, measured once per JVM */
+    record ClockCost(double latencyNanos, long granularityNanos) {
+        private static final int _CALIBRATION_CALLS = 20_000;
+
+        private static ClockCost _measure() {
+            // Run twice and keep the second, so the calibration loop itself has been compiled
+            _measureOnce();
+            return _measureOnce();
+        }
+
+        private static ClockCost _measureOnce() {
+            long granularity = Long.MAX_VALUE;
+            long previous = System.nanoTime();
+            long start = previous;
+            for (int i = 0; i < _CALIBRATION_CALLS; i++) {
+                long now = System.nanoTime();
+                if (now != previous) {
+                    granularity = Math.min(granularity, now - previous);
+                    previous = now;
+                }
+            }
+            double latency = (double) (System.nanoTime() - start) / (_CALIBRATION_CALLS + 1);
+            return new ClockCost(latency, (granularity == Long.MAX_VALUE) ? 1 : granularity);
+        }
+    }
+
+    /** Defers measuring the clock until an adaptive benchmark first needs it */
+    private static final class ClockCostHolder {
+        static final ClockCost COST = ClockCost._measure();
+    }
+
+    /**
+     * @return The cost of reading the clock on this machine
+     */
+    static ClockCost clockCost() {
+        return ClockCostHolder.COST;
+    }
+
+    /**
+     * Creates a sizer for a single run of the loop
+     * @param settings The settings for this benchmark
+     * @return An adaptive sizer if the settings ask for one, otherwise a fixed one
+     */
+    static BatchSizer from(RunSettings settings) {
+        if (settings.isAdaptiveClock()) {
+            return new Adaptive(settings.maxClockOverhead(), clockCost());
+        }
+        return new Fixed(settings.clockFrequency());
+    }
+
+    /**
+     * @return How many calls to make before the first clock check
+     */
+    abstract int first();
+
+    /**
+     * Works out the size of the next batch, after the clock has been checked
+     * @param lastBatchCalls How many calls the batch that just finished made
+     * @param lastBatchNanos How long that batch took
+     * @param remainingNanos How long is left until the loop's deadline
+     * @return How many calls to make before the next clock check; at least 1
+     */
+    abstract int next(int lastBatchCalls, long lastBatchNanos, long remainingNanos);
+
+    private static final class Fixed extends BatchSizer {
+        private final int _BATCH;
+
+        Fixed(int batch) {
+            _BATCH = batch;
+        }
+
+        @Override
+        int first() {
+            return _BATCH;
+        }
+
+        @Override
+        int next(int lastBatchCalls, long lastBatchNanos, long remainingNanos) {
+            return _BATCH;
+        }
+    }
+
+    private static final class Adaptive extends BatchSizer {
+        /** Stops batches from growing so large that a sudden slowdown would badly overshoot the deadline */
+        private static final int _MAX_BATCH = 1 << 24;
+
+        private final double _MAX_OVERHEAD;
+        private final ClockCost _CLOCK;
+
+        Adaptive(double maxOverhead, ClockCost clock) {
+            _MAX_OVERHEAD = maxOverhead;
+            _CLOCK = clock;
+        }
+
+        @Override
+        int first() {
+            return 1;
+        }
+
+        @Override
+        int next(int lastBatchCalls, long lastBatchNanos, long remainingNanos) {
+            long grown = Math.min((long) lastBatchCalls * 2, _MAX_BATCH);
+            if (lastBatchNanos < 2 * _CLOCK.granularityNanos()) {
+                // Too quick for the clock to have measured properly, so all we know is that it's fast
+                return (int) grown;
+            }
+            double nanosPerCall = (double) lastBatchNanos / lastBatchCalls;
+            double wantedForOverhead = Math.ceil(_CLOCK.latencyNanos() / (_MAX_OVERHEAD * nanosPerCall));
+            double fitsBeforeDeadline = Math.floor(remainingNanos / nanosPerCall);
+            long batch = (long) Math.min(Math.min(wantedForOverhead, fitsBeforeDeadline), grown);
+            return (int) Math.max(1, batch);
+        }
+    }
+}
@@ -0,0 +1,620 @@
+package com.slc.tools.runners;
+
+import java.lang.management.CompilationMXBean;
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+import com.slc.tools.annotations.SamplingMode;
+import com.slc.tools.util.BenchmarkStats;
+import com.slc.tools.util.IterationStats;
+import com.slc.tools.util.LatencyHistogram;
+import com.slc.tools.util.LatencyPercentiles;
+import com.slc.tools.util.LoadStats;
+import com.slc.tools.util.MemoryStats;
+import com.slc.tools.util.ThreadStats;
+
+/**
+ * The timed loop shared by MethodRunner and LambdaRunner. It calls a Body in batches (of
+ * <code>clockFrequency</code> calls, or sized by a BatchSizer in adaptive mode), only checking the clock between
+ * batches, until the maximum time has elapsed.
+ * <code>measure()</code> wraps that loop with warmup and repeated measurement iterations (either a fixed number, or
+ * as many as it takes for the median to settle), and can instead run
+ * an open loop which starts calls at a fixed rate on virtual threads.
+ */
+final class BenchmarkLoop {
+
+    /** One call to whatever is being benchmarked, with its input already bound */
+    @FunctionalInterface
+    interface Body {
+        void call() throws Throwable;
+    }
+
+    /**
+     * Prepares whatever the next batch of calls needs (e.g. fresh copies of the input) while the clock is stopped.
+     * When a loop has a BatchSetup, only the time spent inside batches counts towards the elapsed time.
+     */
+    interface BatchSetup {
+        /**
+         * @param calls How many calls the next batch would like to make
+         * @return How many calls are ready; between 1 and <code>calls</code>
+         * @throws Throwable Whatever preparing the batch throws
+         */
+        int prepare(int calls) throws Throwable;
+
+        /**
+         * @return How many bytes the current thread has allocated while preparing batches, or -1 if unknown
+         */
+        long bytesAllocated();
+    }
+
+    /** The raw results of one run of the loop; bytesAllocated is -1 if it wasn't (or couldn't be) measured */
+    record Result(int clockChecks, int completedLoops, long nanosElapsed, long bytesAllocated) {    }
+
+    private static final int _MAX_WARMUP_MULTIPLIER = 3;
+    private static final int _HISTOGRAM_STRIPES = 16;
+    /** Adaptive iterations never stop before this many, since a bootstrap interval needs a few samples to mean much */
+    private static final int _MIN_ADAPTIVE_ITERATIONS = 5;
+    /** Baseline rounds are as long as the iterations they follow, up to this */
+    private static final long _MAX_BASELINE_ROUND_NANOS = 100_000_000;
+    private static final int _MAX_BASELINE_WARMUP_ROUNDS = 10;
+
+    private BenchmarkLoop() {    }
+
+    /**
+     * Runs any warmup iterations, then every measured iteration, and combines them into a single BenchmarkStats.
+     * The loop counts and elapsed time are totals across all of the measured iterations.
+     * @param body The call to time
+     * @param settings All of the options for this benchmark
+     * @param size The size or ID of the input being tested
+     * @param baseline An empty call shaped like the body, timed after every measured iteration to find the
+     * harness's per-call cost; or null to not measure it
+     * @return The combined results of every measured iteration
+     * @throws Throwable Whatever the body throws
+     */
+    static BenchmarkStats measure(Body body, RunSettings settings, Double size, Body baseline) throws Throwable {
+        return measure(body, null, settings, size, baseline);
+    }
+
+    /**
+     * The same as <code>measure(body, settings, size, baseline)</code>, but calls the setup before every
+     * batch with the clock stopped. Setup can't be shared between threads, so it only works with a single thread
+     * and a closed loop.
+     * @param body The call to time
+     * @param setup What to prepare before each batch, or null
+     * @param settings All of the options for this benchmark
+     * @param size The size or ID of the input being tested
+     * @param baseline An empty call shaped like the body, timed after every measured iteration to find the
+     * harness's per-call cost; or null to not measure it
+     * @return The combined results of every measured iteration
+     * @throws Throwable Whatever the body or setup throws
+     */
+    static BenchmarkStats measure(Body body, BatchSetup setup, RunSettings settings, Double size,
+                                    Body baseline) throws Throwable {
+        if (setup != null && (settings.threads() > 1 || settings.isOpenLoop())) {
+            throw new IllegalArgumentException("Fresh inputs and invocation hooks can only be used with a single thread and a closed loop");
+        }
+        if (settings.isOpenLoop()) {
+            return _measureOpenLoop(body, settings, size);
+        }
+        int warmupsRun = _warmUp(body, setup, settings);
+
+        int threads = settings.threads();
+        LatencyHistogram[] histograms = null;
+        if (settings.samplingMode() != SamplingMode.NONE) {
+            histograms = new LatencyHistogram[threads];
+            for (int t = 0; t < threads; t++) {
+                histograms[t] = new LatencyHistogram();
+            }
+        }
+
+        double[] averageTimes = new double[_maxIterations(settings)];
+        int iterations = 0;
+        int clockChecks = 0;
+        long completedLoops = 0;
+        long nanosElapsed = 0;
+        long wallNanos = 0;
+        long[] threadLoops = new long[threads];
+        long[] threadNanos = new long[threads];
+        long bytesAllocated = 0;
+        double fastestBaseline = Double.MAX_VALUE;
+        long gcCountBefore = MemoryProbe.gcCount();
+        long gcTimeBefore = MemoryProbe.gcTimeMillis();
+        long measureStart = System.nanoTime();
+        do {
+            Result[] perThread = _runIteration(body, setup, settings, histograms);
+            int iterationChecks = 0;
+            long iterationLoops = 0;
+            long iterationNanos = 0;
+            long iterationWallNanos = 0;
+            for (int t = 0; t < threads; t++) {
+                Result result = perThread[t];
+                iterationChecks += result.clockChecks();
+                iterationLoops += result.completedLoops();
+                iterationNanos += result.nanosElapsed();
+                iterationWallNanos = Math.max(iterationWallNanos, result.nanosElapsed());
+                threadLoops[t] += result.completedLoops();
+                threadNanos[t] += result.nanosElapsed();
+                bytesAllocated = (bytesAllocated < 0 || result.bytesAllocated() < 0)
+                                    ? -1 : bytesAllocated + result.bytesAllocated();
+            }
+            averageTimes[iterations++] = (double) iterationNanos / iterationLoops;
+            clockChecks += iterationChecks;
+            completedLoops += iterationLoops;
+            nanosElapsed += iterationNanos;
+            wallNanos += iterationWallNanos;
+
+            if (baseline != null) {
+                // Times the baseline straight after the iteration, with the batches it actually made; that time
+                // isn't spent measuring, so it doesn't count towards the measurement budget
+                long baselineStart = System.nanoTime();
+                int batchSize = (int) Math.max(1, Math.round((double) iterationLoops / Math.max(1, iterationChecks)));
+                if (iterations == 1) {
+                    _warmUpBaseline(baseline, settings, batchSize);
+                }
+                fastestBaseline = Math.min(fastestBaseline, _timeBaseline(baseline, settings, batchSize));
+                measureStart += System.nanoTime() - baselineStart;
+            }
+        } while (_keepMeasuring(settings, averageTimes, iterations, measureStart));
+        double overheadNanos = (fastestBaseline == Double.MAX_VALUE) ? 0 : fastestBaseline;
+        averageTimes = Arrays.copyOf(averageTimes, iterations);
+        MemoryStats memory = MemoryStats.of(bytesAllocated, completedLoops, MemoryProbe.gcCount() - gcCountBefore,
+                                                MemoryProbe.gcTimeMillis() - gcTimeBefore);
+
+        IterationStats iterationStats = null;
+        if (iterations > 1 || warmupsRun > 0) {
+            iterationStats = IterationStats.of(warmupsRun, averageTimes);
+        }
+        LatencyPercentiles latency = null;
+        if (histograms != null) {
+            for (int t = 1; t < threads; t++) {
+                histograms[0].add(histograms[t]);
+            }
+            latency = histograms[0].toPercentiles();
+        }
+        ThreadStats threadStats = null;
+        if (threads > 1) {
+            threadStats = ThreadStats.of(Duration.ofNanos(wallNanos), threadLoops, threadNanos);
+        }
+        // Adaptive batches, and batches a setup couldn't fully prepare, vary in size, so report the average instead
+        int loopsBetweenChecks = (settings.isAdaptiveClock() || setup != null)
+                                    ? (int) Math.round((double) completedLoops / Math.max(1, clockChecks))
+                                    : settings.clockFrequency();
+        return new BenchmarkStats(clockChecks, loopsBetweenChecks, settings.maxDuration(),
+                                    (int) Math.min(completedLoops, Integer.MAX_VALUE), Duration.ofNanos(nanosElapsed),
+                                    size, settings.testName(), overheadNanos, latency, iterationStats, threadStats, null,
+                                    memory);
+    }
+
+    /**
+     * The open-loop version of <code>measure()</code>: calls are started at the settings' arrival rate, each on its
+     * own virtual thread, and their latencies are measured from when they were scheduled to start.
+     * @param body The call to time
+     * @param settings All of the options for this benchmark, including a non-zero arrival rate
+     * @param size The size or ID of the input being tested
+     * @return The combined results of every measured iteration
+     * @throws Throwable The first exception thrown by any call
+     */
+    private static BenchmarkStats _measureOpenLoop(Body body, RunSettings settings, Double size) throws Throwable {
+        int warmupsRun = settings.warmupIterations();
+        RunSettings warmupSettings = settings.withMaxDuration(settings.warmupDuration());
+        for (int i = 0; i < warmupsRun; i++) {
+            _runOpenLoop(body, warmupSettings, new LatencyHistogram[_HISTOGRAM_STRIPES],
+                            new LatencyHistogram[_HISTOGRAM_STRIPES]);
+        }
+
+        LatencyHistogram[] corrected = new LatencyHistogram[_HISTOGRAM_STRIPES];
+        LatencyHistogram[] service = new LatencyHistogram[_HISTOGRAM_STRIPES];
+        double[] averageTimes = new double[_maxIterations(settings)];
+        int iterations = 0;
+        long dispatched = 0;
+        long completed = 0;
+        long latencyNanos = 0;
+        long wallNanos = 0;
+        int maxInFlight = 0;
+        long gcCountBefore = MemoryProbe.gcCount();
+        long gcTimeBefore = MemoryProbe.gcTimeMillis();
+        long measureStart = System.nanoTime();
+        do {
+            OpenLoopResult result = _runOpenLoop(body, settings, corrected, service);
+            averageTimes[iterations++] = (double) result.latencyNanos() / Math.max(1, result.completed());
+            dispatched += result.dispatched();
+            completed += result.completed();
+            latencyNanos += result.latencyNanos();
+            wallNanos += result.wallNanos();
+            maxInFlight = Math.max(maxInFlight, result.maxInFlight());
+        } while (_keepMeasuring(settings, averageTimes, iterations, measureStart));
+        averageTimes = Arrays.copyOf(averageTimes, iterations);
+        // Virtual threads don't have allocation counters, so only GC activity can be measured here
+        MemoryStats memory = MemoryStats.of(-1, completed, MemoryProbe.gcCount() - gcCountBefore,
+                                                MemoryProbe.gcTimeMillis() - gcTimeBefore);
+
+        for (int i = 1; i < _HISTOGRAM_STRIPES; i++) {
+            corrected[0].add(corrected[i]);
+            service[0].add(service[i]);
+        }
+        IterationStats iterationStats = null;
+        if (iterations > 1 || warmupsRun > 0) {
+            iterationStats = IterationStats.of(warmupsRun, averageTimes);
+        }
+        LoadStats load = new LoadStats(settings.arrivalRate(), completed * 1e9 / wallNanos, dispatched,
+                                        maxInFlight, service[0].toPercentiles());
+        return new BenchmarkStats((int) Math.min(dispatched, Integer.MAX_VALUE), 1, settings.maxDuration(),
+                                    (int) Math.min(completed, Integer.MAX_VALUE), Duration.ofNanos(latencyNanos),
+                                    size, settings.testName(), 0, corrected[0].toPercentiles(), iterationStats,
+                                    null, load, memory);
+    }
+
+    /**
+     * Runs untimed rounds of the baseline until the JIT compiler stops compiling during them (up to a limit), so
+     * the empty call isn't measured before it's been compiled like the benchmark has
+     */
+    private static void _warmUpBaseline(Body baseline, RunSettings settings, int batchSize) throws Throwable {
+        CompilationMXBean jit = ManagementFactory.getCompilationMXBean();
+        boolean canTrackJit = jit != null && jit.isCompilationTimeMonitoringSupported();
+        boolean stillCompiling = true;
+        for (int round = 0; round < _MAX_BASELINE_WARMUP_ROUNDS && (round == 0 || stillCompiling); round++) {
+            long compileTimeBefore = canTrackJit ? jit.getTotalCompilationTime() : 0;
+            _timeBaseline(baseline, settings, batchSize);
+            stillCompiling = canTrackJit && jit.getTotalCompilationTime() != compileTimeBefore;
+        }
+    }
+
+    /**
+     * Times one round of the empty baseline under the same conditions as the iteration before it: on as many
+     * threads, with the same number of calls between clock checks and the same sampling mode. Noise can only ever
+     * make a round slower, so the fastest round is the one to keep.
+     * @param baseline The empty call to time
+     * @param settings The benchmark's settings
+     * @param batchSize How many calls the iteration made between clock checks, on average
+     * @return The average time per call of this round, in nanoseconds
+     * @throws Throwable Whatever the baseline throws
+     */
+    private static double _timeBaseline(Body baseline, RunSettings settings, int batchSize) throws Throwable {
+        long roundNanos = Math.min(settings.maxDuration().toNanos(), _MAX_BASELINE_ROUND_NANOS);
+        RunSettings round = settings.withClockFrequency(batchSize).withMaxDuration(Duration.ofNanos(roundNanos));
+        LatencyHistogram[] histograms = null;
+        if (settings.samplingMode() != SamplingMode.NONE) {
+            histograms = new LatencyHistogram[settings.threads()];
+            for (int t = 0; t < histograms.length; t++) {
+                histograms[t] = new LatencyHistogram();
+            }
+        }
+        long loops = 0;
+        long nanos = 0;
+        for (Result result : _runIteration(baseline, null, round, histograms)) {
+            loops += result.completedLoops();
+            nanos += result.nanosElapsed();
+        }
+        return (loops == 0) ? Double.MAX_VALUE : (double) nanos / loops;
+    }
+
+    /** The most measured iterations the settings allow, i.e. how large the array of iteration times must be */
+    private static int _maxIterations(RunSettings settings) {
+        return settings.isAdaptiveIterations() ? settings.maxMeasurementIterations() : settings.measurementIterations();
+    }
+
+    /**
+     * Decides whether to measure another iteration. Without adaptive iterations, that's until the fixed number have
+     * run. Otherwise it's until the bootstrap interval of the median is narrow enough, unless the maximum number of
+     * iterations or the time budget run out first.
+     * @param settings The iteration settings to follow
+     * @param averageTimes The average time per call of each iteration so far
+     * @param iterations How many iterations have been measured so far
+     * @param startNanos When the first measured iteration started, from <code>System.nanoTime()</code>
+     * @return True to measure another iteration
+     */
+    private static boolean _keepMeasuring(RunSettings settings, double[] averageTimes, int iterations,
+                                            long startNanos) {
+        if (!settings.isAdaptiveIterations()) {
+            return iterations < settings.measurementIterations();
+        }
+        if (iterations >= settings.maxMeasurementIterations()) {
+            return false;
+        }
+        long budgetNanos = settings.measurementBudget().toNanos();
+        if (budgetNanos > 0 && System.nanoTime() - startNanos >= budgetNanos) {
+            return false;
+        }
+        if (iterations < Math.max(settings.measurementIterations(), _MIN_ADAPTIVE_ITERATIONS)) {
+            return true;
+        }
+        IterationStats soFar = IterationStats.of(0, Arrays.copyOf(averageTimes, iterations));
+        return soFar.relativeError() > settings.targetRelativeError();
+    }
+
+    /** The raw results of one open-loop iteration */
+    private record OpenLoopResult(long dispatched, long completed, long latencyNanos, long wallNanos,
+                                    int maxInFlight) {    }
+
+    /**
+     * Starts calls at a fixed rate until the maximum duration has elapsed, then waits for them all to finish.
+     * If the dispatcher falls behind schedule it starts calls immediately rather than skipping them, and the delay
+     * shows up in the corrected latency. Histograms are striped and locked per stripe, so that thousands of
+     * virtual threads finishing at once don't all contend for the same lock.
+     * @param body The call to time
+     * @param settings The maximum duration and arrival rate to use
+     * @param corrected Latencies measured from each call's scheduled start time; null stripes are filled in
+     * @param service Latencies measured from each call's actual start time; null stripes are filled in
+     * @return How many calls were started and finished, and how long they took
+     * @throws Throwable The first exception thrown by any call
+     */
+    private static OpenLoopResult _runOpenLoop(Body body, RunSettings settings, LatencyHistogram[] corrected,
+                                    LatencyHistogram[] service) throws Throwable {
+        for (int i = 0; i < _HISTOGRAM_STRIPES; i++) {
+            if (corrected[i] == null) {
+                corrected[i] = new LatencyHistogram();
+                service[i] = new LatencyHistogram();
+            }
+        }
+        long maxNanoTime = settings.maxDuration().toNanos();
+        double intervalNanos = 1e9 / settings.arrivalRate();
+        AtomicReference<Throwable> firstFailure = new AtomicReference<>();
+        LongAdder completed = new LongAdder();
+        LongAdder latencyNanos = new LongAdder();
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+
+        long dispatched = 0;
+        long startTime = System.nanoTime();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            while (firstFailure.get() == null) {
+                long intendedStart = startTime + (long) (dispatched * intervalNanos);
+                if (intendedStart - startTime >= maxNanoTime) {
+                    break;
+                }
+                long wait;
+                while ((wait = intendedStart - System.nanoTime()) > 0) {
+                    LockSupport.parkNanos(wait);
+                }
+
+                LatencyHistogram correctedStripe = corrected[(int) (dispatched % _HISTOGRAM_STRIPES)];
+                LatencyHistogram serviceStripe = service[(int) (dispatched % _HISTOGRAM_STRIPES)];
+                maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+                executor.execute(() -> {
+                    long actualStart = System.nanoTime();
+                    try {
+                        body.call();
+                        long end = System.nanoTime();
+                        synchronized (correctedStripe) {
+                            correctedStripe.record(end - intendedStart);
+                            serviceStripe.record(end - actualStart);
+                        }
+                        latencyNanos.add(end - intendedStart);
+                        completed.increment();
+                    } catch (Throwable e) {
+                        firstFailure.compareAndSet(null, e);
+                    } finally {
+                        inFlight.decrementAndGet();
+                    }
+                });
+                dispatched++;
+            }
+        } // closing the executor waits for every call still in flight
+        long wallNanos = System.nanoTime() - startTime;
+
+        if (firstFailure.get() != null) {
+            throw firstFailure.get();
+        }
+        return new OpenLoopResult(dispatched, completed.sum(), latencyNanos.sum(), wallNanos, maxInFlight.get());
+    }
+
+    /**
+     * Runs one iteration of the loop, on as many threads as the settings ask for. With more than one thread,
+     * every thread calls the same body, and they all wait at a barrier so they start at the same moment.
+     * @param body The call to time
+     * @param setup What to prepare before each batch, or null; only allowed with a single thread
+     * @param settings The options for this benchmark
+     * @param histograms One histogram per thread, or null if not sampling
+     * @return One result per thread
+     * @throws Throwable The first exception thrown by the body on any thread
+     */
+    private static Result[] _runIteration(Body body, BatchSetup setup, RunSettings settings,
+                                    LatencyHistogram[] histograms) throws Throwable {
+        int threads = settings.threads();
+        if (threads == 1) {
+            LatencyHistogram histogram = (histograms == null) ? null : histograms[0];
+            return new Result[] { _runCountingAllocations(body, setup, settings, histogram) };
+        }
+
+        Result[] results = new Result[threads];
+        AtomicReference<Throwable> firstFailure = new AtomicReference<>();
+        CyclicBarrier startingLine = new CyclicBarrier(threads);
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            int threadIndex = t;
+            workers[t] = new Thread(() -> {
+                try {
+                    startingLine.await();
+                    LatencyHistogram histogram = (histograms == null) ? null : histograms[threadIndex];
+                    results[threadIndex] = _runCountingAllocations(body, null, settings, histogram);
+                } catch (Throwable e) {
+                    firstFailure.compareAndSet(null, e);
+                    startingLine.reset(); // releases anyone still waiting, so a failure can't hang the others
+                }
+            }, "benchmark-contender-" + t);
+            workers[t].start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+
+        if (firstFailure.get() != null) {
+            throw firstFailure.get();
+        }
+        return results;
+    }
+
+    /**
+     * Runs the loop, reading the current thread's allocation counter just outside of the timed window.
+     * Anything allocated by the setup is left out.
+     * @param body The call to time
+     * @param setup What to prepare before each batch, or null
+     * @param settings The options for this benchmark
+     * @param histogram Where to record latencies, or null
+     * @return The loop's results, including how many bytes this thread allocated during it
+     * @throws Throwable Whatever the body throws
+     */
+    private static Result _runCountingAllocations(Body body, BatchSetup setup, RunSettings settings,
+                                    LatencyHistogram histogram) throws Throwable {
+        long setupBytesBefore = (setup == null) ? 0 : setup.bytesAllocated();
+        long bytesBefore = MemoryProbe.currentThreadAllocatedBytes();
+        Result result = run(body, setup, settings, histogram);
+        long bytesAfter = MemoryProbe.currentThreadAllocatedBytes();
+        long setupBytes = (setup == null) ? 0 : setup.bytesAllocated() - setupBytesBefore;
+        long bytesAllocated = (bytesBefore < 0 || bytesAfter < 0 || setupBytes < 0)
+                                ? -1 : bytesAfter - bytesBefore - setupBytes;
+        return new Result(result.clockChecks(), result.completedLoops(), result.nanosElapsed(), bytesAllocated);
+    }
+
+    /**
+     * Runs the body for the configured number of warmup iterations, and then keeps going for as long as the
+     * JIT compiler was still compiling during the last iteration, up to a limit of several times as many.
+     * @param body The call to warm up
+     * @param setup What to prepare before each batch, or null
+     * @param settings The warmup iterations and duration to use
+     * @return The number of warmup iterations actually run
+     * @throws Throwable Whatever the body throws
+     */
+    private static int _warmUp(Body body, BatchSetup setup, RunSettings settings) throws Throwable {
+        int minIterations = settings.warmupIterations();
+        if (minIterations <= 0) {
+            return 0;
+        }
+        RunSettings warmupSettings = settings.withMaxDuration(settings.warmupDuration());
+        CompilationMXBean jit = ManagementFactory.getCompilationMXBean();
+        boolean canTrackJit = jit != null && jit.isCompilationTimeMonitoringSupported();
+
+        int iterationsRun = 0;
+        boolean stillCompiling = true;
+        while (iterationsRun < minIterations
+                || (canTrackJit && stillCompiling && iterationsRun < minIterations * _MAX_WARMUP_MULTIPLIER)) {
+            long compileTimeBefore = canTrackJit ? jit.getTotalCompilationTime() : 0;
+            _runIteration(body, setup, warmupSettings, null);
+            iterationsRun++;
+            stillCompiling = canTrackJit && jit.getTotalCompilationTime() != compileTimeBefore;
+        }
+        return iterationsRun;
+    }
+
+    /**
+     * Runs the body repeatedly until the settings' maximum duration has elapsed
+     * @param body The call to time
+     * @param settings The maximum duration, clock frequency, and sampling mode to use
+     * @param histogram Where to record latencies; ignored (and may be null) if the sampling mode is NONE
+     * @return The number of clock checks and calls made, and how long they took
+     * @throws Throwable Whatever the body throws
+     */
+    static Result run(Body body, RunSettings settings, LatencyHistogram histogram) throws Throwable {
+        return run(body, null, settings, histogram);
+    }
+
+    /**
+     * Runs the body repeatedly until the time spent inside batches reaches the settings' maximum duration.
+     * Without a setup, batches run back to back, so this is the same as the wall-clock time.
+     * @param body The call to time
+     * @param setup What to prepare before each batch with the clock stopped, or null
+     * @param settings The maximum duration, clock frequency, and sampling mode to use
+     * @param histogram Where to record latencies; ignored (and may be null) if the sampling mode is NONE
+     * @return The number of clock checks and calls made, and how long they took
+     * @throws Throwable Whatever the body or setup throws
+     */
+    static Result run(Body body, BatchSetup setup, RunSettings settings, LatencyHistogram histogram)
+                                    throws Throwable {
+        long maxNanoTime = settings.maxDuration().toNanos();
+        BatchSizer sizer = BatchSizer.from(settings);
+        SamplingMode mode = (histogram == null) ? SamplingMode.NONE : settings.samplingMode();
+        switch (mode) {
+            case BATCH:
+                // Reuses the clock check at the end of each batch, so this reads the clock exactly as often as
+                // an unsampled loop does
+                return _loop(body, setup, maxNanoTime, sizer, histogram::recordBatch);
+            case PER_CALL:
+                return _loop(_timingEachCall(body, histogram), setup, maxNanoTime, sizer, null);
+            default:
+                return _loop(body, setup, maxNanoTime, sizer, null);
+        }
+    }
+
+    /** Records how long a batch took, using the clock check that ends it */
+    @FunctionalInterface
+    private interface BatchRecorder {
+        void record(long batchNanos, int batchCalls);
+    }
+
+    /**
+     * Calls the body in batches until the time spent inside batches reaches the deadline. Each batch is sized by
+     * the sizer (and then by the setup, which prepares it with the clock stopped), and the clock is only read
+     * between batches.
+     * @param body The call to time
+     * @param setup What to prepare before each batch, or null to run batches back to back
+     * @param maxNanoTime How long to spend inside batches
+     * @param sizer How many calls to make between clock checks
+     * @param recorder What to do with each batch's time, or null
+     * @return The number of clock checks and calls made, and how long they took
+     * @throws Throwable Whatever the body or setup throws
+     */
+    private static Result _loop(Body body, BatchSetup setup, long maxNanoTime, BatchSizer sizer,
+                                    BatchRecorder recorder) throws Throwable {
+        int clockChecks = 0;
+        int completedLoops = 0;
+        int batchSize = _prepare(setup, sizer.first());
+
+        long nanosElapsed = 0;
+        long batchStart = System.nanoTime();
+        while (nanosElapsed < maxNanoTime
+                && completedLoops < Integer.MAX_VALUE) {
+            clockChecks++;
+            int batchLoops = 0;
+            while (batchLoops < batchSize) {
+                body.call();
+                batchLoops++;
+                // increment completedLoops before asking if max has been reached
+                // to prevent extra loop from being performed and overflowing
+                if (++completedLoops == Integer.MAX_VALUE) {
+                    break;
+                }
+            }
+            long batchEnd = System.nanoTime();
+            if (recorder != null) {
+                recorder.record(batchEnd - batchStart, batchLoops);
+            }
+            nanosElapsed += batchEnd - batchStart;
+            batchSize = sizer.next(batchLoops, batchEnd - batchStart, maxNanoTime - nanosElapsed);
+            if (setup == null) {
+                batchStart = batchEnd;
+            } else if (nanosElapsed < maxNanoTime && completedLoops < Integer.MAX_VALUE) {
+                // Prepare the next batch with the clock stopped, unless there won't be one
+                batchSize = setup.prepare(batchSize);
+                batchStart = System.nanoTime();
+            }
+        }
+
+        clockChecks++; // last check returned false, so it didn't increment
+        return new Result(clockChecks, completedLoops, nanosElapsed, -1);
+    }
+
+    /**
+     * Wraps the body so that every call is timed individually. This is the only way to see true per-call
+     * outliers, but it adds two clock reads to every call, so the total time will be higher than in the other modes.
+     */
+    private static Body _timingEachCall(Body body, LatencyHistogram histogram) {
+        return () -> {
+            long callStart = System.nanoTime();
+            body.call();
+            histogram.record(System.nanoTime() - callStart);
+        };
+    }
+
+    /** Prepares the first batch, if there's a setup, and returns how many calls it can make */
+    private static int _prepare(BatchSetup setup, int calls) throws Throwable {
+        return (setup == null) ? calls : setup.prepare(calls);
+    }
+}
@@ -1,17 +1,25 @@
 package com.slc.tools.runners;
 
 import java.io.IOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.stream.Stream;
 
 import com.slc.tools.annotations.BenchmarkSuite;
 import com.slc.tools.annotations.Benchmarkable;
 import com.slc.tools.annotations.Frequency;
+import com.slc.tools.annotations.Level;
 import com.slc.tools.annotations.OutputType;
 import com.slc.tools.util.BenchmarkStats;
+import com.slc.tools.util.InputSource;
 import com.slc.tools.util.Jsonifier;
+import com.slc.tools.util.StreamingJsonifier;
 
 public class ClassRunner {
 
@@ -35,77 +43,316 @@ public class ClassRunner {
      */
     public static <C> List<BenchmarkStats> runBenchmarks(Class<C> clazz, List<?>... inputs) 
                                     throws IOException {
-        Jsonifier jsonifier = Jsonifier.getJsonifier(clazz);
-        BenchmarkSuite classAnno = clazz.getAnnotation(BenchmarkSuite.class);
-        if (classAnno == null) {
-            classAnno = DefaultSettings.class.getAnnotation(BenchmarkSuite.class);
+        return runBenchmarks(clazz, SuiteSettings.from(getSuiteAnnotation(clazz)), inputs);
+    }
+
+    /**
+     * Runs all of the `@Benchmarkable` methods written in a given class, overriding the class's suite-wide settings.
+     * 
+     * <p> If <code>suiteSettings.forks()</code> is greater than zero, each method is run that many times, each time in
+     * a fresh child JVM, and the results for each input are combined across forks. This keeps JIT profiles, GC and
+     * heap state from leaking between methods, at the cost of starting a JVM per fork. Inputs must be Serializable.
+     * 
+     * <p> If <code>suiteSettings.threads()</code> is greater than one, each (method, input) pair is run as a separate
+     * unit on a pool of that many workers. Units that share a target instance (from ON_INIT or PER_METHOD) still run
+     * one at a time. Results are always reported in the same order as a single-threaded run.
+     * 
+     * <p> The class's <code>@Setup</code> and <code>@TearDown</code> hooks all run with the clock stopped: TRIAL
+     * hooks around the whole suite (or around each fork), METHOD hooks around each method, SIZE hooks around each
+     * input, and INVOCATION hooks around every single call. Inputs to a method with METHOD hooks are run one at a
+     * time, even in parallel, so that they all fall between its setup and teardown.
+     * @param <C> The class that clazz represents (i.e. the class containing `@Benchmarkable` methods)
+     * @param clazz The class containing the Benchmarkable methods you want to run
+     * @param suiteSettings The fork and threading settings to use instead of the class's own
+     * @param inputs One stream of data per Benchmarkable method in clazz, matching the alphabetical order of the methods in clazz.
+     * @return The results of methods with OutputType.RETURN; may be empty
+     * @throws IOException When trying to output to JSON file, but the location is invalid or the file cannot be edited
+     */
+    public static <C> List<BenchmarkStats> runBenchmarks(Class<C> clazz, SuiteSettings suiteSettings, List<?>... inputs) 
+                                    throws IOException {
+        InputSource<?>[] sources = new InputSource<?>[inputs.length];
+        for (int i = 0; i < inputs.length; i++) {
+            sources[i] = (inputs[i] == null) ? null : InputSource.of(inputs[i]);
         }
+        return runBenchmarks(clazz, suiteSettings, sources);
+    }
+
+    /**
+     * Runs all of the `@Benchmarkable` methods written in a given class, creating each input only when it's about to be
+     * benchmarked. With a source from <code>InputSource.bySize()</code>, only one input is in memory at a time (or one
+     * per worker thread), however large the sweep gets; each becomes garbage as soon as its benchmark finishes.
+     * Sources are matched up with methods in the same way as Lists.
+     * @param <C> The class that clazz represents (i.e. the class containing `@Benchmarkable` methods)
+     * @param clazz The class containing the Benchmarkable methods you want to run
+     * @param inputs One source of data per Benchmarkable method in clazz, matching the alphabetical order of the methods in clazz.
+     * @return The results of methods with OutputType.RETURN; may be empty
+     * @throws IOException When trying to output to JSON file, but the location is invalid or the file cannot be edited
+     */
+    public static <C> List<BenchmarkStats> runBenchmarks(Class<C> clazz, InputSource<?>... inputs)
+                                    throws IOException {
+        return runBenchmarks(clazz, SuiteSettings.from(getSuiteAnnotation(clazz)), inputs);
+    }
+
+    /**
+     * Runs all of the `@Benchmarkable` methods written in a given class, creating each input only when it's about to be
+     * benchmarked, and overriding the class's suite-wide settings. Forked runs still create every input up front,
+     * since they're all sent to each child JVM at once.
+     * @param <C> The class that clazz represents (i.e. the class containing `@Benchmarkable` methods)
+     * @param clazz The class containing the Benchmarkable methods you want to run
+     * @param suiteSettings The fork and threading settings to use instead of the class's own
+     * @param inputs One source of data per Benchmarkable method in clazz, matching the alphabetical order of the methods in clazz.
+     * @return The results of methods with OutputType.RETURN; may be empty
+     * @throws IOException When trying to output to JSON file, but the location is invalid or the file cannot be edited
+     * @throws IllegalArgumentException If one of the class's hooks can't be called
+     * @throws IllegalStateException If a TRIAL hook fails
+     */
+    public static <C> List<BenchmarkStats> runBenchmarks(Class<C> clazz, SuiteSettings suiteSettings,
+                                    InputSource<?>... inputs) throws IOException {
+        BenchmarkSuite classAnno = getSuiteAnnotation(clazz);
+        LifecycleHooks hooks = LifecycleHooks.of(clazz);
 
         List<BenchmarkStats> resultsList = new ArrayList<>();
         Frequency whenToInit = classAnno.whenToInstantiate();
         C target = null;
+        InstancePool<C> pool = null;
         OutputType outputTo = classAnno.outputTo();
 
-        if (whenToInit == Frequency.ON_INIT) {
+        if (whenToInit == Frequency.ON_INIT && !suiteSettings.isForked()) {
             target = createNewInstance(clazz);
         }
-        
-        List<Method> methods = _getBenchmarkMethods(clazz);
-        if (methods.size() < inputs.length) {
-            System.out.println("WARNING: Too many inputs ("+inputs.length+") provided for "
-                                +"number of methods ("+methods.size()+", skipping extras)");
-        }
-        for (int i = 0; i < methods.size(); i++) {
-            Method method = methods.get(i);
-            Stream<?> dataToTest = _getDataStreamAtIndex(inputs, i);
-            Stream<BenchmarkStats> results;
-            if (whenToInit == Frequency.PER_METHOD) {
-                target = createNewInstance(clazz);
+        Object trialTarget = target;
+        if (!suiteSettings.isForked()) {
+            // Forked runs set up the trial in each child JVM instead
+            _runTrialHooks(hooks, true, trialTarget);
+        }
+        try {
+            List<Method> methods = getBenchmarkMethods(clazz);
+            if (methods.size() < inputs.length) {
+                System.out.println("WARNING: Too many inputs ("+inputs.length+") provided for "
+                                    +"number of methods ("+methods.size()+", skipping extras)");
             }
 
-            try {
-                MethodRunner<C> methodRunner = new MethodRunner<C>(method, target, dataToTest);
-                results = methodRunner.benchmark();
-            } catch (Exception e) {
-                printSkipMessage(method, e);
-                continue;
+            // Start every method before reporting any of them, so a parallel scheduler can run them all at once
+            List<Method> startedMethods = new ArrayList<>();
+            List<CompletableFuture<Stream<BenchmarkStats>>> pendingResults = new ArrayList<>();
+            try (SuiteScheduler scheduler = suiteSettings.isParallel() ? new SuiteScheduler(suiteSettings) : null;
+                 StreamingJsonifier jsonifier = new StreamingJsonifier(Jsonifier.getSavePath(clazz))) {
+                for (int i = 0; i < methods.size(); i++) {
+                    Method method = methods.get(i);
+                    InputSource<?> dataToTest = _getDataAtIndex(inputs, i);
+                    if (whenToInit == Frequency.PER_METHOD && !suiteSettings.isForked()) {
+                        target = createNewInstance(clazz);
+                    }
+
+                    try {
+                        if (target == null && pool == null && !suiteSettings.isForked()
+                                && !Modifier.isStatic(method.getModifiers())) {
+                            // PER_SIZE_VALUE or NEVER: every input gets its own target, created outside the timed loop
+                            pool = InstancePool.forSuite(clazz);
+                        }
+                        pendingResults.add(_startMethod(clazz, method, target, pool, hooks, dataToTest, suiteSettings,
+                                                        scheduler));
+                        startedMethods.add(method);
+                    } catch (Exception e) {
+                        printSkipMessage(method, e);
+                    }
+                }
+
+                for (int i = 0; i < startedMethods.size(); i++) {
+                    Stream<BenchmarkStats> results;
+                    try {
+                        results = pendingResults.get(i).join();
+                    } catch (CompletionException e) {
+                        Throwable cause = (e.getCause() == null) ? e : e.getCause();
+                        printSkipMessage(startedMethods.get(i), (cause instanceof Exception) ? (Exception) cause : e);
+                        continue;
+                    }
+
+                    switch (outputTo) {
+                        case PRINT:
+                            results.forEach((result) -> {
+                                System.out.println(result);
+                            });
+                            break;
+                        case JSON:
+                            jsonifier.append(results);
+                            break;
+                        case RETURN:
+                            results.forEach(resultsList::add);
+                            break;
+                    }
+                }
             }
+        } finally {
+            if (!suiteSettings.isForked()) {
+                _runTrialHooks(hooks, false, trialTarget);
+            }
+        }
+        return resultsList;
+    }
 
-            switch (outputTo) {
-                case PRINT:
-                    results.forEach((result) -> {
-                        System.out.println(result);
-                    });
-                    break;
-                case JSON:
-                    jsonifier.addToJson(results);
-                    break;
-                case RETURN:
-                    results.forEach(resultsList::add);
-                    break;
+    private static void _runTrialHooks(LifecycleHooks hooks, boolean isSetup, Object target) {
+        try {
+            if (isSetup) {
+                hooks.setUp(Level.TRIAL, target, null);
+            } else {
+                hooks.tearDown(Level.TRIAL, target, null);
             }
+        } catch (InvocationTargetException e) {
+            throw new IllegalStateException(e.getMessage(), e.getCause());
         }
-        if (jsonifier.size() > 0) {
-            jsonifier.jsonify();
+    }
+
+    /**
+     * Starts benchmarking one method. Without a scheduler, in-process results are a lazy Stream that runs when it's
+     * consumed, exactly as before; with one, every input is submitted to it as a separate unit straight away, and
+     * each unit creates its own input when it starts.
+     * @param clazz The class containing the method
+     * @param method The method to benchmark
+     * @param target The instance to call it on, or null
+     * @param pool Where to take a target from for each input when there's no shared target, or null
+     * @param hooks The class's lifecycle hooks
+     * @param dataToTest The inputs to call it with, or null if it takes no arguments
+     * @param suiteSettings The fork settings to use
+     * @param scheduler The scheduler to submit units to, or null to run serially
+     * @return A future that completes with the method's results, in input order
+     * @throws Exception If the method is invalid, or (when running serially) its forked JVMs fail
+     */
+    private static <C> CompletableFuture<Stream<BenchmarkStats>> _startMethod(Class<C> clazz, Method method, C target,
+                                    InstancePool<C> pool, LifecycleHooks hooks, InputSource<?> dataToTest,
+                                    SuiteSettings suiteSettings, SuiteScheduler scheduler) throws Exception {
+        if (suiteSettings.isForked()) {
+            if (scheduler == null) {
+                return CompletableFuture.completedFuture(ForkedRunner.runInForks(clazz, method, _toList(dataToTest), suiteSettings));
+            }
+            return scheduler.submit(null, () -> ForkedRunner.runInForks(clazz, method, _toList(dataToTest), suiteSettings));
         }
-        return resultsList;
+
+        MethodRunner<C> methodRunner = new MethodRunner<C>(method, target, pool, null);
+        if (scheduler == null) {
+            Stream<BenchmarkStats> results = (dataToTest == null) ? methodRunner.benchmark()
+                                                : _benchmarkEach(methodRunner, dataToTest);
+            if (hooks.has(Level.METHOD)) {
+                results = _withMethodHooks(method, hooks, target, results);
+            }
+            return CompletableFuture.completedFuture(results);
+        }
+
+        List<CompletableFuture<BenchmarkStats>> unitResults = new ArrayList<>();
+        Object lane = methodRunner.getSharedTarget();
+        CompletableFuture<Object> setUp = CompletableFuture.completedFuture(null);
+        if (hooks.has(Level.METHOD)) {
+            // Sharing a lane keeps every input after the setup and before the teardown
+            lane = (target != null) ? target : methodRunner;
+            setUp = scheduler.submit(lane, () -> {
+                hooks.setUp(Level.METHOD, target, null);
+                return null;
+            });
+        }
+        CompletableFuture<Object> methodSetUp = setUp;
+        if (dataToTest == null) {
+            unitResults.add(scheduler.submit(lane, () -> {
+                methodSetUp.join();
+                return methodRunner.benchmarkOne(MethodRunner.NO_ARGS_PLACEHOLDER);
+            }));
+        } else if (dataToTest instanceof OneShotSource) {
+            // A plain Stream can only be read in order, so its inputs have to exist before they're handed out
+            Object inputLane = lane;
+            dataToTest.stream().forEach((Object input) -> {
+                unitResults.add(scheduler.submit(inputLane, () -> {
+                    methodSetUp.join();
+                    return methodRunner.benchmarkOne(input);
+                }));
+            });
+        } else {
+            for (int i = 0; i < dataToTest.size(); i++) {
+                int index = i;
+                unitResults.add(scheduler.submit(lane, () -> {
+                    methodSetUp.join();
+                    return _benchmarkAt(methodRunner, dataToTest, index);
+                }));
+            }
+        }
+        List<CompletableFuture<?>> units = new ArrayList<>(unitResults);
+        if (hooks.has(Level.METHOD)) {
+            units.add(scheduler.submit(lane, () -> {
+                methodSetUp.join();
+                hooks.tearDown(Level.METHOD, target, null);
+                return null;
+            }));
+        }
+        return CompletableFuture.allOf(units.toArray(new CompletableFuture<?>[0]))
+                                .thenApply((ignored) -> unitResults.stream().map(CompletableFuture::join));
+    }
+
+    /**
+     * Wraps a method's lazy results so that its METHOD-level setup runs just before the first input is benchmarked,
+     * and its teardown just after the last. If the setup fails, the method is skipped.
+     */
+    private static Stream<BenchmarkStats> _withMethodHooks(Method method, LifecycleHooks hooks, Object target,
+                                    Stream<BenchmarkStats> results) {
+        boolean[] isSetUp = new boolean[1];
+        return Stream.of(0, 1, 2).flatMap((Integer step) -> {
+            if (step == 1) {
+                return isSetUp[0] ? results : Stream.empty();
+            }
+            try {
+                if (step == 0) {
+                    hooks.setUp(Level.METHOD, target, null);
+                    isSetUp[0] = true;
+                } else if (isSetUp[0]) {
+                    hooks.tearDown(Level.METHOD, target, null);
+                }
+            } catch (InvocationTargetException | RuntimeException e) {
+                printSkipMessage(method, e);
+            }
+            return Stream.empty();
+        });
+    }
+
+    /** Benchmarks every input from the source in order, releasing each one as soon as it's been benchmarked */
+    private static <T> Stream<BenchmarkStats> _benchmarkEach(MethodRunner<?> methodRunner, InputSource<T> source) {
+        return source.stream().map((T input) -> _benchmarkAndRelease(methodRunner, source, input));
+    }
+
+    private static <T> BenchmarkStats _benchmarkAt(MethodRunner<?> methodRunner, InputSource<T> source, int index) {
+        return _benchmarkAndRelease(methodRunner, source, source.get(index));
+    }
+
+    private static <T> BenchmarkStats _benchmarkAndRelease(MethodRunner<?> methodRunner, InputSource<T> source,
+                                    T input) {
+        try {
+            return methodRunner.benchmarkOne(input);
+        } finally {
+            source.release(input);
+        }
+    }
+
+    private static List<?> _toList(InputSource<?> source) {
+        return (source == null) ? null : source.stream().toList();
     }
 
     /**
      * Runs all of the `@Benchmarkable` methods written in a given class and overrides the class's output type.
+     * Streams are read lazily, so each input is only created when its benchmark is about to run (unless the
+     * last Stream has to be shared by several methods).
      * @param <C> The class that clazz represents (i.e. the class containing `@Benchmarkable` methods)
      * @param clazz The class containing the Benchmarkable methods you want to run
-     * @param dataToTest A list of data to run the benchmark methods on
+     * @param inputs One stream of data per Benchmarkable method in clazz, matching the alphabetical order of the methods in clazz.
      * @return The results of methods with OutputType.RETURN; may be empty
      * @throws IOException When the given JSON file location is invalid, or the file cannot be written to
      */
     public static <C> List<BenchmarkStats> runBenchmarks(Class<C> clazz, Stream<?>... inputs) 
                                     throws IOException {
-        List<?>[] inputsAsList = new List<?>[inputs.length];
+        // Each Stream is passed straight through, so its inputs are created as they're benchmarked. A Stream can
+        // only be read once, though, so if the last one is shared by the extra methods it has to be kept in memory.
+        int methodCount = getBenchmarkMethods(clazz).size();
+        InputSource<?>[] sources = new InputSource<?>[inputs.length];
         for (int i = 0; i < inputs.length; i++) {
-            inputsAsList[i] = inputs[i].toList();
+            boolean isShared = i == inputs.length - 1 && methodCount > inputs.length;
+            sources[i] = isShared ? InputSource.of(inputs[i].toList()) : new OneShotSource<>(inputs[i]);
         }
-        return runBenchmarks(clazz, inputsAsList);
+        return runBenchmarks(clazz, sources);
     }
     
     /**
@@ -114,7 +361,7 @@ public class ClassRunner {
      * which may or may not be marked with BenchmarkSuite
      * @return A List of the Benchmarkable methods, which may be empty
      */
-    private static List<Method> _getBenchmarkMethods(Class<?> clazz) {
+    static List<Method> getBenchmarkMethods(Class<?> clazz) {
         Method[] classMethods = clazz.getDeclaredMethods();
         List<Method> annotatedMethods = new ArrayList<>();
         for (Method method : classMethods) {
@@ -128,35 +375,46 @@ public class ClassRunner {
     }
 
     /**
-     * Return the nth element of inputs as a stream (via the <code>stream()</code> method), with error handling.
+     * Return the nth element of inputs, with error handling.
      * @param inputs All the inputs to search
      * @param n The index to look at
-     * @return inputs[n] as a stream, or if n >= inputs.length, the final element of inputs as a stream, or null if that specified element is null
+     * @return inputs[n], or if n >= inputs.length, the final element of inputs, or null if that specified element is null
      */
-    private static Stream<?> _getDataStreamAtIndex(List<?>[] inputs, int n) {
-        List<?> list;
+    private static InputSource<?> _getDataAtIndex(InputSource<?>[] inputs, int n) {
         if (n < inputs.length) {
-            list = inputs[n];
-        } else {
-            list = inputs[inputs.length - 1];
+            return inputs[n];
         }
+        return inputs[inputs.length - 1];
+    }
 
-        if (list != null) {
-            return list.stream();
+    /**
+     * Reads the class's <code>@BenchmarkSuite</code> annotation, or the default settings if it isn't annotated
+     * @param clazz The class containing Benchmarkable methods
+     * @return The annotation to use for clazz; never null
+     */
+    static BenchmarkSuite getSuiteAnnotation(Class<?> clazz) {
+        BenchmarkSuite classAnno = clazz.getAnnotation(BenchmarkSuite.class);
+        if (classAnno == null) {
+            classAnno = DefaultSettings.class.getAnnotation(BenchmarkSuite.class);
         }
-        return null;
+        return classAnno;
     }
 
     /**
-     * Create a new instance of clazz using its no-args constructor, or return null if none found
+     * Create a new instance of clazz using its no-args constructor (through a handle that's only looked up once per
+     * class), or return null if none found
      * @param <T> The type you want to create a new instance of
      * @param clazz A Class object representing T
      * @return A new instance of type T, or null if no zero-args constructor was found
      */
     static <T> T createNewInstance(Class<T> clazz) {
         try {
-            return clazz.getConstructor().newInstance();
-        } catch (Exception e) {
+            MethodHandle constructor = InstancePool.constructorOf(clazz);
+            if (constructor == null) {
+                throw new NoSuchMethodException(clazz.getName()+".<init>()");
+            }
+            return clazz.cast((Object) constructor.invokeExact());
+        } catch (Throwable e) {
             // Thrown when wrong arguments are passed to constructor, or no such constructor exists;
             // in this case, it means no zero-args constructor is present and the benchmark was invalid
             System.out.print("WARNING: Unable to instantiate object of type "+clazz.getSimpleName());
@@ -178,6 +436,35 @@ public class ClassRunner {
         e.printStackTrace();
     }
 
+    /** Wraps a Stream that can only be read once, in order; only <code>stream()</code> is supported */
+    private static final class OneShotSource<T> implements InputSource<T> {
+        private Stream<T> _stream;
+
+        OneShotSource(Stream<T> stream) {
+            _stream = stream;
+        }
+
+        @Override
+        public int size() {
+            throw new UnsupportedOperationException("A Stream's size isn't known until it's been read");
+        }
+
+        @Override
+        public T get(int index) {
+            throw new UnsupportedOperationException("A Stream can only be read in order");
+        }
+
+        @Override
+        public Stream<T> stream() {
+            if (_stream == null) {
+                throw new IllegalStateException("This Stream has already been read");
+            }
+            Stream<T> stream = _stream;
+            _stream = null;
+            return stream;
+        }
+    }
+
     /** Just used to store the default BenchmarkSuite annotation for reference */
     @BenchmarkSuite
     private static class DefaultSettings {    }
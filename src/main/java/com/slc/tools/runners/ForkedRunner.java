@@ -0,0 +1,161 @@
+package com.slc.tools.runners;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.ProcessBuilder.Redirect;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import com.slc.tools.annotations.Frequency;
+import com.slc.tools.annotations.Level;
+import com.slc.tools.util.BenchmarkStats;
+
+/**
+ * Runs a single Benchmarkable method in a child JVM, so that JIT profiles, GC state and heap contents
+ * can't leak from one method into the next. The parent writes the method's inputs to the child's stdin,
+ * and the child streams one serialized BenchmarkStats back over its stdout as soon as each one is finished.
+ * Anything the benchmark itself prints is sent to the child's stderr instead, so it can't corrupt the stream.
+ * Each child is a trial of its own, so it runs the class's TRIAL hooks, as well as its METHOD hooks.
+ */
+public final class ForkedRunner {
+
+    private ForkedRunner() {    }
+
+    /**
+     * Entry point for the child JVM; not meant to be called directly
+     * @param args The binary name of the benchmark class, the method's name, and the method's type descriptor
+     * @throws Exception If the class or method can't be found, the inputs can't be read, or a hook fails
+     */
+    public static void main(String[] args) throws Exception {
+        PrintStream resultPipe = System.out;
+        System.setOut(System.err);
+
+        Class<?> clazz = Class.forName(args[0]);
+        MethodType methodType = MethodType.fromMethodDescriptorString(args[2], clazz.getClassLoader());
+        Method method = clazz.getDeclaredMethod(args[1], methodType.parameterArray());
+
+        List<?> inputs;
+        try (ObjectInputStream fromParent = new ObjectInputStream(new BufferedInputStream(System.in))) {
+            inputs = (List<?>) fromParent.readObject();
+        }
+
+        Object target = null;
+        Frequency whenToInit = ClassRunner.getSuiteAnnotation(clazz).whenToInstantiate();
+        if (whenToInit == Frequency.ON_INIT || whenToInit == Frequency.PER_METHOD) {
+            target = ClassRunner.createNewInstance(clazz);
+        }
+
+        Stream<?> dataToTest = (inputs == null) ? null : inputs.stream();
+        MethodRunner<Object> methodRunner = new MethodRunner<>(method, target, dataToTest);
+        LifecycleHooks hooks = LifecycleHooks.of(clazz);
+        Object trialTarget = (whenToInit == Frequency.ON_INIT) ? target : null;
+        hooks.setUp(Level.TRIAL, trialTarget, null);
+        try {
+            hooks.setUp(Level.METHOD, target, null);
+            try (ObjectOutputStream toParent = new ObjectOutputStream(new BufferedOutputStream(resultPipe))) {
+                Iterator<BenchmarkStats> results = methodRunner.benchmark().iterator();
+                while (results.hasNext()) {
+                    toParent.writeObject(results.next());
+                    toParent.flush();
+                }
+            } finally {
+                hooks.tearDown(Level.METHOD, target, null);
+            }
+        } finally {
+            hooks.tearDown(Level.TRIAL, trialTarget, null);
+        }
+    }
+
+    /**
+     * Runs the method in <code>settings.forks()</code> separate child JVMs, one after another,
+     * and combines the results for each input across all of the forks.
+     * @param clazz The class containing the method
+     * @param method The Benchmarkable method to run
+     * @param inputs The inputs to run it on, or null if it takes no arguments; must be Serializable
+     * @param settings How many forks to run, and which flags to give each child JVM
+     * @return One combined BenchmarkStats per input, in the order provided
+     * @throws IOException If the inputs can't be serialized, or a child JVM fails
+     * @throws InterruptedException If interrupted while waiting for a child JVM to finish
+     */
+    static Stream<BenchmarkStats> runInForks(Class<?> clazz, Method method, List<?> inputs, SuiteSettings settings)
+                                    throws IOException, InterruptedException {
+        byte[] serializedInputs = _serialize(inputs);
+        List<List<BenchmarkStats>> allForks = new ArrayList<>();
+        for (int fork = 0; fork < settings.forks(); fork++) {
+            allForks.add(_runOneFork(clazz, method, serializedInputs, settings));
+        }
+
+        int resultCount = allForks.get(0).size();
+        List<BenchmarkStats> combined = new ArrayList<>();
+        for (int i = 0; i < resultCount; i++) {
+            List<BenchmarkStats> samePoint = new ArrayList<>();
+            for (List<BenchmarkStats> forkResults : allForks) {
+                if (i < forkResults.size()) {
+                    samePoint.add(forkResults.get(i));
+                }
+            }
+            combined.add(BenchmarkStats.combine(samePoint));
+        }
+        return combined.stream();
+    }
+
+    private static List<BenchmarkStats> _runOneFork(Class<?> clazz, Method method, byte[] serializedInputs,
+                                    SuiteSettings settings) throws IOException, InterruptedException {
+        List<String> command = new ArrayList<>();
+        command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+        command.addAll(settings.jvmArgs());
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(ForkedRunner.class.getName());
+        command.add(clazz.getName());
+        command.add(method.getName());
+        command.add(MethodType.methodType(method.getReturnType(), method.getParameterTypes()).toMethodDescriptorString());
+
+        Process process = new ProcessBuilder(command).redirectError(Redirect.INHERIT).start();
+        try (OutputStream toChild = process.getOutputStream()) {
+            toChild.write(serializedInputs);
+        } catch (IOException e) {
+            process.destroy();
+            throw e;
+        }
+
+        List<BenchmarkStats> results = new ArrayList<>();
+        try (ObjectInputStream fromChild = new ObjectInputStream(new BufferedInputStream(process.getInputStream()))) {
+            while (true) {
+                results.add((BenchmarkStats) fromChild.readObject());
+            }
+        } catch (EOFException e) {
+            // The child closes the stream when it's done, so this is the normal way to finish
+        } catch (ClassNotFoundException e) {
+            process.destroy();
+            throw new IOException("Unexpected object from forked JVM", e);
+        }
+
+        int exitCode = process.waitFor();
+        if (exitCode != 0) {
+            throw new IOException("Forked JVM for method "+method.getName()+" exited with code "+exitCode);
+        }
+        return results;
+    }
+
+    /** Serializes the inputs up front, so a non-Serializable input fails before any JVM is launched */
+    private static byte[] _serialize(List<?> inputs) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject((inputs == null) ? null : new ArrayList<>(inputs));
+        }
+        return bytes.toByteArray();
+    }
+}
@@ -0,0 +1,92 @@
+package com.slc.tools.runners;
+
+import java.util.Arrays;
+import java.util.function.UnaryOperator;
+
+/**
+ * Hands out a fresh copy of the input to every call, for benchmarks that modify their input. Before each batch,
+ * BenchmarkLoop asks the pool to make one copy per call while the clock is stopped, so copying is never timed;
+ * during the batch, each call just takes the next copy from an array.
+ *
+ * <p> Copies are limited both in number and in the bytes it took to allocate them, so a large input (say, a
+ * 100 MB array) only gets as many copies per batch as fit in the byte budget, down to a single copy. If the JVM
+ * can't count allocated bytes, every batch gets a single copy, since there's no telling how large they are.
+ *
+ * <p> A pool belongs to a single thread.
+ */
+final class InputPool<T> implements BenchmarkLoop.BatchSetup {
+    /** Limits how many copies a batch can have, even if the loop asks for a very large one */
+    static final int MAX_COPIES = 256;
+    /** Limits how much memory a batch's copies can take, unless a single copy is larger than this by itself */
+    static final long DEFAULT_BYTE_BUDGET = Math.min(64L << 20, Runtime.getRuntime().maxMemory() / 8);
+
+    private final T _ORIGINAL;
+    private final UnaryOperator<T> _COPIER;
+    private final long _BYTE_BUDGET;
+    private final Object[] _COPIES;
+    private int _next;
+    private long _bytesAllocated;
+
+    /**
+     * @param original The input to copy; it's never passed to the benchmark itself
+     * @param copier A function returning an independent copy of its argument
+     */
+    InputPool(T original, UnaryOperator<T> copier) {
+        this(original, copier, DEFAULT_BYTE_BUDGET);
+    }
+
+    /**
+     * @param original The input to copy; it's never passed to the benchmark itself
+     * @param copier A function returning an independent copy of its argument
+     * @param byteBudget How many bytes a batch's copies may take to allocate, in total
+     */
+    InputPool(T original, UnaryOperator<T> copier, long byteBudget) {
+        _ORIGINAL = original;
+        _COPIER = copier;
+        _BYTE_BUDGET = byteBudget;
+        _COPIES = new Object[MAX_COPIES];
+    }
+
+    @Override
+    public int prepare(int calls) {
+        // Release last batch's copies first, so they can be garbage collected before the new ones are made
+        Arrays.fill(_COPIES, null);
+        long bytesBefore = MemoryProbe.currentThreadAllocatedBytes();
+        int wanted = Math.max(1, Math.min(calls, MAX_COPIES));
+        int ready = 0;
+        long bytesAfter = bytesBefore;
+        while (ready < wanted) {
+            _COPIES[ready++] = _COPIER.apply(_ORIGINAL);
+            bytesAfter = MemoryProbe.currentThreadAllocatedBytes();
+            if (bytesBefore < 0 || bytesAfter < 0 || bytesAfter - bytesBefore >= _BYTE_BUDGET) {
+                break;
+            }
+        }
+        _next = 0;
+        _bytesAllocated = (bytesBefore < 0 || bytesAfter < 0 || _bytesAllocated < 0)
+                            ? -1 : _bytesAllocated + bytesAfter - bytesBefore;
+        return ready;
+    }
+
+    @Override
+    public long bytesAllocated() {
+        return _bytesAllocated;
+    }
+
+    /**
+     * @param index Which of this batch's calls to look at
+     * @return The copy that call will take, without taking it
+     */
+    @SuppressWarnings("unchecked")
+    T peek(int index) {
+        return (T) _COPIES[index];
+    }
+
+    /**
+     * @return The next fresh copy; must be called at most once per call prepared
+     */
+    @SuppressWarnings("unchecked")
+    T take() {
+        return (T) _COPIES[_next++];
+    }
+}
@@ -0,0 +1,119 @@
+package com.slc.tools.runners;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.concurrent.ConcurrentLinkedDeque;
+
+import com.slc.tools.annotations.BenchmarkSuite;
+
+/**
+ * Creates the objects that instance methods are called on, when a suite doesn't share one target between every
+ * input (i.e. <code>PER_SIZE_VALUE</code>, or <code>NEVER</code>). Each target is created through a cached
+ * constructor handle before its benchmark starts and handed back once it finishes, so neither reflection nor
+ * construction is ever timed.
+ *
+ * <p> With <code>poolInstances</code> turned on, targets are reused instead of being thrown away after each size:
+ * a target that's handed back is reset (by calling the suite's <code>resetMethod</code>, if it has one) before it's
+ * taken again. That way old targets never pile up as garbage for the collector to clean up while a later size is
+ * being measured. Pools are thread-safe, so a parallel suite can have several targets out at once.
+ */
+final class InstancePool<C> {
+    /** Every class's public no-args constructor, as <code>()Object</code>, or null if it doesn't have one */
+    private static final ClassValue<MethodHandle> _CONSTRUCTORS = new ClassValue<>() {
+        @Override
+        protected MethodHandle computeValue(Class<?> clazz) {
+            try {
+                return MethodHandles.publicLookup().findConstructor(clazz, MethodType.methodType(void.class))
+                                    .asType(MethodType.methodType(Object.class));
+            } catch (NoSuchMethodException | IllegalAccessException e) {
+                return null;
+            }
+        }
+    };
+
+    private final Class<C> _CLASS;
+    private final MethodHandle _CONSTRUCTOR;
+    private final MethodHandle _RESET;
+    private final boolean _IS_POOLED;
+    private final ConcurrentLinkedDeque<C> _IDLE = new ConcurrentLinkedDeque<>();
+
+    /**
+     * @param clazz The class to create targets of
+     * @param isPooled Whether to reuse targets once they're handed back
+     * @param resetMethod The name of a public no-args method to call on a reused target before it's taken again,
+     * or an empty String to reuse targets as they are
+     * @throws IllegalArgumentException If the class has no public no-args constructor, or there's no such reset method
+     */
+    InstancePool(Class<C> clazz, boolean isPooled, String resetMethod) throws IllegalArgumentException {
+        _CLASS = clazz;
+        _CONSTRUCTOR = constructorOf(clazz);
+        if (_CONSTRUCTOR == null) {
+            throw new IllegalArgumentException("Unable to instantiate "+clazz.getSimpleName()
+                                                +"; make sure it's public and has a public no-args constructor");
+        }
+        _IS_POOLED = isPooled;
+        _RESET = resetMethod.isEmpty() ? null : _findReset(clazz, resetMethod);
+    }
+
+    /**
+     * Creates a pool following the class's <code>@BenchmarkSuite</code> settings
+     * @param clazz The class to create targets of
+     * @return A new pool, with no targets created yet
+     * @throws IllegalArgumentException If the class has no public no-args constructor, or no such reset method
+     */
+    static <C> InstancePool<C> forSuite(Class<C> clazz) throws IllegalArgumentException {
+        BenchmarkSuite suite = ClassRunner.getSuiteAnnotation(clazz);
+        return new InstancePool<>(clazz, suite.poolInstances(), suite.resetMethod());
+    }
+
+    /**
+     * @param clazz Any class
+     * @return A handle to the class's public no-args constructor, of type <code>()Object</code>, or null if it
+     * doesn't have one; looked up only once per class
+     */
+    static MethodHandle constructorOf(Class<?> clazz) {
+        return _CONSTRUCTORS.get(clazz);
+    }
+
+    /**
+     * @return An idle target, reset first if it's been used before, or a new one if none are idle
+     * @throws Throwable Whatever the constructor or reset method throws
+     */
+    C take() throws Throwable {
+        C target = _IS_POOLED ? _IDLE.pollFirst() : null;
+        if (target == null) {
+            return _CLASS.cast((Object) _CONSTRUCTOR.invokeExact());
+        }
+        if (_RESET != null) {
+            _RESET.invokeExact((Object) target);
+        }
+        return target;
+    }
+
+    /**
+     * Hands back a target once its benchmark has finished. Without pooling, the target is simply dropped.
+     * @param target A target from <code>take()</code>
+     */
+    void release(C target) {
+        if (_IS_POOLED && target != null) {
+            _IDLE.offerFirst(target);
+        }
+    }
+
+    private static MethodHandle _findReset(Class<?> clazz, String name) {
+        try {
+            Method method = clazz.getMethod(name);
+            if (Modifier.isStatic(method.getModifiers())) {
+                throw new NoSuchMethodException();
+            }
+            return MethodHandles.publicLookup().unreflect(method)
+                                .asType(MethodType.methodType(void.class, Object.class));
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            throw new IllegalArgumentException("No public no-args instance method "+name+" in "
+                                                +clazz.getSimpleName()+" to reset pooled instances with", e);
+        }
+    }
+}
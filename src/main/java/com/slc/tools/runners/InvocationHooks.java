@@ -0,0 +1,95 @@
+package com.slc.tools.runners;
+
+import java.util.Arrays;
+
+import com.slc.tools.annotations.Level;
+
+/**
+ * Runs a suite's INVOCATION-level hooks around every call, while the clock is stopped. BenchmarkLoop asks for a
+ * new batch after each one finishes, so this tears down the last batch's calls and sets up the next batch's, and
+ * none of the hooks' cost is counted. Hooks are given the fresh copy that their call will receive, if there is one,
+ * and otherwise the input itself. The loop doesn't ask for another batch after its last one, so
+ * <code>finish()</code> tears the last batch down.
+ *
+ * <p> When the benchmark takes fresh inputs and every INVOCATION hook takes the input, each hook is assumed to
+ * prepare just its own call's copy, so a whole batch of copies is set up ahead of time and timed together. Any
+ * other hook might change state that every call shares, so each call's setup has to come straight before it, and
+ * every batch is cut down to one call, whatever size the loop asks for. Like an InputPool, this belongs to a single
+ * thread.
+ */
+final class InvocationHooks implements BenchmarkLoop.BatchSetup {
+    private final LifecycleHooks _HOOKS;
+    private final Object _TARGET;
+    private final Object _INPUT;
+    private final InputPool<?> _INPUTS;
+    private final boolean _IS_BATCHED;
+    /** The inputs that the current batch's hooks were set up with, so each is torn down with the same one */
+    private final Object[] _SET_UP;
+    private int _setUpCount;
+    private long _bytesAllocated;
+
+    /**
+     * @param hooks The suite's hooks
+     * @param target The object the benchmark is called on, or null if it's static
+     * @param input The input being benchmarked, or null if the method takes no arguments
+     * @param inputs Where the benchmark takes fresh copies of its input from, or null if it doesn't
+     */
+    InvocationHooks(LifecycleHooks hooks, Object target, Object input, InputPool<?> inputs) {
+        _HOOKS = hooks;
+        _TARGET = target;
+        _INPUT = input;
+        _INPUTS = inputs;
+        _IS_BATCHED = inputs != null && hooks.allTakeInput(Level.INVOCATION);
+        _SET_UP = new Object[_IS_BATCHED ? InputPool.MAX_COPIES : 1];
+    }
+
+    /**
+     * @return True if whole batches are set up ahead of time, or false if every call is a batch of its own
+     */
+    boolean isBatched() {
+        return _IS_BATCHED;
+    }
+
+    @Override
+    public int prepare(int calls) throws Throwable {
+        long bytesBefore = MemoryProbe.currentThreadAllocatedBytes();
+        finish();
+        int ready = 1;
+        if (_INPUTS != null) {
+            ready = _INPUTS.prepare(_IS_BATCHED ? calls : 1);
+        }
+        for (int i = 0; i < ready; i++) {
+            Object hookInput = (_INPUTS == null) ? _INPUT : _INPUTS.peek(i);
+            _HOOKS.setUp(Level.INVOCATION, _TARGET, hookInput);
+            _SET_UP[_setUpCount++] = hookInput;
+        }
+        long bytesAfter = MemoryProbe.currentThreadAllocatedBytes();
+        _bytesAllocated = (bytesBefore < 0 || bytesAfter < 0 || _bytesAllocated < 0)
+                            ? -1 : _bytesAllocated + bytesAfter - bytesBefore;
+        return ready;
+    }
+
+    /**
+     * @return How many bytes the hooks and any fresh copies have taken to allocate, or -1 if unknown
+     */
+    @Override
+    public long bytesAllocated() {
+        return _bytesAllocated;
+    }
+
+    /**
+     * Tears down every call of the last batch that was set up, if they haven't been already
+     * @throws Throwable Whatever a teardown hook throws
+     */
+    void finish() throws Throwable {
+        int count = _setUpCount;
+        _setUpCount = 0;
+        try {
+            for (int i = 0; i < count; i++) {
+                _HOOKS.tearDown(Level.INVOCATION, _TARGET, _SET_UP[i]);
+            }
+        } finally {
+            Arrays.fill(_SET_UP, 0, count, null);
+        }
+    }
+}
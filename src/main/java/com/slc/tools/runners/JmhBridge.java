@@ -0,0 +1,139 @@
+package com.slc.tools.runners;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * The single JMH benchmark that every <code>@Benchmarkable</code> method is run through by JmhRunner. JMH generates
+ * its harness at compile time, so instead of generating a benchmark per method, this one is told which method and
+ * input to call through its <code>@Param</code> fields. Each trial is one method on one input, in its own fork, so
+ * the target object is always created in a trial-level setup, whatever the suite's <code>whenToInstantiate</code>.
+ * For the same reason, the suite's own TRIAL, METHOD and SIZE hooks all run around the trial.
+ *
+ * <p> This class is only public because JMH's generated code lives in another package; use JmhRunner instead.
+ */
+@State(Scope.Benchmark)
+public class JmhBridge {
+    /** The binary name of the class holding the benchmark */
+    @Param({})
+    public String benchmarkClass;
+
+    @Param({})
+    public String methodName;
+
+    /** The method's type descriptor, to tell overloads apart */
+    @Param({})
+    public String methodDescriptor;
+
+    /** Where the serialized inputs are, one file per input, or an empty String if the method takes no arguments */
+    @Param({})
+    public String inputsDirectory;
+
+    /** Which input to call the method with and what its size is, as "index:size" */
+    @Param({})
+    public String input;
+
+    private MethodInvoker _invoker;
+    private LifecycleHooks _hooks;
+    private Object _target;
+    private Object _input;
+
+    /**
+     * Finds the method, creates its target (unless it's static), reads this trial's input and runs the suite's
+     * setup hooks
+     * @throws Exception If the method can't be found or bound, the input can't be read, or a hook fails
+     */
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        Class<?> clazz = Class.forName(benchmarkClass);
+        MethodType type = MethodType.fromMethodDescriptorString(methodDescriptor, clazz.getClassLoader());
+        Method method = clazz.getDeclaredMethod(methodName, type.parameterArray());
+        _invoker = MethodInvoker.bind(method);
+        if (!Modifier.isStatic(method.getModifiers())) {
+            _target = ClassRunner.createNewInstance(clazz);
+            if (_target == null) {
+                throw new IllegalStateException("Unable to create an instance of "+clazz.getName());
+            }
+        }
+        _input = inputsDirectory.isEmpty() ? null : readInput(Path.of(inputsDirectory), indexOf(input));
+        _hooks = LifecycleHooks.of(clazz);
+        _hooks.setUp(com.slc.tools.annotations.Level.TRIAL, _target, null);
+        _hooks.setUp(com.slc.tools.annotations.Level.METHOD, _target, null);
+        _hooks.setUp(com.slc.tools.annotations.Level.SIZE, _target, _input);
+    }
+
+    /**
+     * Runs the suite's teardown hooks, in the opposite order to their setups
+     * @throws Exception If a hook fails
+     */
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        _hooks.tearDown(com.slc.tools.annotations.Level.SIZE, _target, _input);
+        _hooks.tearDown(com.slc.tools.annotations.Level.METHOD, _target, null);
+        _hooks.tearDown(com.slc.tools.annotations.Level.TRIAL, _target, null);
+    }
+
+    /**
+     * Calls the method once, consuming whatever it returns (without boxing it) so the call can't be optimized away
+     * @throws Throwable Whatever the method throws
+     */
+    @Benchmark
+    public void call() throws Throwable {
+        _invoker.invokeAndConsume(_target, _input);
+    }
+
+    /**
+     * @param index An input's position in its list
+     * @param size The input's size, or null if it has none
+     * @return The value of the <code>input</code> parameter for that input
+     */
+    static String inputLabel(int index, Double size) {
+        return (size == null) ? String.valueOf(index) : index+":"+size;
+    }
+
+    /**
+     * @param label A value of the <code>input</code> parameter
+     * @return The input's position in its list
+     */
+    static int indexOf(String label) {
+        int colon = label.indexOf(':');
+        return Integer.parseInt((colon < 0) ? label : label.substring(0, colon));
+    }
+
+    /**
+     * @param label A value of the <code>input</code> parameter
+     * @return The input's size, or null if it has none
+     */
+    static Double sizeOf(String label) {
+        int colon = label.indexOf(':');
+        return (colon < 0) ? null : Double.valueOf(label.substring(colon + 1));
+    }
+
+    /**
+     * @param directory Where JmhRunner wrote the inputs
+     * @param index Which input to read
+     * @return The input, deserialized
+     * @throws IOException If the input can't be read
+     * @throws ClassNotFoundException If the input's class isn't on this JVM's classpath
+     */
+    static Object readInput(Path directory, int index) throws IOException, ClassNotFoundException {
+        try (ObjectInputStream in = new ObjectInputStream(new BufferedInputStream(
+                                            Files.newInputStream(directory.resolve(index+".ser"))))) {
+            return in.readObject();
+        }
+    }
+}
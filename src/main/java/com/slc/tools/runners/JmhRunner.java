@@ -0,0 +1,246 @@
+package com.slc.tools.runners;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.openjdk.jmh.results.BenchmarkResult;
+import org.openjdk.jmh.results.IterationResult;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+
+import com.slc.tools.annotations.BenchmarkSuite;
+import com.slc.tools.util.BenchmarkStats;
+import com.slc.tools.util.FormatUtils;
+import com.slc.tools.util.IterationStats;
+import com.slc.tools.util.StreamingJsonifier;
+
+/**
+ * Runs an existing <code>@BenchmarkSuite</code> class under JMH, without rewriting it, so quick results from
+ * ClassRunner can be checked against JMH's more rigorous ones. Each <code>@Benchmarkable</code> method becomes one
+ * JMH benchmark in average-time mode, and each of its inputs becomes one value of a JMH <code>@Param</code>. The
+ * annotations are mapped as follows:
+ * <ul>
+ * <li> <code>nanoTime</code>, <code>measurementIterations</code>, <code>warmupIterations</code>,
+ *      <code>warmupNanoTime</code> and <code>threads</code> become JMH's measurement and warmup time and
+ *      iterations, and thread count </li>
+ * <li> the suite's <code>forks</code> and <code>jvmArgs</code> become JMH's forks and extra JVM arguments; 0 forks
+ *      runs in this JVM, which JMH warns against </li>
+ * <li> every <code>whenToInstantiate</code> becomes a target shared by all threads (<code>Scope.Benchmark</code>)
+ *      and created once per trial (<code>Level.Trial</code>); a JMH trial is one method on one input in a fresh
+ *      fork, so nothing can be shared between methods or inputs anyway </li>
+ * <li> TRIAL, METHOD and SIZE hooks all run around each JMH trial </li>
+ * </ul>
+ * Options that JMH has no equivalent for (fresh inputs, sampling modes, adaptive clocks and iterations) are
+ * ignored, and so are INVOCATION hooks, since JMH would time every call on its own for all benchmarks if the
+ * bridge had any. Inputs are serialized to a temporary directory so that forks can read them, so they must be
+ * Serializable, just as with ClassRunner's forks.
+ */
+public final class JmhRunner {
+
+    private JmhRunner() {    }
+
+    /**
+     * Runs all of the <code>@Benchmarkable</code> methods in a class under JMH, with the class's own suite settings
+     * @param <C> The class that clazz represents
+     * @param clazz The class containing the Benchmarkable methods
+     * @param inputs One list of data per Benchmarkable method, in the same order as for ClassRunner
+     * @return The results of methods with OutputType.RETURN; may be empty
+     * @throws IOException If the results can't be written to JSON
+     */
+    public static <C> List<BenchmarkStats> runBenchmarks(Class<C> clazz, List<?>... inputs) throws IOException {
+        return runBenchmarks(clazz, SuiteSettings.from(ClassRunner.getSuiteAnnotation(clazz)), inputs);
+    }
+
+    /**
+     * Runs all of the <code>@Benchmarkable</code> methods in a class under JMH, overriding the class's fork settings.
+     * With OutputType.JSON, results are saved next to ClassRunner's, with "jmh-" in front of the file name.
+     * @param <C> The class that clazz represents
+     * @param clazz The class containing the Benchmarkable methods
+     * @param suiteSettings The forks and JVM arguments to use instead of the class's own
+     * @param inputs One list of data per Benchmarkable method, in the same order as for ClassRunner
+     * @return The results of methods with OutputType.RETURN; may be empty
+     * @throws IOException If the results can't be written to JSON
+     */
+    public static <C> List<BenchmarkStats> runBenchmarks(Class<C> clazz, SuiteSettings suiteSettings,
+                                    List<?>... inputs) throws IOException {
+        BenchmarkSuite classAnno = ClassRunner.getSuiteAnnotation(clazz);
+        List<BenchmarkStats> resultsList = new ArrayList<>();
+        List<Method> methods = ClassRunner.getBenchmarkMethods(clazz);
+        String savePath = classAnno.saveLocation()+"/jmh-"+classAnno.fileName();
+
+        try (StreamingJsonifier jsonifier = new StreamingJsonifier(savePath)) {
+            for (int i = 0; i < methods.size(); i++) {
+                Method method = methods.get(i);
+                List<?> dataToTest = (inputs.length == 0) ? null : inputs[Math.min(i, inputs.length - 1)];
+                List<BenchmarkStats> results;
+                try {
+                    results = _runMethod(clazz, method, dataToTest, suiteSettings);
+                } catch (IOException | RunnerException | RuntimeException e) {
+                    ClassRunner.printSkipMessage(method, e);
+                    continue;
+                }
+
+                switch (classAnno.outputTo()) {
+                    case PRINT:
+                        results.forEach(System.out::println);
+                        break;
+                    case JSON:
+                        jsonifier.append(results.stream());
+                        break;
+                    case RETURN:
+                        resultsList.addAll(results);
+                        break;
+                }
+            }
+        }
+        return resultsList;
+    }
+
+    /**
+     * Converts JMH's results into BenchmarkStats, so they can be saved with Jsonifier or compared with ClassRunner's.
+     * Each measured iteration, from every fork, becomes one sample in the IterationStats. Results from JmhRunner
+     * keep their method's test name and their input's size; results from any other JMH benchmark are named after
+     * the benchmark and have no size.
+     * @param results The results of a JMH run, which must have used average-time mode
+     * @return One BenchmarkStats per result, in the same order
+     * @throws IllegalArgumentException If a result used any other mode
+     */
+    public static List<BenchmarkStats> toBenchmarkStats(Collection<RunResult> results) {
+        List<BenchmarkStats> converted = new ArrayList<>();
+        for (RunResult result : results) {
+            converted.add(_toBenchmarkStats(result));
+        }
+        return converted;
+    }
+
+    private static List<BenchmarkStats> _runMethod(Class<?> clazz, Method method, List<?> inputs,
+                                    SuiteSettings suiteSettings) throws IOException, RunnerException {
+        RunSettings settings = RunSettings.from(method);
+        ChainedOptionsBuilder options = new OptionsBuilder()
+                            .include("^"+Pattern.quote(JmhBridge.class.getName()+".call")+"$")
+                            .mode(Mode.AverageTime)
+                            .timeUnit(TimeUnit.NANOSECONDS)
+                            .measurementIterations(settings.measurementIterations())
+                            .measurementTime(TimeValue.nanoseconds(settings.maxDuration().toNanos()))
+                            .warmupIterations(settings.warmupIterations())
+                            .warmupTime(TimeValue.nanoseconds(settings.warmupDuration().toNanos()))
+                            .threads(settings.threads())
+                            .forks(suiteSettings.forks())
+                            .jvmArgsAppend(suiteSettings.jvmArgs().toArray(new String[0]))
+                            .param("benchmarkClass", clazz.getName())
+                            .param("methodName", method.getName())
+                            .param("methodDescriptor", MethodType.methodType(method.getReturnType(),
+                                                        method.getParameterTypes()).toMethodDescriptorString());
+
+        if (method.getParameterCount() == 0 || inputs == null) {
+            return toBenchmarkStats(new Runner(options.param("inputsDirectory", "")
+                                                        .param("input", JmhBridge.inputLabel(0, null))
+                                                        .build()).run());
+        }
+
+        Path directory = Files.createTempDirectory("jmh-inputs");
+        try {
+            String[] labels = new String[inputs.size()];
+            for (int i = 0; i < labels.length; i++) {
+                Object input = inputs.get(i);
+                try (ObjectOutputStream out = new ObjectOutputStream(new BufferedOutputStream(
+                                                    Files.newOutputStream(directory.resolve(i+".ser"))))) {
+                    out.writeObject(input);
+                }
+                labels[i] = JmhBridge.inputLabel(i, FormatUtils.getPropertyByName(input, settings.idName(),
+                                                                                    settings.idIsMethod()));
+            }
+            Collection<RunResult> results = new Runner(options.param("inputsDirectory", directory.toString())
+                                                                .param("input", labels)
+                                                                .build()).run();
+            // JMH sorts its results by parameter value as text, so put them back in input order
+            return toBenchmarkStats(results.stream()
+                        .sorted(Comparator.comparingInt((RunResult r) -> JmhBridge.indexOf(r.getParams().getParam("input"))))
+                        .toList());
+        } finally {
+            try (Stream<Path> files = Files.list(directory)) {
+                for (Path file : files.toList()) {
+                    Files.deleteIfExists(file);
+                }
+            }
+            Files.deleteIfExists(directory);
+        }
+    }
+
+    private static BenchmarkStats _toBenchmarkStats(RunResult result) {
+        BenchmarkParams params = result.getParams();
+        if (params.getMode() != Mode.AverageTime) {
+            throw new IllegalArgumentException("Only average-time results can be converted, but "
+                                                +params.getBenchmark()+" used "+params.getMode());
+        }
+        double nanosPerUnit = params.getTimeUnit().toNanos(1);
+
+        List<Double> scores = new ArrayList<>();
+        long totalOps = 0;
+        double totalNanos = 0;
+        for (BenchmarkResult fork : result.getBenchmarkResults()) {
+            for (IterationResult iteration : fork.getIterationResults()) {
+                double nanosPerOp = iteration.getPrimaryResult().getScore() * nanosPerUnit;
+                long ops = iteration.getMetadata().getMeasuredOps();
+                scores.add(nanosPerOp);
+                totalOps += ops;
+                totalNanos += nanosPerOp * ops;
+            }
+        }
+        if (scores.isEmpty() || totalOps == 0) {
+            throw new IllegalArgumentException(params.getBenchmark()+" has no measured iterations");
+        }
+
+        String testName = params.getBenchmark();
+        Double size = null;
+        String input = params.getParam("input");
+        if (input != null && params.getBenchmark().equals(JmhBridge.class.getName()+".call")) {
+            testName = _testName(params);
+            size = JmhBridge.sizeOf(input);
+        }
+
+        int loops = (int) Math.min(totalOps, Integer.MAX_VALUE);
+        double averageNanos = totalNanos / totalOps;
+        Duration maxDuration = Duration.ofNanos(params.getMeasurement().getTime().convertTo(TimeUnit.NANOSECONDS));
+        IterationStats iterations = IterationStats.of(params.getWarmup().getCount(),
+                                                        scores.stream().mapToDouble(Double::doubleValue).toArray());
+        return new BenchmarkStats(scores.size(), (int) Math.max(1, totalOps / scores.size()), maxDuration, loops,
+                                    Duration.ofNanos(Math.round(averageNanos * loops)), size, testName, 0, null,
+                                    iterations, null, null, null);
+    }
+
+    /**
+     * Names the result the same way ClassRunner would, with <code>RunSettings.testNameOf()</code>, falling back to
+     * the method's own name if it can't be found any more
+     */
+    private static String _testName(BenchmarkParams params) {
+        String methodName = params.getParam("methodName");
+        try {
+            Class<?> clazz = Class.forName(params.getParam("benchmarkClass"));
+            MethodType type = MethodType.fromMethodDescriptorString(params.getParam("methodDescriptor"),
+                                                                    clazz.getClassLoader());
+            return RunSettings.testNameOf(clazz.getDeclaredMethod(methodName, type.parameterArray()));
+        } catch (ReflectiveOperationException | TypeNotPresentException e) {
+            return methodName;
+        }
+    }
+}
@@ -3,10 +3,21 @@ package com.slc.tools.runners;
 import java.time.Duration;
 import java.util.function.Consumer;
 import java.util.function.Function;
+import java.util.function.IntConsumer;
+import java.util.function.LongConsumer;
+import java.util.function.ToDoubleFunction;
+import java.util.function.ToIntFunction;
+import java.util.function.ToLongFunction;
+import java.util.function.UnaryOperator;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
 import java.util.stream.Stream;
 
 import com.slc.tools.util.BenchmarkStats;
+import com.slc.tools.util.Blackhole;
 import com.slc.tools.util.FormatUtils;
+import com.slc.tools.util.InputCopier;
+import com.slc.tools.util.InputSource;
 
 public class LambdaRunner {
     /**
@@ -26,9 +37,12 @@ public class LambdaRunner {
                                                     Duration maxDuration, int clockFrequency, 
                                                     String idName, boolean idIsMethod, String testName)
                                                     throws ReflectiveOperationException {
-        return dataToTest.map((T streamMember) -> 
-            _singleConsumerTest(methodToTest, streamMember, maxDuration, clockFrequency, idName, idIsMethod, testName)
-        );
+        RunSettings settings = RunSettings.defaults()
+                                    .withMaxDuration(maxDuration)
+                                    .withClockFrequency(clockFrequency)
+                                    .withId(idName, idIsMethod)
+                                    .withTestName(testName);
+        return benchmarkConsumable(methodToTest, dataToTest, settings);
     }
 
     /**
@@ -135,44 +149,287 @@ public class LambdaRunner {
         return benchmarkConsumable(asConsumer, asStream, maxDuration, clockFrequency, idName, idIsMethod, testName);
     }
 
+    /**
+     * Takes a Stream of objects and time-tests each of them, returning a new Stream of the results.
+     * This is a terminal operation on dataToTest.
+     * @param <T> The type of the object to be tested
+     * @param methodToTest An algorithm to test
+     * @param dataToTest A Stream of objects which will be passed to the provided method
+     * @param settings The duration, clock frequency, ID, test name and any other options for the benchmark
+     * @return A new Stream containing the results of the tests in the order provided
+     */
+    public static <T> Stream<BenchmarkStats> benchmarkConsumable(Consumer<T> methodToTest, Stream<T> dataToTest,
+                                                    RunSettings settings) {
+        return dataToTest.map((T streamMember) -> _singleConsumerTest(methodToTest, streamMember, null, settings));
+    }
+
+    /**
+     * Takes a Stream of objects and time-tests each of them, giving every call its own copy of the input.
+     * Use this for methods that modify their input, like in-place sorts. Copies are made with the clock stopped,
+     * so copying isn't included in the results. This is a terminal operation on dataToTest.
+     * @param <T> The type of the object to be tested
+     * @param methodToTest An algorithm to test
+     * @param dataToTest A Stream of objects which will be copied and passed to the provided method
+     * @param copier A function returning an independent copy of its argument, e.g. <code>ArrayList::new</code>
+     * @param settings The duration, clock frequency, ID, test name and any other options for the benchmark
+     * @return A new Stream containing the results of the tests in the order provided
+     */
+    public static <T> Stream<BenchmarkStats> benchmarkConsumable(Consumer<T> methodToTest, Stream<T> dataToTest,
+                                                    UnaryOperator<T> copier, RunSettings settings) {
+        return dataToTest.map((T streamMember) -> _singleConsumerTest(methodToTest, streamMember, copier, settings));
+    }
+
+    /**
+     * Takes a source of objects and time-tests each of them, returning a new Stream of the results. Each input is
+     * only created when its benchmark is about to run, and is released (e.g. an OffHeapDataset is closed, freeing
+     * its memory) as soon as its benchmark finishes.
+     * @param <T> The type of the object to be tested
+     * @param methodToTest An algorithm to test
+     * @param dataToTest The inputs which will be passed to the provided method, e.g. from <code>InputSource.bySize()</code>
+     * @param settings The duration, clock frequency, ID, test name and any other options for the benchmark
+     * @return A new lazy Stream containing the results of the tests in the order provided
+     */
+    public static <T> Stream<BenchmarkStats> benchmarkConsumable(Consumer<T> methodToTest, InputSource<T> dataToTest,
+                                                    RunSettings settings) {
+        return dataToTest.stream().map((T input) -> {
+            try {
+                return _singleConsumerTest(methodToTest, input, null, settings);
+            } finally {
+                dataToTest.release(input);
+            }
+        });
+    }
+
+    /**
+     * Takes an Iterable of objects and time-tests each of them, returning a Stream of the results.
+     * @param <T> The type of the object to be tested
+     * @param methodToTest An algorithm to test
+     * @param dataToTest An Iterable of objects which will be passed to the provided method
+     * @param settings The duration, clock frequency, ID, test name and any other options for the benchmark
+     * @return A new Stream containing the results of the tests in the order provided
+     */
+    public static <T> Stream<BenchmarkStats> benchmarkConsumable(Consumer<T> methodToTest, Iterable<T> dataToTest,
+                                                    RunSettings settings) {
+        return benchmarkConsumable(methodToTest, FormatUtils.toStream(dataToTest), settings);
+    }
+
+    /**
+     * Takes an array of objects and time-tests each of them, returning a Stream of the results.
+     * @param <T> The type of the object to be tested
+     * @param methodToTest An algorithm to test
+     * @param dataToTest An array of objects which will be passed to the provided method
+     * @param settings The duration, clock frequency, ID, test name and any other options for the benchmark
+     * @return A new Stream containing the results of the tests in the order provided
+     */
+    public static <T> Stream<BenchmarkStats> benchmarkConsumable(Consumer<T> methodToTest, T[] dataToTest,
+                                                    RunSettings settings) {
+        return benchmarkConsumable(methodToTest, FormatUtils.toStream(dataToTest), settings);
+    }
+
+    /**
+     * Takes a Stream of objects and time-tests each of them, returning a new Stream of the results and discarding return results
+     * @param <T> The type of the object to be tested
+     * @param <R> The original return type of the function
+     * @param methodToTest An algorithm to test
+     * @param dataToTest A Stream of objects which will be passed to the provided method
+     * @param settings The duration, clock frequency, ID, test name and any other options for the benchmark
+     * @return A new Stream containing the results of the tests in the order provided
+     */
+    public static <T, R> Stream<BenchmarkStats> benchmarkFunction(Function<T, R> methodToTest, Stream<T> dataToTest,
+                                                    RunSettings settings) {
+        return benchmarkConsumable(FormatUtils.toConsumer(methodToTest), dataToTest, settings);
+    }
+
+    /**
+     * Takes a source of objects and time-tests each of them, discarding return results. Each input is only created
+     * when its benchmark is about to run, and is released as soon as its benchmark finishes.
+     * @param <T> The type of the object to be tested
+     * @param <R> The original return type of the function
+     * @param methodToTest An algorithm to test
+     * @param dataToTest The inputs which will be passed to the provided method, e.g. from <code>InputSource.bySize()</code>
+     * @param settings The duration, clock frequency, ID, test name and any other options for the benchmark
+     * @return A new lazy Stream containing the results of the tests in the order provided
+     */
+    public static <T, R> Stream<BenchmarkStats> benchmarkFunction(Function<T, R> methodToTest, InputSource<T> dataToTest,
+                                                    RunSettings settings) {
+        return benchmarkConsumable(FormatUtils.toConsumer(methodToTest), dataToTest, settings);
+    }
+
+    /**
+     * Takes a Stream of objects and time-tests each of them, giving every call its own copy of the input and
+     * discarding return results. Copies are made with the clock stopped, so copying isn't included in the results.
+     * @param <T> The type of the object to be tested
+     * @param <R> The original return type of the function
+     * @param methodToTest An algorithm to test
+     * @param dataToTest A Stream of objects which will be copied and passed to the provided method
+     * @param copier A function returning an independent copy of its argument, e.g. <code>ArrayList::new</code>
+     * @param settings The duration, clock frequency, ID, test name and any other options for the benchmark
+     * @return A new Stream containing the results of the tests in the order provided
+     */
+    public static <T, R> Stream<BenchmarkStats> benchmarkFunction(Function<T, R> methodToTest, Stream<T> dataToTest,
+                                                    UnaryOperator<T> copier, RunSettings settings) {
+        return benchmarkConsumable(FormatUtils.toConsumer(methodToTest), dataToTest, copier, settings);
+    }
+
+    /**
+     * Takes an Iterable of objects and time-tests each of them, returning a new Stream of the results and discarding return results
+     * @param <T> The type of the object to be tested
+     * @param <R> The original return type of the function
+     * @param methodToTest An algorithm to test
+     * @param dataToTest An Iterable of objects which will be passed to the provided method
+     * @param settings The duration, clock frequency, ID, test name and any other options for the benchmark
+     * @return A new Stream containing the results of the tests in the order provided
+     */
+    public static <T, R> Stream<BenchmarkStats> benchmarkFunction(Function<T, R> methodToTest, Iterable<T> dataToTest,
+                                                    RunSettings settings) {
+        return benchmarkConsumable(FormatUtils.toConsumer(methodToTest), FormatUtils.toStream(dataToTest), settings);
+    }
+
+    /**
+     * Takes an array of objects and time-tests each of them, returning a new Stream of the results and discarding return results
+     * @param <T> The type of the object to be tested
+     * @param <R> The original return type of the function
+     * @param methodToTest An algorithm to test
+     * @param dataToTest An array of objects which will be passed to the provided method
+     * @param settings The duration, clock frequency, ID, test name and any other options for the benchmark
+     * @return A new Stream containing the results of the tests in the order provided
+     */
+    public static <T, R> Stream<BenchmarkStats> benchmarkFunction(Function<T, R> methodToTest, T[] dataToTest,
+                                                    RunSettings settings) {
+        return benchmarkConsumable(FormatUtils.toConsumer(methodToTest), FormatUtils.toStream(dataToTest), settings);
+    }
+
+    /**
+     * Takes a Stream of ints and time-tests each of them, returning a new Stream of the results. Each int is passed
+     * to the method as-is, without boxing, and is also reported as the size. This is a terminal operation on
+     * dataToTest.
+     * @param methodToTest An algorithm to test
+     * @param dataToTest A Stream of ints which will be passed to the provided method
+     * @param settings The test name and any other options for the benchmark; the ID settings are ignored
+     * @return A new Stream containing the results of the tests in the order provided
+     */
+    public static Stream<BenchmarkStats> benchmarkIntConsumer(IntConsumer methodToTest, IntStream dataToTest,
+                                                    RunSettings settings) {
+        IntConsumer empty = (int ignored) -> { };
+        return dataToTest.mapToObj((int value) -> _singleTest(() -> methodToTest.accept(value),
+                                                                () -> empty.accept(value), value, settings));
+    }
+
+    /**
+     * Takes a Stream of longs and time-tests each of them, returning a new Stream of the results. Each long is passed
+     * to the method as-is, without boxing, and is also reported as the size. This is a terminal operation on
+     * dataToTest.
+     * @param methodToTest An algorithm to test
+     * @param dataToTest A Stream of longs which will be passed to the provided method
+     * @param settings The test name and any other options for the benchmark; the ID settings are ignored
+     * @return A new Stream containing the results of the tests in the order provided
+     */
+    public static Stream<BenchmarkStats> benchmarkLongConsumer(LongConsumer methodToTest, LongStream dataToTest,
+                                                    RunSettings settings) {
+        LongConsumer empty = (long ignored) -> { };
+        return dataToTest.mapToObj((long value) -> _singleTest(() -> methodToTest.accept(value),
+                                                                () -> empty.accept(value), value, settings));
+    }
+
+    /**
+     * Takes a Stream of objects and time-tests each of them with a function returning an int. The result is
+     * consumed as a primitive, so unlike <code>benchmarkFunction()</code> nothing is boxed inside the timed loop.
+     * This is a terminal operation on dataToTest.
+     * @param <T> The type of the object to be tested, e.g. int[]
+     * @param methodToTest An algorithm to test
+     * @param dataToTest A Stream of objects which will be passed to the provided method
+     * @param settings The duration, clock frequency, ID, test name and any other options for the benchmark
+     * @return A new Stream containing the results of the tests in the order provided
+     */
+    public static <T> Stream<BenchmarkStats> benchmarkToIntFunction(ToIntFunction<T> methodToTest,
+                                                    Stream<T> dataToTest, RunSettings settings) {
+        Consumer<T> asConsumer = (T input) -> Blackhole.consume(methodToTest.applyAsInt(input));
+        return benchmarkConsumable(asConsumer, dataToTest, settings);
+    }
+
+    /**
+     * Takes a Stream of objects and time-tests each of them with a function returning a long. The result is
+     * consumed as a primitive, so unlike <code>benchmarkFunction()</code> nothing is boxed inside the timed loop.
+     * This is a terminal operation on dataToTest.
+     * @param <T> The type of the object to be tested, e.g. long[]
+     * @param methodToTest An algorithm to test
+     * @param dataToTest A Stream of objects which will be passed to the provided method
+     * @param settings The duration, clock frequency, ID, test name and any other options for the benchmark
+     * @return A new Stream containing the results of the tests in the order provided
+     */
+    public static <T> Stream<BenchmarkStats> benchmarkToLongFunction(ToLongFunction<T> methodToTest,
+                                                    Stream<T> dataToTest, RunSettings settings) {
+        Consumer<T> asConsumer = (T input) -> Blackhole.consume(methodToTest.applyAsLong(input));
+        return benchmarkConsumable(asConsumer, dataToTest, settings);
+    }
+
+    /**
+     * Takes a Stream of objects and time-tests each of them with a function returning a double. The result is
+     * consumed as a primitive, so unlike <code>benchmarkFunction()</code> nothing is boxed inside the timed loop.
+     * This is a terminal operation on dataToTest.
+     * @param <T> The type of the object to be tested, e.g. double[]
+     * @param methodToTest An algorithm to test
+     * @param dataToTest A Stream of objects which will be passed to the provided method
+     * @param settings The duration, clock frequency, ID, test name and any other options for the benchmark
+     * @return A new Stream containing the results of the tests in the order provided
+     */
+    public static <T> Stream<BenchmarkStats> benchmarkToDoubleFunction(ToDoubleFunction<T> methodToTest,
+                                                    Stream<T> dataToTest, RunSettings settings) {
+        Consumer<T> asConsumer = (T input) -> Blackhole.consume(methodToTest.applyAsDouble(input));
+        return benchmarkConsumable(asConsumer, dataToTest, settings);
+    }
+
+    /**
+     * Times a body which already has its (primitive) input bound
+     * @param body One call to the method being tested
+     * @param baseline The same call to a consumer that does nothing, to measure the harness's cost per call
+     * @param size The size to report
+     * @param settings The duration, clock frequency, test name and any other options for this run
+     * @return A single BenchmarkStats object representing the results of this run
+     */
+    private static BenchmarkStats _singleTest(BenchmarkLoop.Body body, BenchmarkLoop.Body baseline, double size,
+                                                RunSettings settings) {
+        try {
+            return BenchmarkLoop.measure(body, settings, size, baseline);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            // Primitive consumers can't throw checked exceptions, so this is unreachable
+            throw new IllegalStateException(e);
+        }
+    }
+
     /**
      * Takes one consumer, feeds it one input repeatedly, and times how long it takes
      * @param <T> The type of the input
      * @param consumer The consumer function to test
      * @param object The input to feed to the consumer
-     * @param maxDuration The ideal maximum time for the benchmark to take; note that it may take longer, especially if clockFrequency is high
-     * @param clockFrequency How many times to call the consumer between checking if maxDuration has elapsed yet
-     * @param propertyName The name of the field or method of object that represents this run's unique ID
-     * @param idIsMethod True if property name represents a method, false if it represents a field
-     * @param testName An identifier for all the tests of the same consumer
+     * @param copier How to copy the input for every call, or null to copy it automatically if the settings ask for
+     * fresh inputs (and to reuse it otherwise)
+     * @param settings The duration, clock frequency, ID, test name and any other options for this run
      * @return A single BenchmarkStats object representing the results of this run
      */
-    private static <T> BenchmarkStats _singleConsumerTest(Consumer<T> consumer, T object,  
-                                    Duration maxDuration, int clockFrequency, 
-                                    String propertyName, boolean idIsMethod, String testName) {
-        long maxNanoTime = maxDuration.toNanos();
-        int clockChecks = 0;
-        int completedLoops = 0;
-
-        long startTime = System.nanoTime();
-        while ((System.nanoTime() - startTime) < maxNanoTime
-        && completedLoops <= Integer.MAX_VALUE) {
-            clockChecks++;
-            for (int i = 0; i < clockFrequency; i++) {
-                consumer.accept(object);
-                // increment completedLoops before asking if max has been reached
-                // to prevent extra loop from being performed and overflowing
-                if (++completedLoops == Integer.MAX_VALUE) {
-                    break;
-                }
+    private static <T> BenchmarkStats _singleConsumerTest(Consumer<T> consumer, T object, UnaryOperator<T> copier,
+                                                    RunSettings settings) {
+        Double id = FormatUtils.getPropertyByName(object, settings.idName(), settings.idIsMethod());
+        if (copier == null && settings.freshInput()) {
+            copier = InputCopier.forObject(object);
+        }
+        // Calling a consumer that does nothing costs the harness the same as calling the real one
+        Consumer<T> empty = (T ignored) -> { };
+        BenchmarkLoop.Body baseline = () -> empty.accept(object);
+        try {
+            if (copier == null) {
+                return BenchmarkLoop.measure(() -> consumer.accept(object), settings, id, baseline);
             }
+            InputPool<T> pool = new InputPool<>(object, copier);
+            return BenchmarkLoop.measure(() -> consumer.accept(pool.take()), pool, settings, id, baseline);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            // Consumers can't throw checked exceptions, so this is unreachable
+            throw new IllegalStateException(e);
         }
-        long elapsedRaw = System.nanoTime() - startTime;
-
-        clockChecks++; // last check returned false, so it didn't increment
-        Duration elapsedTime = Duration.ofNanos(elapsedRaw);
-        Double id = FormatUtils.getPropertyByName(object, propertyName);
-        return new BenchmarkStats(clockChecks, clockFrequency, maxDuration, completedLoops, elapsedTime, id, testName);
     }
     
 }
@@ -0,0 +1,151 @@
+package com.slc.tools.runners;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+import com.slc.tools.annotations.Level;
+import com.slc.tools.annotations.Setup;
+import com.slc.tools.annotations.TearDown;
+
+/**
+ * The <code>@Setup</code> and <code>@TearDown</code> methods of a suite class, bound once and grouped by level.
+ * Within a level, hooks run in alphabetical order, just like Benchmarkable methods.
+ *
+ * <p> Static hooks can run at any level. Instance hooks run on the object the surrounding benchmarks are called on,
+ * so they need one to exist at their level: TRIAL hooks need <code>ON_INIT</code>, and METHOD hooks need
+ * <code>ON_INIT</code> or <code>PER_METHOD</code>. SIZE and INVOCATION hooks always have one, unless the
+ * Benchmarkable method itself is static.
+ */
+final class LifecycleHooks {
+    private static final ClassValue<LifecycleHooks> _HOOKS = new ClassValue<>() {
+        @Override
+        protected LifecycleHooks computeValue(Class<?> clazz) {
+            return new LifecycleHooks(clazz);
+        }
+    };
+
+    private record Hook(Method method, MethodInvoker invoker) {    }
+
+    private final Map<Level, List<Hook>> _SETUPS = new EnumMap<>(Level.class);
+    private final Map<Level, List<Hook>> _TEARDOWNS = new EnumMap<>(Level.class);
+
+    private LifecycleHooks(Class<?> clazz) throws IllegalArgumentException {
+        List<Method> methods = new ArrayList<>();
+        for (Method method : clazz.getDeclaredMethods()) {
+            if (!method.isSynthetic()
+                    && (method.isAnnotationPresent(Setup.class) || method.isAnnotationPresent(TearDown.class))) {
+                methods.add(method);
+            }
+        }
+        methods.sort(Comparator.comparing(Method::getName));
+        for (Method method : methods) {
+            Setup setup = method.getAnnotation(Setup.class);
+            if (setup != null) {
+                _add(_SETUPS, setup.value(), method);
+            }
+            TearDown tearDown = method.getAnnotation(TearDown.class);
+            if (tearDown != null) {
+                _add(_TEARDOWNS, tearDown.value(), method);
+            }
+        }
+    }
+
+    /**
+     * @param clazz The class containing Benchmarkable methods
+     * @return The class's hooks; looked up only once per class
+     * @throws IllegalArgumentException If a hook isn't public or takes the wrong number of parameters
+     */
+    static LifecycleHooks of(Class<?> clazz) throws IllegalArgumentException {
+        return _HOOKS.get(clazz);
+    }
+
+    /**
+     * @param level A level to look at
+     * @return True if there are any setup or teardown hooks at that level
+     */
+    boolean has(Level level) {
+        return _SETUPS.containsKey(level) || _TEARDOWNS.containsKey(level);
+    }
+
+    /**
+     * @param level A level to look at
+     * @return True if every setup and teardown hook at that level takes the input
+     */
+    boolean allTakeInput(Level level) {
+        return _takesInput(_SETUPS.get(level)) && _takesInput(_TEARDOWNS.get(level));
+    }
+
+    /**
+     * Runs every setup hook at the given level
+     * @param level Which hooks to run
+     * @param target The object that the surrounding benchmarks are called on, or null if there isn't one
+     * @param input The input being benchmarked, for SIZE and INVOCATION hooks that take it; otherwise ignored
+     * @throws InvocationTargetException Wrapping whatever a hook threw
+     * @throws IllegalStateException If an instance hook has no target to run on
+     */
+    void setUp(Level level, Object target, Object input) throws InvocationTargetException {
+        _run(_SETUPS.get(level), level, target, input);
+    }
+
+    /**
+     * Runs every teardown hook at the given level
+     * @param level Which hooks to run
+     * @param target The object that the surrounding benchmarks are called on, or null if there isn't one
+     * @param input The input being benchmarked, for SIZE and INVOCATION hooks that take it; otherwise ignored
+     * @throws InvocationTargetException Wrapping whatever a hook threw
+     * @throws IllegalStateException If an instance hook has no target to run on
+     */
+    void tearDown(Level level, Object target, Object input) throws InvocationTargetException {
+        _run(_TEARDOWNS.get(level), level, target, input);
+    }
+
+    private static void _run(List<Hook> hooks, Level level, Object target, Object input)
+                                    throws InvocationTargetException {
+        if (hooks == null) {
+            return;
+        }
+        for (Hook hook : hooks) {
+            if (target == null && !Modifier.isStatic(hook.method().getModifiers())) {
+                throw new IllegalStateException("Hook "+hook.method().getName()+" is an instance method, but there's "
+                                                +"no shared instance at the "+level+" level; make it static, or "
+                                                +"change whenToInstantiate");
+            }
+            if (!hook.invoker().accepts(input)) {
+                throw new IllegalArgumentException("Hook "+hook.method().getName()+" can't take the input "+input);
+            }
+            try {
+                hook.invoker().invoke(target, input);
+            } catch (Throwable e) {
+                throw new InvocationTargetException(e, "Hook "+hook.method().getName()+" failed");
+            }
+        }
+    }
+
+    private static boolean _takesInput(List<Hook> hooks) {
+        return hooks == null || hooks.stream().allMatch((Hook hook) -> hook.method().getParameterCount() == 1);
+    }
+
+    private static void _add(Map<Level, List<Hook>> hooks, Level level, Method method) {
+        boolean takesInput = level == Level.SIZE || level == Level.INVOCATION;
+        if (method.getParameterCount() > (takesInput ? 1 : 0)) {
+            throw new IllegalArgumentException("Hook "+method.getName()+" has too many parameters; "+level
+                                                +" hooks can take "+(takesInput ? "at most the input" : "none"));
+        }
+        if (!Modifier.isPublic(method.getModifiers())
+                || !Modifier.isPublic(method.getDeclaringClass().getModifiers())) {
+            throw new IllegalArgumentException("Unable to access hook "+method.getName());
+        }
+        try {
+            hooks.computeIfAbsent(level, (ignored) -> new ArrayList<>())
+                 .add(new Hook(method, MethodInvoker.bind(method)));
+        } catch (IllegalAccessException e) {
+            throw new IllegalArgumentException("Unable to access hook "+method.getName(), e);
+        }
+    }
+}
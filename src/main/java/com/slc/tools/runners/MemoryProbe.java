@@ -0,0 +1,61 @@
+package com.slc.tools.runners;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.List;
+
+/**
+ * Reads the JVM's allocation and garbage collection counters. None of these calls allocate on the heap
+ * themselves, so they can be taken right at the edges of the timed window.
+ */
+final class MemoryProbe {
+    private static final com.sun.management.ThreadMXBean _THREADS = _findAllocationCounter();
+    private static final List<GarbageCollectorMXBean> _COLLECTORS = ManagementFactory.getGarbageCollectorMXBeans();
+
+    private MemoryProbe() {    }
+
+    /**
+     * @return How many bytes the current thread has allocated since it started, or -1 if the JVM doesn't track it
+     */
+    static long currentThreadAllocatedBytes() {
+        if (_THREADS == null || Thread.currentThread().isVirtual()) {
+            return -1;
+        }
+        return _THREADS.getCurrentThreadAllocatedBytes();
+    }
+
+    /**
+     * @return The total number of garbage collections across every collector since the JVM started
+     */
+    static long gcCount() {
+        long count = 0;
+        for (GarbageCollectorMXBean collector : _COLLECTORS) {
+            count += Math.max(0, collector.getCollectionCount());
+        }
+        return count;
+    }
+
+    /**
+     * @return The total time spent in garbage collection across every collector since the JVM started, in ms
+     */
+    static long gcTimeMillis() {
+        long millis = 0;
+        for (GarbageCollectorMXBean collector : _COLLECTORS) {
+            millis += Math.max(0, collector.getCollectionTime());
+        }
+        return millis;
+    }
+
+    private static com.sun.management.ThreadMXBean _findAllocationCounter() {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (threads instanceof com.sun.management.ThreadMXBean counter
+                && counter.isThreadAllocatedMemorySupported()) {
+            if (!counter.isThreadAllocatedMemoryEnabled()) {
+                counter.setThreadAllocatedMemoryEnabled(true);
+            }
+            return counter;
+        }
+        return null;
+    }
+}
@@ -0,0 +1,153 @@
+package com.slc.tools.runners;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+
+import com.slc.tools.util.Blackhole;
+
+/**
+ * Binds a Benchmarkable method to a MethodHandle once, so the timed loop doesn't pay for
+ * reflective access checks, varargs arrays and exception wrapping on every call.
+ * Every invoker has the same shape, <code>(Object target, Object input) -> Object</code>; static methods
+ * ignore the target, no-args methods ignore the input, and void methods return null.
+ *
+ * <p> The timed loop uses <code>invokeAndConsume()</code> instead, which hands the return value straight to the
+ * matching <code>Blackhole.consume()</code> overload. A primitive result is never boxed, so an int-returning
+ * method doesn't allocate an Integer on every call (which would inflate both its time and its allocation rate).
+ */
+final class MethodInvoker {
+    private static final MethodType _SHAPE = MethodType.genericMethodType(2);
+    private static final MethodType _CONSUMING_SHAPE = MethodType.methodType(void.class, Object.class, Object.class);
+
+    private final MethodHandle _HANDLE;
+    private final MethodHandle _CONSUMING_HANDLE;
+    private final Class<?> _PARAM_TYPE;
+
+    private MethodInvoker(MethodHandle handle, MethodHandle consumingHandle, Class<?> paramType) {
+        _HANDLE = handle;
+        _CONSUMING_HANDLE = consumingHandle;
+        _PARAM_TYPE = paramType;
+    }
+
+    /**
+     * Creates an invoker for the given method
+     * @param method A public method taking zero or one arguments
+     * @return An invoker that calls <code> method </code> directly
+     * @throws IllegalAccessException If the method isn't publicly accessible
+     */
+    static MethodInvoker bind(Method method) throws IllegalAccessException {
+        return _adapt(MethodHandles.publicLookup().unreflect(method), method);
+    }
+
+    /**
+     * Creates an invoker with exactly the same signature as the given method, but which does nothing and returns
+     * the default value for its return type. Since it goes through the same argument unboxing, receiver cast and
+     * result boxing as the real method, timing it shows how much of each measured call is spent in the harness.
+     * @param method A method taking zero or one arguments
+     * @return An empty invoker with the same signature as <code> method </code>
+     */
+    static MethodInvoker emptyLike(Method method) {
+        return _adapt(MethodHandles.empty(signatureOf(method)), method);
+    }
+
+    /**
+     * @param method A method to look at
+     * @return The method's type, with the declaring class as an extra first parameter for instance methods
+     */
+    static MethodType signatureOf(Method method) {
+        MethodType type = MethodType.methodType(method.getReturnType(), method.getParameterTypes());
+        if (Modifier.isStatic(method.getModifiers())) {
+            return type;
+        }
+        return type.insertParameterTypes(0, method.getDeclaringClass());
+    }
+
+    /**
+     * Calls the bound method
+     * @param target The object to call the method on; ignored for static methods
+     * @param input The argument to pass; ignored for no-args methods
+     * @return The method's return value, or null if it returns void
+     * @throws Throwable Whatever the method itself throws
+     */
+    Object invoke(Object target, Object input) throws Throwable {
+        return (Object) _HANDLE.invokeExact(target, input);
+    }
+
+    /**
+     * Calls the bound method and passes whatever it returns to <code>Blackhole.consume()</code>, without boxing
+     * @param target The object to call the method on; ignored for static methods
+     * @param input The argument to pass; ignored for no-args methods
+     * @throws Throwable Whatever the method itself throws
+     */
+    void invokeAndConsume(Object target, Object input) throws Throwable {
+        _CONSUMING_HANDLE.invokeExact(target, input);
+    }
+
+    /**
+     * Checks ahead of time whether <code> input </code> can be passed to the bound method, since the handle
+     * would otherwise throw a ClassCastException from inside the timed loop.
+     * @param input The argument that will be passed to <code> invoke() </code>
+     * @return True if the method takes no arguments, or if the argument has a compatible type
+     */
+    boolean accepts(Object input) {
+        if (_PARAM_TYPE == null) {
+            return true;
+        }
+        if (input == null) {
+            return !_PARAM_TYPE.isPrimitive();
+        }
+        return _PARAM_TYPE.isInstance(input);
+    }
+
+    /** Adapts a handle with the same type as <code>signatureOf(method)</code> to the uniform invoker shape */
+    private static MethodInvoker _adapt(MethodHandle handle, Method method) {
+        if (Modifier.isStatic(method.getModifiers())) {
+            handle = MethodHandles.dropArguments(handle, 0, Object.class);
+        }
+        Class<?> paramType = null;
+        if (method.getParameterCount() == 0) {
+            handle = MethodHandles.dropArguments(handle, 1, Object.class);
+        } else {
+            paramType = _boxed(method.getParameterTypes()[0]);
+        }
+        Class<?> returnType = handle.type().returnType();
+        MethodHandle consuming = (returnType == void.class) ? handle
+                                    : MethodHandles.filterReturnValue(handle, _consumerFor(returnType));
+        return new MethodInvoker(handle.asType(_SHAPE), consuming.asType(_CONSUMING_SHAPE), paramType);
+    }
+
+    /**
+     * @param type A non-void return type
+     * @return The <code>Blackhole.consume()</code> overload for that type, as <code>(type)void</code>; smaller
+     * primitives are widened to int or double, and references are consumed as Objects
+     */
+    private static MethodHandle _consumerFor(Class<?> type) {
+        Class<?> overload;
+        if (!type.isPrimitive()) {
+            overload = Object.class;
+        } else if (type == long.class || type == boolean.class || type == double.class) {
+            overload = type;
+        } else if (type == float.class) {
+            overload = double.class;
+        } else {
+            overload = int.class;
+        }
+        try {
+            return MethodHandles.publicLookup()
+                                .findStatic(Blackhole.class, "consume", MethodType.methodType(void.class, overload))
+                                .asType(MethodType.methodType(void.class, type));
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            throw new IllegalStateException("Blackhole has no consume("+overload.getSimpleName()+")", e);
+        }
+    }
+
+    private static Class<?> _boxed(Class<?> type) {
+        if (!type.isPrimitive()) {
+            return type;
+        }
+        return MethodType.methodType(type).wrap().returnType();
+    }
+}
@@ -1,22 +1,33 @@
 package com.slc.tools.runners;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
-import java.time.Duration;
+import java.util.function.UnaryOperator;
 import java.util.stream.Stream;
 
-import com.slc.tools.annotations.Benchmarkable;
+import com.slc.tools.annotations.Level;
 import com.slc.tools.util.BenchmarkStats;
 import com.slc.tools.util.FormatUtils;
+import com.slc.tools.util.InputCopier;
 
 public class MethodRunner<C> {
     final Method _METHOD;
     final C _TARGET;
     final Stream<?> _DATA_TO_TEST;
-    final Duration _MAX_DURATION;
-    final int _CLOCK_FREQ;
-    final String _TEST_NAME, _ID_NAME;
+    final RunSettings _SETTINGS;
+    final String _TEST_NAME;
     final boolean _IS_STATIC, _NEEDS_ARGS;
+    final MethodInvoker _INVOKER;
+    /** Where each benchmark takes its own target from, for instance methods without a shared target */
+    final InstancePool<C> _POOL;
+    final LifecycleHooks _HOOKS;
+
+    /** Stands in for the input to methods that take no arguments, so they're still benchmarked once */
+    static final Object NO_ARGS_PLACEHOLDER = "arbitrary placeholder";
 
     /**
      * Creates a new MethodRunner based around the given method, to be called on the given target with the given dataStream
@@ -26,24 +37,45 @@ public class MethodRunner<C> {
      * @throws IllegalStateException
      */
     MethodRunner(Method method, C target, Stream<?> dataStream) throws IllegalStateException {
-        Benchmarkable benchmark = method.getAnnotation(Benchmarkable.class);
-        
+        this(method, target, null, dataStream);
+    }
+
+    /**
+     * Creates a new MethodRunner which takes a target from the given pool for each benchmark, if there's no shared target
+     * @param method The method to be run with this MethodRunner instance
+     * @param target The target to invoke the method on, or null if each benchmark should get its own
+     * @param pool Where to take each benchmark's target from, or null to follow the class's suite settings
+     * @param dataStream The data to test this method on, or null if the method has no input arguments
+     * @throws IllegalArgumentException If the method or one of its class's hooks can't be called, or a target can't
+     * be created for it
+     */
+    @SuppressWarnings("unchecked")
+    MethodRunner(Method method, C target, InstancePool<C> pool, Stream<?> dataStream) throws IllegalArgumentException {
         _METHOD = method;
-        _MAX_DURATION = Duration.ofNanos(benchmark.nanoTime());
-        _CLOCK_FREQ = benchmark.clockFrequency();
-        _TEST_NAME = (benchmark.testName() == null) ? method.getName() : benchmark.testName();
-        _ID_NAME = benchmark.idName();
+        _SETTINGS = RunSettings.from(method);
+        _TEST_NAME = _SETTINGS.testName();
         _IS_STATIC = Modifier.isStatic(_METHOD.getModifiers());
         _NEEDS_ARGS = method.getParameterCount() > 0;
-        _DATA_TO_TEST = (dataStream == null) ? Stream.of("arbitrary placeholder") : dataStream;
+        _DATA_TO_TEST = (dataStream == null) ? Stream.of(NO_ARGS_PLACEHOLDER) : dataStream;
 
         if (_IS_STATIC) {
             _TARGET = null;
         } else {
             _TARGET = target;
         }
+        if (_IS_STATIC || _TARGET != null) {
+            _POOL = null;
+        } else {
+            _POOL = (pool != null) ? pool : (InstancePool<C>) InstancePool.forSuite(method.getDeclaringClass());
+        }
         
         _checkIfValid();
+        _HOOKS = LifecycleHooks.of(method.getDeclaringClass());
+        try {
+            _INVOKER = MethodInvoker.bind(method);
+        } catch (IllegalAccessException e) {
+            throw new IllegalArgumentException("Unable to access method "+_METHOD.getName(), e);
+        }
     }
     
     /**
@@ -55,23 +87,55 @@ public class MethodRunner<C> {
      * @param dataToTest A Stream of data to call <code> method </code> with
      * @return A Stream of BenchmarkStats representing the results of calling <code> method </code> on each element of <code> dataToTest </code>
      */
-    @SuppressWarnings("unchecked")
     protected Stream<BenchmarkStats> benchmark() {        
-        return _DATA_TO_TEST.map((Object streamMember) -> {
+        return _DATA_TO_TEST.map(this::benchmarkOne);
+    }
+
+    /**
+     * Benchmarks the method on a single input, taking a target to invoke it on from the pool first if necessary.
+     * The target is taken, and the SIZE-level hooks are run on it, before the timed loop; they're torn down and
+     * the target is handed back after it.
+     * @param input One element of the data to test
+     * @return The results of calling the method on <code> input </code>, or null if it (or a hook) threw an exception
+     */
+    BenchmarkStats benchmarkOne(Object input) {
+        C nullSafeTarget = _TARGET; // if static, null; otherwise null only if each benchmark gets its own
+        Object hookInput = _NEEDS_ARGS ? input : null;
+        try {
+            if (_POOL != null) {
+                nullSafeTarget = _takeTarget();
+            }
+            _HOOKS.setUp(Level.SIZE, nullSafeTarget, hookInput);
             try {
-                C nullSafeTarget;
-                if (!_IS_STATIC && _TARGET == null) { 
-                    // means we need to create a new instance on every invocation of benchmark()
-                    nullSafeTarget = (C) ClassRunner.createNewInstance(_METHOD.getDeclaringClass());
-                } else {
-                    nullSafeTarget = _TARGET; // if static, null; otherwise, definitely not null
-                }
-                return _singleMethodTest(nullSafeTarget, streamMember);
-            } catch (ReflectiveOperationException e) {
-                e.printStackTrace();
-                return null;
+                return _singleMethodTest(nullSafeTarget, input);
+            } finally {
+                _HOOKS.tearDown(Level.SIZE, nullSafeTarget, hookInput);
+            }
+        } catch (ReflectiveOperationException e) {
+            e.printStackTrace();
+            return null;
+        } finally {
+            if (_POOL != null) {
+                _POOL.release(nullSafeTarget);
             }
-        });
+        }
+    }
+
+    /** Takes a target from the pool, wrapping anything its constructor or reset method throws like reflection would */
+    private C _takeTarget() throws InvocationTargetException {
+        try {
+            return _POOL.take();
+        } catch (Throwable e) {
+            throw new InvocationTargetException(e);
+        }
+    }
+
+    /**
+     * @return The object every benchmark of this method is invoked on, or null if each benchmark gets its own
+     * (or if the method is static)
+     */
+    Object getSharedTarget() {
+        return _TARGET;
     }
 
     /**
@@ -90,87 +154,98 @@ public class MethodRunner<C> {
      */
 
     private <T> BenchmarkStats _singleMethodTest(C target, T input) throws ReflectiveOperationException {
-        long maxNanoTime = _MAX_DURATION.toNanos();
-        int clockChecks = 0;
-        int completedLoops = 0;
-        
-        long startTime;
-        if (_NEEDS_ARGS) {
-            startTime = System.nanoTime();
-            while ((System.nanoTime() - startTime) < maxNanoTime) {
-                clockChecks++;
-                for (int i = 0; i < _CLOCK_FREQ; i++) {
-                    try {
-                        _METHOD.invoke(target, input);
-                    } catch (ReflectiveOperationException e) {
-                        throw e;
-                    } catch (IllegalArgumentException e) {
-                        ClassRunner.printSkipMessage(_METHOD, e);
-                        System.out.println("Argument given: "+input);
-                    } catch (Exception e) {
-                        ClassRunner.printSkipMessage(_METHOD, e);
-                        throw new ReflectiveOperationException(e.getMessage());
-                    }
-                    // increment completedLoops before asking if max has been reached
-                    // to prevent extra loop from being performed and overflowing
-                    if (++completedLoops == Integer.MAX_VALUE) {
-                        break;
-                    }
+        if (!_INVOKER.accepts(input)) {
+            IllegalArgumentException e = new IllegalArgumentException("argument type mismatch");
+            ClassRunner.printSkipMessage(_METHOD, e);
+            System.out.println("Argument given: "+input);
+            throw new ReflectiveOperationException(e.getMessage());
+        }
+
+        Double size = FormatUtils.getPropertyByName(input, _SETTINGS.idName(), _SETTINGS.idIsMethod());
+        InputPool<Object> pool = null;
+        if (_SETTINGS.freshInput() && _NEEDS_ARGS) {
+            pool = new InputPool<>(input, _getCopier(input));
+        }
+        InvocationHooks invocationHooks = null;
+        if (_HOOKS.has(Level.INVOCATION)) {
+            invocationHooks = new InvocationHooks(_HOOKS, target, _NEEDS_ARGS ? input : null, pool);
+        }
+        BenchmarkLoop.Body baseline = Baseline.of(_METHOD, target, _NEEDS_ARGS ? input : null);
+        try {
+            if (pool == null && invocationHooks == null) {
+                return BenchmarkLoop.measure(() -> _INVOKER.invokeAndConsume(target, input),
+                                            _SETTINGS, size, baseline);
+            }
+            try {
+                if (pool == null) {
+                    return BenchmarkLoop.measure(() -> _INVOKER.invokeAndConsume(target, input),
+                                                    invocationHooks, _SETTINGS, size, baseline);
+                }
+                InputPool<Object> freshInputs = pool;
+                return BenchmarkLoop.measure(() -> _INVOKER.invokeAndConsume(target, freshInputs.take()),
+                                                (invocationHooks == null) ? freshInputs : invocationHooks,
+                                                _SETTINGS, size, baseline);
+            } finally {
+                if (invocationHooks != null) {
+                    invocationHooks.finish();
                 }
             }
-        } else {
-            startTime = System.nanoTime();
-            while ((System.nanoTime() - startTime) < maxNanoTime) {
-                clockChecks++;
-                for (int i = 0; i < _CLOCK_FREQ; i++) {
+        } catch (Throwable e) {
+            // Mirrors what Method.invoke() would have thrown for an exception inside the benchmark
+            throw new InvocationTargetException(e);
+        }
+    }
+
+    /**
+     * Finds the function to copy inputs with: the static method named by <code>inputCopier</code> if there is one,
+     * and otherwise whatever InputCopier can find for the input's class
+     * @param input An example of the inputs that will be copied
+     * @return A function returning a copy of its argument
+     * @throws ReflectiveOperationException If there's no usable copier
+     */
+    private UnaryOperator<Object> _getCopier(Object input) throws ReflectiveOperationException {
+        String copierName = _SETTINGS.inputCopier();
+        if (copierName.isEmpty()) {
+            try {
+                return InputCopier.forObject(input);
+            } catch (IllegalArgumentException e) {
+                ClassRunner.printSkipMessage(_METHOD, e);
+                throw new ReflectiveOperationException(e.getMessage());
+            }
+        }
+        for (Method method : _METHOD.getDeclaringClass().getMethods()) {
+            if (method.getName().equals(copierName) && Modifier.isStatic(method.getModifiers())
+                    && method.getParameterCount() == 1) {
+                MethodHandle copier = MethodHandles.publicLookup().unreflect(method)
+                                        .asType(MethodType.methodType(Object.class, Object.class));
+                return (Object original) -> {
                     try {
-                        _METHOD.invoke(target);
-                    } catch (ReflectiveOperationException e) {
+                        return (Object) copier.invokeExact(original);
+                    } catch (RuntimeException | Error e) {
                         throw e;
-                    } catch (Exception e) {
-                        ClassRunner.printSkipMessage(_METHOD, e);
-                        throw new ReflectiveOperationException(e.getMessage());
-                    }
-                    // increment completedLoops before asking if max has been reached
-                    // to prevent extra loop from being performed and overflowing
-                    if (++completedLoops == Integer.MAX_VALUE) {
-                        break;
+                    } catch (Throwable e) {
+                        throw new IllegalStateException("Input copier "+copierName+" failed", e);
                     }
-                }
+                };
             }
         }
-        long nanosElapsed = System.nanoTime() - startTime;
-
-        clockChecks++; // last check returned false, so it didn't increment
-        Duration elapsedTime = Duration.ofNanos(nanosElapsed);
-        Double size = FormatUtils.getPropertyByName(input, _ID_NAME);
-        return new BenchmarkStats(clockChecks, _CLOCK_FREQ, _MAX_DURATION, completedLoops, elapsedTime, size, _TEST_NAME);
+        throw new NoSuchMethodException("No public static method "+copierName+" with one parameter in "
+                                        +_METHOD.getDeclaringClass().getSimpleName());
     }
 
     /**
-     * Checks the provided method to make sure it's accessible and has the correct number of parameters
-     * @param method The method to check
-     * @param instance Instance of <code> method </code>'s declaring class
-     * @param expectedParamCount The number of parameters the method should have
-     * @return boolean indicating whether the method is valid
+     * Checks the provided method to make sure it's accessible and has the correct number of parameters. Instance
+     * methods are checked without creating a throwaway instance; an inaccessible one fails when it's bound instead.
      */
     private void _checkIfValid() throws IllegalArgumentException {
         int expectedParamCount = _NEEDS_ARGS ? 1 : 0;
         boolean paramCountCorrect = _METHOD.getParameterCount() == expectedParamCount;
-
-        StringBuilder errors = new StringBuilder(_TEST_NAME);
-        errors.append("has the following errors:\n");
         if (!paramCountCorrect) {
             throw new IllegalArgumentException("Wrong number of params for method "+_METHOD.getName()+": expected <"+expectedParamCount+"> but got <"+_METHOD.getParameterCount()+">");
         }
 
-        if (_IS_STATIC && !_METHOD.canAccess(null)) {
+        if (!Modifier.isPublic(_METHOD.getModifiers()) || !Modifier.isPublic(_METHOD.getDeclaringClass().getModifiers())) {
             throw new IllegalArgumentException("Unable to access method "+_METHOD.getName());
-        } else if (!_IS_STATIC) {
-            Object instance = ClassRunner.createNewInstance(_METHOD.getDeclaringClass());
-            if (instance == null || !_METHOD.canAccess(instance)) {
-                throw new IllegalArgumentException("Unable to access method "+_METHOD.getName());
-            }
         }
     }
 
@@ -0,0 +1,362 @@
+package com.slc.tools.runners;
+
+import java.lang.reflect.Method;
+import java.time.Duration;
+
+import com.slc.tools.annotations.Benchmarkable;
+import com.slc.tools.annotations.SamplingMode;
+
+/**
+ * Bundles together all of the options for a single benchmark, so that LambdaRunner can take the same options
+ * as a <code>@Benchmarkable</code> annotation without needing a new overload for every option.
+ * RunSettings objects are immutable; each <code>with</code> method returns a modified copy.
+ */
+public final class RunSettings {
+    private Duration _maxDuration = Duration.ofNanos(1_000_000_000);
+    private int _clockFrequency = 15;
+    private double _maxClockOverhead = 0.01;
+    private String _idName = "size";
+    private boolean _idIsMethod = true;
+    private String _testName = "";
+    private SamplingMode _samplingMode = SamplingMode.NONE;
+    private int _warmupIterations = 0;
+    private Duration _warmupDuration = Duration.ofNanos(100_000_000);
+    private int _measurementIterations = 1;
+    private double _targetRelativeError = 0;
+    private int _maxMeasurementIterations = 1;
+    private Duration _measurementBudget = Duration.ZERO;
+    private int _threads = 1;
+    private double _arrivalRate = 0;
+    private boolean _freshInput = false;
+    private String _inputCopier = "";
+
+    private RunSettings() {    }
+
+    private RunSettings(RunSettings original) {
+        _maxDuration = original._maxDuration;
+        _clockFrequency = original._clockFrequency;
+        _maxClockOverhead = original._maxClockOverhead;
+        _idName = original._idName;
+        _idIsMethod = original._idIsMethod;
+        _testName = original._testName;
+        _samplingMode = original._samplingMode;
+        _warmupIterations = original._warmupIterations;
+        _warmupDuration = original._warmupDuration;
+        _measurementIterations = original._measurementIterations;
+        _targetRelativeError = original._targetRelativeError;
+        _maxMeasurementIterations = original._maxMeasurementIterations;
+        _measurementBudget = original._measurementBudget;
+        _threads = original._threads;
+        _arrivalRate = original._arrivalRate;
+        _freshInput = original._freshInput;
+        _inputCopier = original._inputCopier;
+    }
+
+    /**
+     * Creates a RunSettings object with the same defaults as <code>@Benchmarkable</code>
+     * @return The default settings
+     */
+    public static RunSettings defaults() {
+        return new RunSettings();
+    }
+
+    /**
+     * Copies the settings out of a method's <code>@Benchmarkable</code> annotation, naming the test with
+     * <code>testNameOf()</code>
+     * @param method A Benchmarkable method
+     * @return The settings its annotation specifies
+     * @throws IllegalArgumentException If its annotation's settings are out of range
+     */
+    public static RunSettings from(Method method) throws IllegalArgumentException {
+        RunSettings settings;
+        try {
+            settings = from(method.getAnnotation(Benchmarkable.class));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid settings for method "+method.getName()+": "+e.getMessage(), e);
+        }
+        settings._testName = testNameOf(method);
+        return settings;
+    }
+
+    /**
+     * The name every runner gives a Benchmarkable method's results, so that the results of different methods in
+     * one suite, or of the same method under different runners, never share a name by accident
+     * @param method A Benchmarkable method
+     * @return Its annotation's testName, or the method's own name if that's empty
+     */
+    public static String testNameOf(Method method) {
+        Benchmarkable annotation = method.getAnnotation(Benchmarkable.class);
+        return (annotation == null || annotation.testName().isEmpty()) ? method.getName() : annotation.testName();
+    }
+
+    /**
+     * Copies the settings out of a <code>@Benchmarkable</code> annotation
+     * @param annotation The annotation to read
+     * @return The settings it specifies
+     * @throws IllegalArgumentException If its settings are out of range, e.g. fewer than one measurement iteration
+     */
+    public static RunSettings from(Benchmarkable annotation) throws IllegalArgumentException {
+        RunSettings settings = new RunSettings();
+        settings._maxDuration = Duration.ofNanos(annotation.nanoTime());
+        settings._clockFrequency = annotation.clockFrequency();
+        settings._maxClockOverhead = annotation.maxClockOverhead();
+        settings._idName = annotation.idName();
+        settings._idIsMethod = annotation.idIsMethod();
+        settings._testName = annotation.testName();
+        settings._samplingMode = annotation.samplingMode();
+        settings._warmupIterations = annotation.warmupIterations();
+        settings._warmupDuration = Duration.ofNanos(annotation.warmupNanoTime());
+        settings = settings.withMeasurementIterations(annotation.measurementIterations());
+        if (annotation.targetRelativeError() > 0) {
+            settings = settings.withAdaptiveIterations(annotation.targetRelativeError(),
+                                                        annotation.maxMeasurementIterations(),
+                                                        Duration.ofNanos(annotation.measurementBudgetNanoTime()));
+        }
+        settings._threads = annotation.threads();
+        settings._freshInput = annotation.freshInput() || !annotation.inputCopier().isEmpty();
+        settings._inputCopier = annotation.inputCopier();
+        return settings;
+    }
+
+    public RunSettings withMaxDuration(Duration maxDuration) {
+        RunSettings copy = new RunSettings(this);
+        copy._maxDuration = maxDuration;
+        return copy;
+    }
+
+    public RunSettings withClockFrequency(int clockFrequency) {
+        RunSettings copy = new RunSettings(this);
+        copy._clockFrequency = clockFrequency;
+        return copy;
+    }
+
+    /**
+     * Lets the loop decide how many calls to make between clock checks, instead of using a fixed clockFrequency.
+     * Batches start at one call and double until reading the clock costs no more than the given fraction of
+     * the measured time, and are cut short so that they don't run past the maximum duration.
+     * @param maxClockOverhead The largest fraction of time that may be spent reading the clock, e.g. 0.01 for 1%
+     * @return A modified copy of these settings
+     */
+    public RunSettings withAdaptiveClock(double maxClockOverhead) {
+        if (maxClockOverhead <= 0 || maxClockOverhead >= 1) {
+            throw new IllegalArgumentException("Clock overhead must be between 0 and 1, but got "+maxClockOverhead);
+        }
+        RunSettings copy = new RunSettings(this);
+        copy._clockFrequency = Benchmarkable.ADAPTIVE_CLOCK;
+        copy._maxClockOverhead = maxClockOverhead;
+        return copy;
+    }
+
+    public RunSettings withId(String idName, boolean idIsMethod) {
+        RunSettings copy = new RunSettings(this);
+        copy._idName = idName;
+        copy._idIsMethod = idIsMethod;
+        return copy;
+    }
+
+    public RunSettings withTestName(String testName) {
+        RunSettings copy = new RunSettings(this);
+        copy._testName = testName;
+        return copy;
+    }
+
+    public RunSettings withSamplingMode(SamplingMode samplingMode) {
+        RunSettings copy = new RunSettings(this);
+        copy._samplingMode = samplingMode;
+        return copy;
+    }
+
+    /**
+     * Sets how many discarded warmup iterations to run before measuring. If the JIT compiler is still busy
+     * after that many, up to twice as many extra iterations are run until it settles.
+     * @param iterations The minimum number of warmup iterations; 0 disables warmup
+     * @param duration How long each warmup iteration should run for
+     * @return A modified copy of these settings
+     */
+    public RunSettings withWarmup(int iterations, Duration duration) {
+        RunSettings copy = new RunSettings(this);
+        copy._warmupIterations = iterations;
+        copy._warmupDuration = duration;
+        return copy;
+    }
+
+    /**
+     * Sets how many times to measure each input. Each iteration runs for the full maximum duration.
+     * @param iterations The number of measured iterations; must be at least 1
+     * @return A modified copy of these settings
+     */
+    public RunSettings withMeasurementIterations(int iterations) {
+        if (iterations < 1) {
+            throw new IllegalArgumentException("Must run at least one measurement iteration, but got "+iterations);
+        }
+        RunSettings copy = new RunSettings(this);
+        copy._measurementIterations = iterations;
+        return copy;
+    }
+
+    /**
+     * Keeps measuring iterations until the median time is known precisely enough, instead of running a fixed
+     * number. After each iteration (once at least <code>measurementIterations</code>, and at least five, have run)
+     * the bootstrap confidence interval of the median is recalculated, and measuring stops as soon as its half-width
+     * is within the target fraction of the median, the maximum number of iterations have run, or the budget has been
+     * spent. Quiet benchmarks stop early, and only noisy ones spend the extra time. Each iteration still runs for
+     * the full maximum duration, so a shorter duration gives finer-grained stopping.
+     * @param targetRelativeError The precision to aim for, e.g. 0.01 for the median to within 1%; 0 goes back to a
+     * fixed number of iterations
+     * @param maxIterations The most iterations to measure
+     * @param budget The most time to spend measuring each input, or <code>Duration.ZERO</code> for no limit
+     * @return A modified copy of these settings
+     */
+    public RunSettings withAdaptiveIterations(double targetRelativeError, int maxIterations, Duration budget) {
+        if (targetRelativeError < 0) {
+            throw new IllegalArgumentException("Target relative error can't be negative, but got "+targetRelativeError);
+        }
+        if (maxIterations < 1) {
+            throw new IllegalArgumentException("Must run at least one measurement iteration, but got "+maxIterations);
+        }
+        RunSettings copy = new RunSettings(this);
+        copy._targetRelativeError = targetRelativeError;
+        copy._maxMeasurementIterations = maxIterations;
+        copy._measurementBudget = budget;
+        return copy;
+    }
+
+    /**
+     * Sets how many threads should call the benchmark at the same time. Every thread calls the same target with
+     * the same input, so this measures how well it holds up under contention.
+     * @param threads The number of threads; must be at least 1
+     * @return A modified copy of these settings
+     */
+    public RunSettings withThreads(int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Must use at least one thread, but got "+threads);
+        }
+        RunSettings copy = new RunSettings(this);
+        copy._threads = threads;
+        return copy;
+    }
+
+    /**
+     * Switches from a closed loop, where each call starts as soon as the last one finishes, to an open loop, where
+     * calls are started at a fixed rate on their own virtual threads whether or not earlier calls have finished.
+     * This is how load arrives at a real service, and the recorded latencies include any time a call spent
+     * waiting to start (i.e. they are corrected for coordinated omission).
+     * @param callsPerSecond How many calls to start per second; 0 goes back to a closed loop
+     * @return A modified copy of these settings
+     */
+    public RunSettings withArrivalRate(double callsPerSecond) {
+        if (callsPerSecond < 0) {
+            throw new IllegalArgumentException("Arrival rate can't be negative, but got "+callsPerSecond);
+        }
+        RunSettings copy = new RunSettings(this);
+        copy._arrivalRate = callsPerSecond;
+        return copy;
+    }
+
+    /**
+     * Gives every call its own copy of the input, for benchmarks that modify their input. The copies are made
+     * before each batch of calls with the clock stopped, so copying isn't included in the measured time (or in the
+     * bytes allocated). Only works with a single thread and a closed loop.
+     * @param freshInput Whether to give every call a fresh copy
+     * @return A modified copy of these settings
+     */
+    public RunSettings withFreshInput(boolean freshInput) {
+        RunSettings copy = new RunSettings(this);
+        copy._freshInput = freshInput;
+        return copy;
+    }
+
+    public Duration maxDuration() {
+        return _maxDuration;
+    }
+
+    public int clockFrequency() {
+        return _clockFrequency;
+    }
+
+    public double maxClockOverhead() {
+        return _maxClockOverhead;
+    }
+
+    /**
+     * @return Whether batch sizes are chosen adaptively, i.e. clockFrequency is <code>Benchmarkable.ADAPTIVE_CLOCK</code>
+     */
+    public boolean isAdaptiveClock() {
+        return _clockFrequency <= Benchmarkable.ADAPTIVE_CLOCK;
+    }
+
+    public String idName() {
+        return _idName;
+    }
+
+    public boolean idIsMethod() {
+        return _idIsMethod;
+    }
+
+    public String testName() {
+        return _testName;
+    }
+
+    public SamplingMode samplingMode() {
+        return _samplingMode;
+    }
+
+    public int warmupIterations() {
+        return _warmupIterations;
+    }
+
+    public Duration warmupDuration() {
+        return _warmupDuration;
+    }
+
+    public int measurementIterations() {
+        return _measurementIterations;
+    }
+
+    /**
+     * @return The relative error adaptive iterations aim for, or 0 if a fixed number of iterations are measured
+     */
+    public double targetRelativeError() {
+        return _targetRelativeError;
+    }
+
+    public int maxMeasurementIterations() {
+        return _maxMeasurementIterations;
+    }
+
+    /**
+     * @return The most time adaptive iterations may spend measuring each input, or zero for no limit
+     */
+    public Duration measurementBudget() {
+        return _measurementBudget;
+    }
+
+    public boolean isAdaptiveIterations() {
+        return _targetRelativeError > 0;
+    }
+
+    public int threads() {
+        return _threads;
+    }
+
+    public double arrivalRate() {
+        return _arrivalRate;
+    }
+
+    public boolean freshInput() {
+        return _freshInput;
+    }
+
+    /**
+     * @return The name of a static method in the benchmark's class that copies its input, or an empty String to
+     * copy it automatically
+     */
+    public String inputCopier() {
+        return _inputCopier;
+    }
+
+    public boolean isOpenLoop() {
+        return _arrivalRate > 0;
+    }
+
+}
@@ -0,0 +1,85 @@
+package com.slc.tools.runners;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.slc.tools.annotations.CpuPolicy;
+
+/**
+ * Spreads independent benchmark units across a fixed pool of worker threads.
+ * Units that share a "lane" (i.e. that call methods on the same target object) still run one at a time,
+ * in the order they were submitted, so a shared instance is never used by two workers at once.
+ *
+ * <p> Java can't pin threads to cores, so the EXCLUSIVE policy instead caps the number of units running at once
+ * to the number of spare cores, using a permit pool shared by every scheduler in the JVM.
+ */
+final class SuiteScheduler implements AutoCloseable {
+    /** Leaves one core free for the JIT compiler and garbage collector */
+    private static final int _SPARE_CORES = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+    private static final Semaphore _EXCLUSIVE_CORES = new Semaphore(_SPARE_CORES, true);
+
+    private final ExecutorService _EXECUTOR;
+    private final boolean _IS_EXCLUSIVE;
+    private final Map<Object, CompletableFuture<?>> _lanes = new IdentityHashMap<>();
+
+    SuiteScheduler(SuiteSettings settings) {
+        _IS_EXCLUSIVE = settings.cpuPolicy() == CpuPolicy.EXCLUSIVE;
+        int threads = _IS_EXCLUSIVE ? Math.min(settings.threads(), _SPARE_CORES) : settings.threads();
+        AtomicInteger threadNumber = new AtomicInteger();
+        _EXECUTOR = Executors.newFixedThreadPool(threads, (Runnable task) -> {
+            Thread worker = new Thread(task, "benchmark-worker-" + threadNumber.incrementAndGet());
+            worker.setDaemon(true);
+            return worker;
+        });
+    }
+
+    /**
+     * Schedules a unit of work to run as soon as a worker is free
+     * @param <T> The type of the unit's result
+     * @param lane An object which every unit that must not run concurrently with this one shares, or null if
+     * this unit is completely independent
+     * @param unit The work to run
+     * @return A future holding the unit's result, or a CompletionException wrapping whatever it threw
+     */
+    <T> CompletableFuture<T> submit(Object lane, Callable<T> unit) {
+        if (lane == null) {
+            return CompletableFuture.supplyAsync(() -> _runGuarded(unit), _EXECUTOR);
+        }
+        CompletableFuture<?> previous = _lanes.getOrDefault(lane, CompletableFuture.completedFuture(null));
+        CompletableFuture<T> next = previous.handle((result, e) -> null)
+                                            .thenApplyAsync((ignored) -> _runGuarded(unit), _EXECUTOR);
+        _lanes.put(lane, next);
+        return next;
+    }
+
+    @Override
+    public void close() {
+        _EXECUTOR.shutdown();
+    }
+
+    private <T> T _runGuarded(Callable<T> unit) {
+        boolean holdsCore = false;
+        try {
+            if (_IS_EXCLUSIVE) {
+                _EXCLUSIVE_CORES.acquire();
+                holdsCore = true;
+            }
+            return unit.call();
+        } catch (CompletionException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new CompletionException(e);
+        } finally {
+            if (holdsCore) {
+                _EXCLUSIVE_CORES.release();
+            }
+        }
+    }
+}
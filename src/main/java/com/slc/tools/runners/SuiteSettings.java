@@ -0,0 +1,104 @@
+package com.slc.tools.runners;
+
+import java.util.List;
+
+import com.slc.tools.annotations.BenchmarkSuite;
+import com.slc.tools.annotations.CpuPolicy;
+
+/**
+ * Bundles together the options that apply to a whole <code>@BenchmarkSuite</code> rather than a single method,
+ * so they can be overridden when calling ClassRunner. SuiteSettings objects are immutable; each
+ * <code>with</code> method returns a modified copy.
+ */
+public final class SuiteSettings {
+    private int _forks = 0;
+    private List<String> _jvmArgs = List.of();
+    private int _threads = 1;
+    private CpuPolicy _cpuPolicy = CpuPolicy.SHARED;
+
+    private SuiteSettings() {    }
+
+    private SuiteSettings(SuiteSettings original) {
+        _forks = original._forks;
+        _jvmArgs = original._jvmArgs;
+        _threads = original._threads;
+        _cpuPolicy = original._cpuPolicy;
+    }
+
+    /**
+     * Creates a SuiteSettings object with the same defaults as <code>@BenchmarkSuite</code>
+     * @return The default settings
+     */
+    public static SuiteSettings defaults() {
+        return new SuiteSettings();
+    }
+
+    /**
+     * Copies the suite-wide settings out of a <code>@BenchmarkSuite</code> annotation
+     * @param annotation The annotation to read
+     * @return The settings it specifies
+     */
+    public static SuiteSettings from(BenchmarkSuite annotation) {
+        return new SuiteSettings()
+                    .withForks(annotation.forks(), annotation.jvmArgs())
+                    .withThreads(annotation.threads(), annotation.cpuPolicy());
+    }
+
+    /**
+     * Sets how many separate child JVMs each method should be run in
+     * @param forks The number of forks; 0 runs everything in the current JVM
+     * @param jvmArgs Extra flags to launch each child JVM with, e.g. "-Xmx2g" or "-XX:+UseParallelGC"
+     * @return A modified copy of these settings
+     */
+    public SuiteSettings withForks(int forks, String... jvmArgs) {
+        if (forks < 0) {
+            throw new IllegalArgumentException("Number of forks can't be negative, but got "+forks);
+        }
+        SuiteSettings copy = new SuiteSettings(this);
+        copy._forks = forks;
+        copy._jvmArgs = List.of(jvmArgs);
+        return copy;
+    }
+
+    /**
+     * Sets how many benchmarks may run at the same time
+     * @param threads The number of worker threads; 1 runs every benchmark one after another
+     * @param cpuPolicy SHARED lets workers share cores freely; EXCLUSIVE never runs more benchmarks at once
+     * than there are spare cores, even across separate suites running at the same time
+     * @return A modified copy of these settings
+     */
+    public SuiteSettings withThreads(int threads, CpuPolicy cpuPolicy) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Must use at least one thread, but got "+threads);
+        }
+        SuiteSettings copy = new SuiteSettings(this);
+        copy._threads = threads;
+        copy._cpuPolicy = cpuPolicy;
+        return copy;
+    }
+
+    public int forks() {
+        return _forks;
+    }
+
+    public List<String> jvmArgs() {
+        return _jvmArgs;
+    }
+
+    public int threads() {
+        return _threads;
+    }
+
+    public CpuPolicy cpuPolicy() {
+        return _cpuPolicy;
+    }
+
+    public boolean isForked() {
+        return _forks > 0;
+    }
+
+    public boolean isParallel() {
+        return _threads > 1;
+    }
+
+}
@@ -1,15 +1,61 @@
 package com.slc.tools.util;
 
+import java.io.Serializable;
 import java.time.Duration;
 import java.util.List;
 
 public record BenchmarkStats(int clockChecks, int loopsBetweenChecks, Duration maxDuration,
+                    int loopsCompleted, Duration actualTimeElapsed, Double size, String testName,
+                    double overheadNanos, LatencyPercentiles latency, IterationStats iterations,
+                    ThreadStats threadStats, LoadStats load, MemoryStats memory)
+                    implements Serializable {
+    /** How close to the empty baseline a single measurement can be before it's flagged */
+    private static final double _BASELINE_TOLERANCE = 0.1;
+
+    /** Creates a BenchmarkStats object with only the basic loop counts and times filled in */
+    public BenchmarkStats(int clockChecks, int loopsBetweenChecks, Duration maxDuration,
                     int loopsCompleted, Duration actualTimeElapsed, Double size, String testName) {
+        this(clockChecks, loopsBetweenChecks, maxDuration, loopsCompleted, actualTimeElapsed, size, testName, 0, null, null, null, null, null);
+    }
 
     public long averageTimeNanos() {
         return actualTimeElapsed.toNanos() / loopsCompleted;
     }
 
+    /**
+     * The average time per call as measured, including the harness's own overhead. Unlike
+     * <code>averageTimeNanos()</code>, this isn't rounded down to a whole number of nanoseconds.
+     * @return The raw time per call in nanoseconds
+     */
+    public double rawTimeNanos() {
+        return (double) actualTimeElapsed.toNanos() / loopsCompleted;
+    }
+
+    /**
+     * The average time per call with the empty baseline (<code>overheadNanos</code>) subtracted out, floored at zero
+     * @return The net time per call in nanoseconds
+     */
+    public double netTimeNanos() {
+        return Math.max(0, rawTimeNanos() - overheadNanos);
+    }
+
+    /**
+     * Checks whether this benchmark's time per call can't be told apart from the empty baseline (i.e. the harness
+     * overhead), which usually means the JIT compiler has optimized the work away. With several measurement
+     * iterations, that means the baseline falls inside the confidence interval; otherwise, it means the net time
+     * is less than a tenth of the baseline.
+     * @return True if this result is suspiciously fast; false if it isn't, or if there's no baseline to compare to
+     */
+    public boolean isIndistinguishableFromBaseline() {
+        if (overheadNanos <= 0 || loopsCompleted <= 0) {
+            return false;
+        }
+        if (iterations != null && iterations.averageTimesNanos().length > 1) {
+            return iterations.confidenceLow() <= overheadNanos;
+        }
+        return netTimeNanos() <= overheadNanos * _BASELINE_TOLERANCE;
+    }
+
     /** Returns a String representation of this object. It's a lot longer than most toString() methods
      * because it's intended solely for printing to System.out.
      * @returns the String representation
@@ -45,6 +91,55 @@ public record BenchmarkStats(int clockChecks, int loopsBetweenChecks, Duration m
         sb.append(averageTimeNanos());
         sb.append(" ns \n");
 
+        if (overheadNanos > 0) {
+            sb.append("Raw Time Per Call:        ");
+            sb.append(String.format("%.2f", rawTimeNanos()));
+            sb.append(" ns \n");
+
+            sb.append("Empty Baseline:           ");
+            sb.append(String.format("%.2f", overheadNanos));
+            sb.append(" ns \n");
+
+            sb.append("Net Time Per Call:        ");
+            sb.append(String.format("%.2f", netTimeNanos()));
+            sb.append(" ns \n");
+
+            if (isIndistinguishableFromBaseline()) {
+                sb.append("WARNING: This is indistinguishable from an empty method; the JIT compiler may have ");
+                sb.append("removed the work being measured.\n");
+            }
+        }
+
+        if (latency != null) {
+            sb.append("Latency Percentiles:      ");
+            sb.append(latency);
+            sb.append("\n");
+        }
+
+        if (iterations != null) {
+            sb.append("Iterations:               ");
+            sb.append(iterations);
+            sb.append("\n");
+        }
+
+        if (threadStats != null) {
+            sb.append("Threads:                  ");
+            sb.append(threadStats);
+            sb.append("\n");
+        }
+
+        if (load != null) {
+            sb.append("Open-Loop Load:           ");
+            sb.append(load);
+            sb.append("\n");
+        }
+
+        if (memory != null) {
+            sb.append("Memory:                   ");
+            sb.append(memory);
+            sb.append("\n");
+        }
+
         return sb.toString();
     }
 
@@ -58,6 +153,49 @@ public record BenchmarkStats(int clockChecks, int loopsBetweenChecks, Duration m
                         && testName != null;
     }
 
+    /**
+     * Combines several measurements of the same test and size (e.g. from separate forked JVMs) into one.
+     * Loop counts and elapsed times are summed, harness overhead is averaged, latency histograms are merged (see
+     * <code>LatencyPercentiles.merge()</code>), thread and load results are combined, and each measurement's
+     * average time becomes one sample in the combined IterationStats.
+     * @param samples The measurements to combine; null elements are ignored
+     * @return The combined measurement, or null if every element was null
+     */
+    public static BenchmarkStats combine(List<BenchmarkStats> samples) {
+        List<BenchmarkStats> present = samples.stream().filter(stat -> stat != null).toList();
+        if (present.isEmpty()) {
+            return null;
+        }
+        if (present.size() == 1) {
+            return present.get(0);
+        }
+
+        BenchmarkStats first = present.get(0);
+        int clockChecks = 0;
+        long loopsCompleted = 0;
+        long nanosElapsed = 0;
+        double overheadTotal = 0;
+        double[] averageTimes = new double[present.size()];
+        for (int i = 0; i < averageTimes.length; i++) {
+            BenchmarkStats sample = present.get(i);
+            clockChecks += sample.clockChecks();
+            loopsCompleted += sample.loopsCompleted();
+            nanosElapsed += sample.actualTimeElapsed().toNanos();
+            overheadTotal += sample.overheadNanos();
+            averageTimes[i] = (double) sample.actualTimeElapsed().toNanos() / sample.loopsCompleted();
+        }
+
+        int warmups = (first.iterations() == null) ? 0 : first.iterations().warmupIterations();
+        MemoryStats memory = MemoryStats.combine(present.stream().map(BenchmarkStats::memory).toList(), loopsCompleted);
+        return new BenchmarkStats(clockChecks, first.loopsBetweenChecks(), first.maxDuration(),
+                                (int) Math.min(loopsCompleted, Integer.MAX_VALUE), Duration.ofNanos(nanosElapsed),
+                                first.size(), first.testName(), overheadTotal / present.size(),
+                                LatencyPercentiles.merge(present.stream().map(BenchmarkStats::latency).toList()),
+                                IterationStats.of(warmups, averageTimes),
+                                ThreadStats.combine(present.stream().map(BenchmarkStats::threadStats).toList()),
+                                LoadStats.combine(present.stream().map(BenchmarkStats::load).toList()), memory);
+    }
+
     public static String getTestNameFromList(List<BenchmarkStats> list) throws NullPointerException {
         for (BenchmarkStats stat : list) {
             if (stat != null) {
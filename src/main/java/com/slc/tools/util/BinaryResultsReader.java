@@ -0,0 +1,196 @@
+package com.slc.tools.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.stream.DoubleStream;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+
+/**
+ * Reads a file written by BinaryResultsWriter by memory-mapping it, so results can be scanned and aggregated
+ * straight out of the file without turning each one back into a BenchmarkStats object. Only the (small) table of
+ * test names is decoded up front; every other value is read from the mapped file when it's asked for.
+ *
+ * <p> Rows are numbered from 0 in the order they were written. Since a single mapping is limited to 2 GB,
+ * a file can hold up to about 20 million results.
+ */
+public class BinaryResultsReader {
+
+    /**
+     * The columns stored in the file, in the order they appear. Every column is 8 bytes per row; floating-point
+     * columns hold the raw bits of a double, and the rest hold a long.
+     */
+    public enum Column {
+        /** Index into the file's table of test names */
+        TEST_NAME(false),
+        /** The benchmark's size ID, or NaN if it had none */
+        SIZE(true),
+        CLOCK_CHECKS(false),
+        LOOPS_COMPLETED(false),
+        MAX_DURATION_NANOS(false),
+        ELAPSED_NANOS(false),
+        OVERHEAD_NANOS(true),
+        /** Latency percentiles in nanoseconds, or -1 if latency wasn't sampled */
+        P50_NANOS(false),
+        P90_NANOS(false),
+        P99_NANOS(false),
+        P999_NANOS(false),
+        MAX_NANOS(false),
+        /** Bytes allocated while measuring, or -1 if unknown */
+        BYTES_ALLOCATED(false);
+
+        private final boolean _isFloatingPoint;
+
+        Column(boolean isFloatingPoint) {
+            _isFloatingPoint = isFloatingPoint;
+        }
+
+        public boolean isFloatingPoint() {
+            return _isFloatingPoint;
+        }
+    }
+
+    static final int MAGIC = 0x41425452; // "ABTR"
+    static final int VERSION = 1;
+    /** Magic number, version, row count, string count, and string table offset */
+    static final int HEADER_BYTES = 4 + 4 + 4 + 4 + 8;
+    static final int COLUMN_WIDTH = 8;
+
+    private final MappedByteBuffer _DATA;
+    private final int _ROWS;
+    private final String[] _TEST_NAMES;
+
+    private BinaryResultsReader(MappedByteBuffer data) throws IOException {
+        _DATA = data;
+        if (data.capacity() < HEADER_BYTES || data.getInt(0) != MAGIC) {
+            throw new IOException("Not a binary results file");
+        }
+        int version = data.getInt(4);
+        if (version != VERSION) {
+            throw new IOException("Unsupported binary results version "+version);
+        }
+        _ROWS = data.getInt(8);
+        _TEST_NAMES = new String[data.getInt(12)];
+
+        ByteBuffer strings = data.duplicate().position((int) data.getLong(16));
+        for (int i = 0; i < _TEST_NAMES.length; i++) {
+            byte[] utf8 = new byte[strings.getInt()];
+            strings.get(utf8);
+            _TEST_NAMES[i] = new String(utf8, StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * Maps a binary results file into memory
+     * @param file The file to read
+     * @return A reader over the whole file
+     * @throws IOException If the file can't be read, or wasn't written by BinaryResultsWriter
+     */
+    public static BinaryResultsReader open(File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            // The mapping stays valid after the channel is closed
+            return new BinaryResultsReader(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    public static BinaryResultsReader open(String pathname) throws IOException {
+        return open(new File(pathname));
+    }
+
+    /**
+     * @return The number of results (rows) in the file
+     */
+    public int size() {
+        return _ROWS;
+    }
+
+    public String testName(int row) {
+        return _TEST_NAMES[(int) getLong(Column.TEST_NAME, row)];
+    }
+
+    /**
+     * Reads one value, converting floating-point columns to the nearest long
+     * @param column The column to read
+     * @param row The row to read
+     * @return The value stored there
+     */
+    public long getLong(Column column, int row) {
+        long raw = _DATA.getLong(_offset(column, row));
+        return column.isFloatingPoint() ? (long) Double.longBitsToDouble(raw) : raw;
+    }
+
+    /**
+     * Reads one value as a double, whatever type of column it's in
+     * @param column The column to read
+     * @param row The row to read
+     * @return The value stored there
+     */
+    public double getDouble(Column column, int row) {
+        long raw = _DATA.getLong(_offset(column, row));
+        return column.isFloatingPoint() ? Double.longBitsToDouble(raw) : raw;
+    }
+
+    /**
+     * @param row The row to read
+     * @return The mean time per call in nanoseconds, as in BenchmarkStats.averageTimeNanos()
+     */
+    public double averageTimeNanos(int row) {
+        return (double) getLong(Column.ELAPSED_NANOS, row) / getLong(Column.LOOPS_COMPLETED, row);
+    }
+
+    /**
+     * Scans a whole column, e.g. <code>reader.longColumn(Column.P99_NANOS).max()</code>
+     * @param column The column to scan
+     * @return Its values in row order
+     */
+    public LongStream longColumn(Column column) {
+        return IntStream.range(0, _ROWS).mapToLong((row) -> getLong(column, row));
+    }
+
+    /**
+     * Scans a whole column as doubles, e.g. <code>reader.doubleColumn(Column.OVERHEAD_NANOS).average()</code>
+     * @param column The column to scan
+     * @return Its values in row order
+     */
+    public DoubleStream doubleColumn(Column column) {
+        return IntStream.range(0, _ROWS).mapToDouble((row) -> getDouble(column, row));
+    }
+
+    /**
+     * Finds every row belonging to one test, comparing name indexes rather than the names themselves
+     * @param testName The test to look for
+     * @return The matching rows in order; empty if there are none
+     */
+    public IntStream rowsFor(String testName) {
+        for (int i = 0; i < _TEST_NAMES.length; i++) {
+            if (_TEST_NAMES[i].equals(testName)) {
+                long nameIndex = i;
+                return IntStream.range(0, _ROWS).filter((row) -> getLong(Column.TEST_NAME, row) == nameIndex);
+            }
+        }
+        return IntStream.empty();
+    }
+
+    /**
+     * Works out where a value is stored, given that every column is stored contiguously after the header
+     * @param column The column to look in
+     * @param row The row to look at
+     * @param rows The total number of rows in the file
+     * @return The byte offset from the start of the file
+     */
+    static long offset(Column column, int row, int rows) {
+        return HEADER_BYTES + ((long) column.ordinal() * rows + row) * COLUMN_WIDTH;
+    }
+
+    private int _offset(Column column, int row) {
+        if (row < 0 || row >= _ROWS) {
+            throw new IndexOutOfBoundsException("Row "+row+" out of bounds for "+_ROWS+" rows");
+        }
+        return (int) offset(column, row, _ROWS);
+    }
+}
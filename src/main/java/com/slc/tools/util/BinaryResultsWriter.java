@@ -0,0 +1,137 @@
+package com.slc.tools.util;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import com.slc.tools.util.BinaryResultsReader.Column;
+
+/**
+ * Saves results in a compact, columnar binary format instead of JSON. Each value takes a fixed 8 bytes and
+ * test names are stored once each in a string table, so large sweeps take a fraction of the space of
+ * <code>Jsonifier.jsonify()</code>'s output and can be read back with BinaryResultsReader without parsing.
+ *
+ * <p> Only the headline numbers are saved: size, clock checks, loops, durations, harness overhead,
+ * latency percentiles and bytes allocated. Use Jsonifier if you need everything.
+ *
+ * <p> Results are held as primitive columns until <code>write()</code> is called, which overwrites the file.
+ */
+public class BinaryResultsWriter {
+    private static final int _COLUMNS = Column.values().length;
+
+    private final List<String> _testNames = new ArrayList<>();
+    private final Map<String, Integer> _testNameIndexes = new HashMap<>();
+    private long[][] _columns = new long[_COLUMNS][64];
+    private int _rows;
+    private File _destinationFile;
+
+    public BinaryResultsWriter() {
+        this("src/main/output/results.bin");
+    }
+
+    public BinaryResultsWriter(String savePath) {
+        setFile(savePath);
+    }
+
+    public void add(BenchmarkStats stat) {
+        if (stat == null) {
+            return;
+        }
+        if (_rows == _columns[0].length) {
+            for (int c = 0; c < _COLUMNS; c++) {
+                _columns[c] = Arrays.copyOf(_columns[c], _rows * 2);
+            }
+        }
+        String testName = (stat.testName() == null) ? "" : stat.testName();
+        int nameIndex = _testNameIndexes.computeIfAbsent(testName, (name) -> {
+            _testNames.add(name);
+            return _testNames.size() - 1;
+        });
+        LatencyPercentiles latency = stat.latency();
+        MemoryStats memory = stat.memory();
+
+        _set(Column.TEST_NAME, nameIndex);
+        _set(Column.SIZE, Double.doubleToRawLongBits(stat.size() == null ? Double.NaN : stat.size()));
+        _set(Column.CLOCK_CHECKS, stat.clockChecks());
+        _set(Column.LOOPS_COMPLETED, stat.loopsCompleted());
+        _set(Column.MAX_DURATION_NANOS, stat.maxDuration().toNanos());
+        _set(Column.ELAPSED_NANOS, stat.actualTimeElapsed().toNanos());
+        _set(Column.OVERHEAD_NANOS, Double.doubleToRawLongBits(stat.overheadNanos()));
+        _set(Column.P50_NANOS, latency == null ? -1 : latency.p50());
+        _set(Column.P90_NANOS, latency == null ? -1 : latency.p90());
+        _set(Column.P99_NANOS, latency == null ? -1 : latency.p99());
+        _set(Column.P999_NANOS, latency == null ? -1 : latency.p999());
+        _set(Column.MAX_NANOS, latency == null ? -1 : latency.max());
+        _set(Column.BYTES_ALLOCATED, memory == null ? -1 : memory.bytesAllocated());
+        _rows++;
+    }
+
+    public void add(List<BenchmarkStats> stats) {
+        stats.forEach(this::add);
+    }
+
+    public void add(Stream<BenchmarkStats> stats) {
+        stats.forEachOrdered(this::add);
+    }
+
+    public void setFile(File file) {
+        _destinationFile = file;
+    }
+
+    public void setFile(String pathname) {
+        _destinationFile = new File(pathname);
+    }
+
+    public int size() {
+        return _rows;
+    }
+
+    /**
+     * Saves every result added so far, overwriting the destination file
+     * @throws IOException If the file can't be written to
+     */
+    public void write() throws IOException {
+        List<byte[]> encodedNames = new ArrayList<>();
+        for (String name : _testNames) {
+            encodedNames.add(name.getBytes(StandardCharsets.UTF_8));
+        }
+        long stringTableOffset = BinaryResultsReader.HEADER_BYTES
+                                + (long) _COLUMNS * _rows * BinaryResultsReader.COLUMN_WIDTH;
+
+        File directory = _destinationFile.getAbsoluteFile().getParentFile();
+        if (directory != null) {
+            Files.createDirectories(directory.toPath());
+        }
+        try (DataOutputStream out = new DataOutputStream(
+                                        new BufferedOutputStream(new FileOutputStream(_destinationFile)))) {
+            out.writeInt(BinaryResultsReader.MAGIC);
+            out.writeInt(BinaryResultsReader.VERSION);
+            out.writeInt(_rows);
+            out.writeInt(encodedNames.size());
+            out.writeLong(stringTableOffset);
+            for (long[] column : _columns) {
+                for (int row = 0; row < _rows; row++) {
+                    out.writeLong(column[row]);
+                }
+            }
+            for (byte[] name : encodedNames) {
+                out.writeInt(name.length);
+                out.write(name);
+            }
+        }
+    }
+
+    private void _set(Column column, long value) {
+        _columns[column.ordinal()][_rows] = value;
+    }
+}
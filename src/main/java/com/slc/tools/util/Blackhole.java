@@ -0,0 +1,59 @@
+package com.slc.tools.util;
+
+/**
+ * A sink for values that a benchmark computes but never uses. If nothing reads a result, the JIT compiler is free
+ * to skip computing it, and a benchmark can report impossibly fast times for work that never happened.
+ * Passing the result to <code>consume()</code> prevents that, at the cost of a couple of field reads.
+ *
+ * <p> Each method compares its argument against volatile fields which can never match it. The JIT can't prove
+ * that, so it has to keep the value (and everything that produced it), but since the comparison never succeeds
+ * nothing is ever written, and many threads can consume at once without contending.
+ *
+ * <p> MethodRunner and LambdaRunner already consume the return value of every method and Function they benchmark;
+ * call these yourself from inside a Consumer if it computes something it doesn't return.
+ */
+public final class Blackhole {
+    /** Never handed out, so no argument can ever be identical to it */
+    private static volatile Object _unmatchable = new Object();
+    /** Two different values, so no argument can ever equal both */
+    private static volatile int _int1 = 1, _int2 = 2;
+    private static volatile long _long1 = 1, _long2 = 2;
+    private static volatile double _double1 = 1, _double2 = 2;
+    private static volatile boolean _boolean1 = true, _boolean2 = false;
+
+    private Blackhole() {    }
+
+    public static void consume(Object value) {
+        if (value == _unmatchable) {
+            throw new IllegalStateException("Blackhole matched an object it never handed out");
+        }
+    }
+
+    public static void consume(int value) {
+        if (value == _int1 & value == _int2) {
+            _unreachable();
+        }
+    }
+
+    public static void consume(long value) {
+        if (value == _long1 & value == _long2) {
+            _unreachable();
+        }
+    }
+
+    public static void consume(double value) {
+        if (value == _double1 & value == _double2) {
+            _unreachable();
+        }
+    }
+
+    public static void consume(boolean value) {
+        if (value == _boolean1 & value == _boolean2) {
+            _unreachable();
+        }
+    }
+
+    private static void _unreachable() {
+        throw new IllegalStateException("Blackhole matched two different values at once");
+    }
+}
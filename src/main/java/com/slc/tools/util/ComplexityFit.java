@@ -0,0 +1,206 @@
+package com.slc.tools.util;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.DoubleUnaryOperator;
+
+/**
+ * How well one growth model, <code>time = intercept + coefficient * f(size)</code>, fits a sweep of benchmark
+ * results, found by ordinary least squares. Use <code>best()</code> to find which model describes a method best,
+ * e.g. to spot an accidentally quadratic algorithm, and <code>predictNanos()</code> to extrapolate to sizes that
+ * weren't measured. Each result's raw time per call is used, since the intercept already absorbs any constant
+ * overhead.
+ * @param model The growth model
+ * @param intercept The fitted constant time, in nanoseconds
+ * @param coefficient The fitted time per unit of f(size), in nanoseconds
+ * @param rSquared The fraction of the variation in time the model explains, from 0 to 1, or NaN if the model
+ * couldn't be fitted (e.g. 2^n overflowed, or there were fewer than two distinct sizes)
+ * @param points How many results were used
+ */
+public record ComplexityFit(Model model, double intercept, double coefficient, double rSquared, int points)
+                            implements Serializable {
+
+    /** The candidate growth models, from slowest-growing to fastest */
+    public enum Model {
+        CONSTANT("O(1)", (double n) -> 0),
+        LOG_N("O(log n)", (double n) -> _log2(n)),
+        N("O(n)", (double n) -> n),
+        N_LOG_N("O(n log n)", (double n) -> n * _log2(n)),
+        N_SQUARED("O(n^2)", (double n) -> n * n),
+        N_CUBED("O(n^3)", (double n) -> n * n * n),
+        EXPONENTIAL("O(2^n)", (double n) -> Math.pow(2, n));
+
+        private final String _LABEL;
+        private final DoubleUnaryOperator _GROWTH;
+
+        private Model(String label, DoubleUnaryOperator growth) {
+            _LABEL = label;
+            _GROWTH = growth;
+        }
+
+        /**
+         * @param n A size
+         * @return How much the model grows at that size, before scaling by the coefficient
+         */
+        public double apply(double n) {
+            return _GROWTH.applyAsDouble(n);
+        }
+
+        @Override
+        public String toString() {
+            return _LABEL;
+        }
+    }
+
+    /** Below this, a growth model explains too little of the variation to be worth reporting over O(1) */
+    private static final double _MIN_R_SQUARED = 0.5;
+    /** A growth model must change the time by at least this fraction of the average across the sweep */
+    private static final double _MIN_RELATIVE_GROWTH = 0.1;
+
+    /**
+     * @param size The size to predict the time for
+     * @return The model's predicted time per call at that size, in nanoseconds
+     */
+    public double predictNanos(double size) {
+        return intercept + coefficient * model.apply(size);
+    }
+
+    /**
+     * @return Whether the model could be fitted at all
+     */
+    public boolean isValid() {
+        return !Double.isNaN(rSquared);
+    }
+
+    @Override
+    public String toString() {
+        if (!isValid()) {
+            return model+": no fit";
+        }
+        return String.format("%s: %.4g ns + %.4g ns * f(n), R^2 = %.4f (%d points)",
+                                model, intercept, coefficient, rSquared, points);
+    }
+
+    /**
+     * Fits one model to a sweep of results. Results without a size, or which didn't complete any calls, are ignored.
+     * @param results The results to fit, normally every size of one method
+     * @param model The model to fit
+     * @return The fit; its rSquared is NaN if the model couldn't be fitted
+     */
+    public static ComplexityFit fit(List<BenchmarkStats> results, Model model) {
+        // Two passes over the centred values, since the raw sums of n^3 or 2^n would lose all their precision
+        int points = 0;
+        double sumX = 0, sumY = 0;
+        for (BenchmarkStats result : results) {
+            if (_isUsable(result)) {
+                points++;
+                sumX += model.apply(result.size());
+                sumY += result.rawTimeNanos();
+            }
+        }
+        if (points == 0 || !Double.isFinite(sumX)) {
+            return new ComplexityFit(model, Double.NaN, Double.NaN, Double.NaN, points);
+        }
+        double meanX = sumX / points, meanY = sumY / points;
+
+        double sxx = 0, sxy = 0, syy = 0;
+        for (BenchmarkStats result : results) {
+            if (_isUsable(result)) {
+                double dx = model.apply(result.size()) - meanX;
+                double dy = result.rawTimeNanos() - meanY;
+                sxx += dx * dx;
+                sxy += dx * dy;
+                syy += dy * dy;
+            }
+        }
+        if (model == Model.CONSTANT) {
+            return new ComplexityFit(model, meanY, 0, 0, points);
+        }
+        if (sxx == 0 || !Double.isFinite(sxx)) {
+            return new ComplexityFit(model, Double.NaN, Double.NaN, Double.NaN, points);
+        }
+        double coefficient = sxy / sxx;
+        double intercept = meanY - coefficient * meanX;
+        double rSquared = (syy == 0) ? 1 : (sxy * sxy) / (sxx * syy);
+        return new ComplexityFit(model, intercept, coefficient, rSquared, points);
+    }
+
+    /**
+     * Fits every model to a sweep of results
+     * @param results The results to fit, normally every size of one method
+     * @return One fit per model, in the same order as <code>Model.values()</code>
+     */
+    public static List<ComplexityFit> fitAll(List<BenchmarkStats> results) {
+        List<ComplexityFit> fits = new ArrayList<>();
+        for (Model model : Model.values()) {
+            fits.add(fit(results, model));
+        }
+        return fits;
+    }
+
+    /**
+     * Finds the model that fits a sweep of results best: the one with the highest R^2, not counting models whose
+     * time would shrink as the size grows. If even the best one explains less than half of the variation, or
+     * barely changes the time across the sizes measured, the time is reported as O(1).
+     * @param results The results to fit, normally every size of one method
+     * @return The best fit
+     */
+    public static ComplexityFit best(List<BenchmarkStats> results) {
+        ComplexityFit constant = fit(results, Model.CONSTANT);
+        double minSize = Double.MAX_VALUE, maxSize = -Double.MAX_VALUE;
+        for (BenchmarkStats result : results) {
+            if (_isUsable(result)) {
+                minSize = Math.min(minSize, result.size());
+                maxSize = Math.max(maxSize, result.size());
+            }
+        }
+
+        ComplexityFit best = null;
+        for (ComplexityFit candidate : fitAll(results)) {
+            if (candidate.model() == Model.CONSTANT || !candidate.isValid() || candidate.coefficient() < 0) {
+                continue;
+            }
+            if (best == null || candidate.rSquared() > best.rSquared()) {
+                best = candidate;
+            }
+        }
+        if (best == null || best.rSquared() < _MIN_R_SQUARED) {
+            return constant;
+        }
+        double growth = best.predictNanos(maxSize) - best.predictNanos(minSize);
+        return (growth < constant.intercept() * _MIN_RELATIVE_GROWTH) ? constant : best;
+    }
+
+    /**
+     * Finds the best model for each test in a list of results, e.g. everything returned by ClassRunner
+     * @param results Results from any number of tests
+     * @return The best fit for each test name, in the order the tests first appear
+     * @throws IllegalArgumentException If a result has no test name, since it can't be told which sweep it belongs
+     * to; ClassRunner and JmhRunner name results after their method when the annotation doesn't give a testName
+     */
+    public static Map<String, ComplexityFit> bestByTest(List<BenchmarkStats> results) throws IllegalArgumentException {
+        Map<String, List<BenchmarkStats>> byTest = new LinkedHashMap<>();
+        for (BenchmarkStats result : results) {
+            if (result != null) {
+                if (result.testName() == null || result.testName().isEmpty()) {
+                    throw new IllegalArgumentException("Result at size "+result.size()+" has no test name");
+                }
+                byTest.computeIfAbsent(result.testName(), (String name) -> new ArrayList<>()).add(result);
+            }
+        }
+        Map<String, ComplexityFit> fits = new LinkedHashMap<>();
+        byTest.forEach((String name, List<BenchmarkStats> sweep) -> fits.put(name, best(sweep)));
+        return fits;
+    }
+
+    private static boolean _isUsable(BenchmarkStats result) {
+        return result != null && result.size() != null && result.loopsCompleted() > 0;
+    }
+
+    private static double _log2(double n) {
+        return Math.log(n) / Math.log(2);
+    }
+}
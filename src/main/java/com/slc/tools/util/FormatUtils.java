@@ -1,24 +1,50 @@
 package com.slc.tools.util;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Field;
 import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Consumer;
 import java.util.function.Function;
+import java.util.function.ToDoubleFunction;
 import java.util.stream.Stream;
 import java.util.stream.Stream.Builder;
 
 public class FormatUtils {
+    /** Identifies one property of a class, as read by getPropertyByName */
+    private static record PropertyKey(String name, boolean isMethod) {    }
+
+    private static final ToDoubleFunction<Object> _NOT_FOUND = (object) -> Double.NaN;
+    private static final ToDoubleFunction<Object> _NOT_A_NUMBER = (object) -> Double.NaN;
+    private static final MethodHandles.Lookup _LOOKUP = MethodHandles.publicLookup();
+
+    /** Accessors for every property read so far, cached per class so that lookups don't need to lock */
+    private static final ClassValue<Map<PropertyKey, ToDoubleFunction<Object>>> _ACCESSORS = new ClassValue<>() {
+        @Override
+        protected Map<PropertyKey, ToDoubleFunction<Object>> computeValue(Class<?> type) {
+            return new ConcurrentHashMap<>();
+        }
+    };
 
     /**
-     * Utility function to easily convert Functions into Consumers
+     * Utility function to easily convert Functions into Consumers. The function's result is passed to
+     * <code>Blackhole.consume()</code>, so the JIT compiler can't skip the work that produced it.
      * @param <T> The input type of the Consumer
      * @param <R>The return type of the original function
      * @param functionToConvert The function that you 
      * @return A Consumer wrapper around the provided function
      */
     public static <T, R> Consumer<T> toConsumer(Function<T,R> functionToConvert) {
-        return ((T input) -> functionToConvert.apply(input));
+        return ((T input) -> Blackhole.consume(functionToConvert.apply(input)));
     }
     
     /**
@@ -89,35 +115,162 @@ public class FormatUtils {
 
     /**
      * Read the given object and find the named property; if it's a field, return its value. If it's a method, invoke it on that object and return the result.
-     * Returns null if the field isn't found, or if the result is not a number.
+     * Methods are checked before fields. Returns null if the property isn't found, or if the result is not a number.
      * @param <T> The type of object to read from
      * @param object The object whose property should be read
      * @param propertyName The name of the property
-     * @param searchMethods True if the property is a method, false if it's a field
      * @return The value of the property, or null if the property doesn't exist or isn't a number
      */
     public static <T> Double getPropertyByName(T object, String propertyName) {
-        try {
-            String value = null;
-            boolean wasMethod = false;
-            Method[] methods = object.getClass().getMethods();
-            for (Method method : methods) {
-                if (method.getName().equals(propertyName)) {
-                    value = method.invoke(object).toString();
-                    wasMethod = true;
-                    break;
+        if (object == null) {
+            return null;
+        }
+        ToDoubleFunction<Object> accessor = _getAccessor(object.getClass(), propertyName, true, false);
+        if (accessor == _NOT_FOUND) {
+            accessor = _getAccessor(object.getClass(), propertyName, false, true);
+        }
+        return _applyAccessor(accessor, object);
+    }
+
+    /**
+     * Read the given object and find the named property, which must be a public no-args method if isMethod is true,
+     * or a public field otherwise. (Arrays also have "length" and "size" properties either way.) The property is
+     * only looked up once per class; after that, reading it is a direct call with no reflection, and numbers are
+     * read as numbers rather than being parsed from a String. Returns null if the property isn't found, or if the
+     * result is not a number (including NaN).
+     * @param <T> The type of object to read from
+     * @param object The object whose property should be read
+     * @param propertyName The name of the property
+     * @param isMethod True if the property is a method, false if it's a field
+     * @return The value of the property, or null if the property doesn't exist or isn't a number
+     */
+    public static <T> Double getPropertyByName(T object, String propertyName, boolean isMethod) {
+        if (object == null) {
+            return null;
+        }
+        return _applyAccessor(_getAccessor(object.getClass(), propertyName, isMethod, true), object);
+    }
+
+    private static Double _applyAccessor(ToDoubleFunction<Object> accessor, Object object) {
+        double value = accessor.applyAsDouble(object);
+        return Double.isNaN(value) ? null : value;
+    }
+
+    /**
+     * Fetches the cached accessor for a property, looking it up if this is the first time it's been asked for
+     * @param clazz The class to read the property from
+     * @param propertyName The name of the property
+     * @param isMethod True if the property is a method, false if it's a field
+     * @param warnIfMissing Whether to print a warning if the property doesn't exist
+     * @return A function reading the property as a double (NaN if it isn't a number), or _NOT_FOUND
+     */
+    private static ToDoubleFunction<Object> _getAccessor(Class<?> clazz, String propertyName, boolean isMethod,
+                                                            boolean warnIfMissing) {
+        return _ACCESSORS.get(clazz).computeIfAbsent(new PropertyKey(propertyName, isMethod), (key) -> {
+            ToDoubleFunction<Object> accessor = _resolveAccessor(clazz, propertyName, isMethod);
+            if (accessor == _NOT_FOUND && warnIfMissing) {
+                System.out.println("WARNING: Class "+clazz.getSimpleName()+" has no public "
+                                    +(isMethod ? "method " : "field ")+propertyName+"; its size will be null");
+            }
+            return accessor;
+        });
+    }
+
+    private static ToDoubleFunction<Object> _resolveAccessor(Class<?> clazz, String propertyName, boolean isMethod) {
+        if (clazz.isArray() && (propertyName.equals("length") || propertyName.equals("size"))) {
+            return _toDoubleFunction(MethodHandles.arrayLength(clazz).asType(MethodType.methodType(int.class, Object.class)));
+        }
+        // Public members of non-public classes (e.g. the Lists from List.of()) can only be reached through a
+        // public supertype, so try the class itself first and then everything it extends or implements
+        for (Class<?> type : _selfAndSupertypes(clazz)) {
+            try {
+                MethodHandle getter;
+                boolean isStatic;
+                if (isMethod) {
+                    Method method = type.getMethod(propertyName);
+                    getter = _LOOKUP.unreflect(method);
+                    isStatic = Modifier.isStatic(method.getModifiers());
+                } else {
+                    Field field = type.getField(propertyName);
+                    getter = _LOOKUP.unreflectGetter(field);
+                    isStatic = Modifier.isStatic(field.getModifiers());
+                }
+                if (isStatic) {
+                    getter = MethodHandles.dropArguments(getter, 0, Object.class);
                 }
+                Class<?> returnType = getter.type().returnType();
+                return _toDoubleFunction(getter.asType(MethodType.methodType(returnType, Object.class)));
+            } catch (ReflectiveOperationException e) {
+                // Not declared by, or not reachable through, this type; try the next one
             }
-            if (!wasMethod) {
-                Field field = object.getClass().getField(propertyName);
-                value = field.get(object).toString();
+        }
+        return _NOT_FOUND;
+    }
+
+    /**
+     * Wraps a getter of type (Object)R in a function returning its value as a double
+     * @param getter The getter to wrap
+     * @return A function returning the getter's value, or NaN if it isn't a number or the getter throws
+     */
+    private static ToDoubleFunction<Object> _toDoubleFunction(MethodHandle getter) {
+        Class<?> returnType = getter.type().returnType();
+        if (returnType == boolean.class || returnType == void.class) {
+            return _NOT_A_NUMBER;
+        }
+        if (returnType.isPrimitive()) {
+            // Every other primitive widens straight to a double
+            MethodHandle asDouble = getter.asType(MethodType.methodType(double.class, Object.class));
+            return (object) -> {
+                try {
+                    return (double) asDouble.invokeExact(object);
+                } catch (Throwable e) {
+                    return _failedGetter(e);
+                }
+            };
+        }
+        MethodHandle asObject = getter.asType(MethodType.methodType(Object.class, Object.class));
+        return (object) -> {
+            Object value;
+            try {
+                value = (Object) asObject.invokeExact(object);
+            } catch (Throwable e) {
+                return _failedGetter(e);
+            }
+            if (value instanceof Number number) {
+                return number.doubleValue();
+            }
+            if (value == null) {
+                return Double.NaN;
+            }
+            try {
+                return Double.parseDouble(value.toString());
+            } catch (NumberFormatException e) {
+                return Double.NaN;
+            }
+        };
+    }
+
+    private static double _failedGetter(Throwable e) {
+        if (e instanceof Error error) {
+            throw error;
+        }
+        e.printStackTrace();
+        return Double.NaN;
+    }
+
+    private static List<Class<?>> _selfAndSupertypes(Class<?> clazz) {
+        Set<Class<?>> types = new LinkedHashSet<>();
+        for (Class<?> type = clazz; type != null; type = type.getSuperclass()) {
+            types.add(type);
+        }
+        List<Class<?>> queue = new ArrayList<>(types);
+        for (int i = 0; i < queue.size(); i++) {
+            for (Class<?> implemented : queue.get(i).getInterfaces()) {
+                if (types.add(implemented)) {
+                    queue.add(implemented);
+                }
             }
-            return Double.parseDouble(value);
-        } catch (ReflectiveOperationException e) {
-            e.printStackTrace();
-            return null;
-        } catch (NumberFormatException e) {
-            return null;
         }
+        return queue;
     }
 }
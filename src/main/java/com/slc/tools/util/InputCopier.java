@@ -0,0 +1,122 @@
+package com.slc.tools.util;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Array;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.function.UnaryOperator;
+
+/**
+ * Finds a way to make independent copies of a benchmark's input, for methods that modify their input (e.g. sorting
+ * a list in place), so that every call can start from the same original state.
+ *
+ * <p> Copies are made by, in order of preference: cloning arrays; a public copy constructor, i.e. one that takes
+ * a single argument of the object's own class or one of its supertypes (like <code>new ArrayList&lt;&gt;(list)</code>);
+ * or a public <code>clone()</code> method. Copies are shallow, just like all three of those.
+ */
+public final class InputCopier {
+
+    private InputCopier() {    }
+
+    /**
+     * Finds a copier for objects of the same class as <code>example</code>
+     * @param <T> The type of object to copy
+     * @param example An object of the class to copy
+     * @return A function returning a copy of its argument
+     * @throws IllegalArgumentException If the class has no public copy constructor or clone method
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> UnaryOperator<T> forObject(T example) {
+        if (example == null) {
+            return (T object) -> object;
+        }
+        return (UnaryOperator<T>) forClass(example.getClass());
+    }
+
+    /**
+     * Finds a copier for objects of exactly the given class
+     * @param clazz The class to copy
+     * @return A function returning a copy of its argument, which must be an instance of clazz (or null)
+     * @throws IllegalArgumentException If the class has no public copy constructor or clone method
+     */
+    public static UnaryOperator<Object> forClass(Class<?> clazz) {
+        if (clazz.isArray()) {
+            return InputCopier::_copyArray;
+        }
+        MethodHandle copier = _findCopyConstructor(clazz);
+        if (copier == null) {
+            copier = _findClone(clazz);
+        }
+        if (copier == null) {
+            throw new IllegalArgumentException("Don't know how to copy "+clazz.getName()+"; give it a public copy "
+                                                +"constructor or clone() method, or supply a copier yourself");
+        }
+        MethodHandle asGeneric = copier.asType(MethodType.methodType(Object.class, Object.class));
+        return (Object original) -> {
+            if (original == null) {
+                return null;
+            }
+            try {
+                return (Object) asGeneric.invokeExact(original);
+            } catch (RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable e) {
+                throw new IllegalStateException("Unable to copy "+clazz.getSimpleName(), e);
+            }
+        };
+    }
+
+    private static Object _copyArray(Object original) {
+        if (original == null) {
+            return null;
+        }
+        int length = Array.getLength(original);
+        Object copy = Array.newInstance(original.getClass().getComponentType(), length);
+        System.arraycopy(original, 0, copy, 0, length);
+        return copy;
+    }
+
+    private static MethodHandle _findCopyConstructor(Class<?> clazz) {
+        if (!Modifier.isPublic(clazz.getModifiers())) {
+            return null;
+        }
+        // Prefer the most specific parameter type, e.g. ArrayDeque(Collection) is fine but its own class is better
+        for (Class<?> type = clazz; type != null; type = type.getSuperclass()) {
+            MethodHandle constructor = _publicConstructor(clazz, type);
+            if (constructor != null) {
+                return constructor;
+            }
+            for (Class<?> implemented : type.getInterfaces()) {
+                constructor = _publicConstructor(clazz, implemented);
+                if (constructor != null) {
+                    return constructor;
+                }
+            }
+        }
+        return null;
+    }
+
+    private static MethodHandle _publicConstructor(Class<?> clazz, Class<?> paramType) {
+        try {
+            Constructor<?> constructor = clazz.getConstructor(paramType);
+            return MethodHandles.publicLookup().unreflectConstructor(constructor);
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+
+    private static MethodHandle _findClone(Class<?> clazz) {
+        if (!Cloneable.class.isAssignableFrom(clazz)) {
+            return null;
+        }
+        try {
+            Method clone = clazz.getMethod("clone");
+            return MethodHandles.publicLookup().unreflect(clone);
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,341 @@
+package com.slc.tools.util;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * A file of random benchmark inputs, generated once from a recorded seed and memory-mapped by every later run.
+ * Since the file holds the data itself rather than instructions for making it, every run on every machine sees
+ * exactly the same bytes, and opening even a multi-gigabyte corpus takes no time at all: the operating system only
+ * reads the pages a benchmark actually touches, and keeps them cached between runs.
+ *
+ * <p> Each input holds the same values as the matching method in RandomInputs, e.g. the input of size n in
+ * <code>InputCorpus.ints(file, seed, sizes)</code> is <code>RandomInputs.ints(n, seed)</code>. Inputs are
+ * written one at a time, so generating a corpus never needs more than a small buffer of memory, and the file
+ * only appears once it's complete, so an interrupted run can't leave a truncated corpus behind.
+ *
+ * <p> The file starts with a header (all little-endian):
+ * <code>int magic, int version, int elementBytes, int inputCount, long seed</code>, followed by
+ * <code>int size, int reserved, long offset</code> for each input. Each input's data starts on an 8-byte boundary.
+ */
+public final class InputCorpus {
+    private static final int _MAGIC = 0x41424943;
+    private static final int _VERSION = 1;
+    private static final int _HEADER_BYTES = 24;
+    private static final int _ENTRY_BYTES = 16;
+    private static final int _WRITE_BUFFER_BYTES = 1 << 16;
+    private static final ByteOrder _ORDER = ByteOrder.LITTLE_ENDIAN;
+
+    private final Path _FILE;
+    private final int _ELEMENT_BYTES;
+    private final long _SEED;
+    private final int[] _SIZES;
+    private final long[] _OFFSETS;
+
+    private InputCorpus(Path file, int elementBytes, long seed, int[] sizes, long[] offsets) {
+        _FILE = file;
+        _ELEMENT_BYTES = elementBytes;
+        _SEED = seed;
+        _SIZES = sizes;
+        _OFFSETS = offsets;
+    }
+
+    /**
+     * Opens a corpus of random ints, generating it first if the file doesn't exist yet
+     * @param file Where the corpus is (or will be) stored
+     * @param seed The seed to generate the inputs from
+     * @param sizes How many ints each input holds
+     * @return The corpus
+     * @throws IllegalArgumentException If the file already holds a different corpus
+     * @throws UncheckedIOException If the file can't be read or written
+     */
+    public static InputCorpus ints(Path file, long seed, int... sizes) {
+        return _openOrCreate(file, Integer.BYTES, seed, sizes);
+    }
+
+    /**
+     * Opens a corpus of random longs, generating it first if the file doesn't exist yet
+     * @param file Where the corpus is (or will be) stored
+     * @param seed The seed to generate the inputs from
+     * @param sizes How many longs each input holds
+     * @return The corpus
+     * @throws IllegalArgumentException If the file already holds a different corpus
+     * @throws UncheckedIOException If the file can't be read or written
+     */
+    public static InputCorpus longs(Path file, long seed, int... sizes) {
+        return _openOrCreate(file, Long.BYTES, seed, sizes);
+    }
+
+    /**
+     * Opens a corpus of random bytes, generating it first if the file doesn't exist yet
+     * @param file Where the corpus is (or will be) stored
+     * @param seed The seed to generate the inputs from
+     * @param sizes How many bytes each input holds
+     * @return The corpus
+     * @throws IllegalArgumentException If the file already holds a different corpus
+     * @throws UncheckedIOException If the file can't be read or written
+     */
+    public static InputCorpus bytes(Path file, long seed, int... sizes) {
+        return _openOrCreate(file, Byte.BYTES, seed, sizes);
+    }
+
+    /**
+     * Opens an existing corpus, whatever it holds
+     * @param file The corpus file
+     * @return The corpus
+     * @throws IllegalArgumentException If the file isn't a corpus
+     * @throws UncheckedIOException If the file can't be read
+     */
+    public static InputCorpus open(Path file) {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer header = _readFully(channel, 0, _HEADER_BYTES);
+            if (header.getInt(0) != _MAGIC) {
+                throw new IllegalArgumentException(file+" isn't an input corpus");
+            }
+            if (header.getInt(4) != _VERSION) {
+                throw new IllegalArgumentException(file+" has unsupported corpus version "+header.getInt(4));
+            }
+            int elementBytes = header.getInt(8);
+            int count = header.getInt(12);
+            long seed = header.getLong(16);
+
+            ByteBuffer entries = _readFully(channel, _HEADER_BYTES, (long) count * _ENTRY_BYTES);
+            int[] sizes = new int[count];
+            long[] offsets = new long[count];
+            for (int i = 0; i < count; i++) {
+                sizes[i] = entries.getInt(i * _ENTRY_BYTES);
+                offsets[i] = entries.getLong(i * _ENTRY_BYTES + 8);
+            }
+            long expectedLength = (count == 0) ? _dataStart(0) : offsets[count - 1] + (long) sizes[count - 1] * elementBytes;
+            if (channel.size() < expectedLength) {
+                throw new IllegalArgumentException(file+" is shorter than its header says; it may have been truncated");
+            }
+            return new InputCorpus(file, elementBytes, seed, sizes, offsets);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to read corpus "+file, e);
+        }
+    }
+
+    /**
+     * @return The seed every input was generated from
+     */
+    public long seed() {
+        return _SEED;
+    }
+
+    /**
+     * @return How many elements each input holds, in order
+     */
+    public int[] sizes() {
+        return _SIZES.clone();
+    }
+
+    /**
+     * @return How many inputs the corpus holds
+     */
+    public int count() {
+        return _SIZES.length;
+    }
+
+    /**
+     * @return The file the corpus is stored in
+     */
+    public Path file() {
+        return _FILE;
+    }
+
+    /**
+     * Memory-maps one input. Each call makes a separate private mapping, so a benchmark may modify the data
+     * (e.g. sort it in place) without affecting the file or any other dataset.
+     * @param index Which input to map
+     * @return The input; close it to unmap it
+     */
+    public OffHeapDataset get(int index) {
+        return OffHeapDataset.map(_FILE, _OFFSETS[index], (long) _SIZES[index] * _ELEMENT_BYTES, _ELEMENT_BYTES,
+                                    _ORDER);
+    }
+
+    /**
+     * Copies one input of ints onto the heap, for benchmarks which take an int[]
+     * @param index Which input to read
+     * @return A new array holding the input
+     */
+    public int[] getInts(int index) {
+        _checkElementBytes(Integer.BYTES);
+        try (OffHeapDataset dataset = get(index)) {
+            return dataset.toIntArray();
+        }
+    }
+
+    /**
+     * Copies one input of longs onto the heap, for benchmarks which take a long[]
+     * @param index Which input to read
+     * @return A new array holding the input
+     */
+    public long[] getLongs(int index) {
+        _checkElementBytes(Long.BYTES);
+        try (OffHeapDataset dataset = get(index)) {
+            return dataset.toLongArray();
+        }
+    }
+
+    /**
+     * @return A source which maps each input just before its benchmark and unmaps it straight after
+     */
+    public InputSource<OffHeapDataset> datasets() {
+        return new InputSource<>() {
+            @Override
+            public int size() {
+                return count();
+            }
+
+            @Override
+            public OffHeapDataset get(int index) {
+                return InputCorpus.this.get(index);
+            }
+
+            @Override
+            public void release(OffHeapDataset input) {
+                input.close();
+            }
+        };
+    }
+
+    /**
+     * @return A source which copies each input of ints onto the heap just before its benchmark
+     */
+    public InputSource<int[]> intArrays() {
+        _checkElementBytes(Integer.BYTES);
+        return new InputSource<>() {
+            @Override
+            public int size() {
+                return count();
+            }
+
+            @Override
+            public int[] get(int index) {
+                return getInts(index);
+            }
+        };
+    }
+
+    private void _checkElementBytes(int elementBytes) {
+        if (_ELEMENT_BYTES != elementBytes) {
+            throw new IllegalStateException(_FILE+" holds "+_ELEMENT_BYTES+"-byte elements, not "+elementBytes
+                                            +"-byte elements");
+        }
+    }
+
+    private static InputCorpus _openOrCreate(Path file, int elementBytes, long seed, int[] sizes) {
+        if (!Files.exists(file)) {
+            _generate(file, elementBytes, seed, sizes);
+        }
+        InputCorpus corpus = open(file);
+        if (corpus._ELEMENT_BYTES != elementBytes || corpus._SEED != seed || !Arrays.equals(corpus._SIZES, sizes)) {
+            throw new IllegalArgumentException(file+" already holds a different corpus (seed "+corpus._SEED+", sizes "
+                                                +Arrays.toString(corpus._SIZES)+"); delete it or use another file");
+        }
+        return corpus;
+    }
+
+    /** Writes the whole corpus to a temporary file, then moves it into place */
+    private static void _generate(Path file, int elementBytes, long seed, int[] sizes) {
+        Path temp = file.resolveSibling(file.getFileName()+".tmp");
+        try {
+            Path parent = file.toAbsolutePath().getParent();
+            if (parent != null) {
+                Files.createDirectories(parent);
+            }
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                                                        StandardOpenOption.TRUNCATE_EXISTING)) {
+                ByteBuffer buffer = ByteBuffer.allocate(_WRITE_BUFFER_BYTES).order(_ORDER);
+                buffer.putInt(_MAGIC).putInt(_VERSION).putInt(elementBytes).putInt(sizes.length).putLong(seed);
+                long offset = _dataStart(sizes.length);
+                for (int size : sizes) {
+                    if (size < 0) {
+                        throw new IllegalArgumentException("Size can't be negative: "+size);
+                    }
+                    _ensureSpace(channel, buffer, _ENTRY_BYTES);
+                    buffer.putInt(size).putInt(0).putLong(offset);
+                    offset = _align(offset + (long) size * elementBytes);
+                }
+
+                long written = _dataStart(sizes.length);
+                _ensureSpace(channel, buffer, Long.BYTES);
+                while (channel.position() + buffer.position() < written) {
+                    buffer.put((byte) 0);
+                }
+                for (int size : sizes) {
+                    SplittableRandom random = RandomInputs.random(size, seed);
+                    for (int i = 0; i < size; i++) {
+                        _ensureSpace(channel, buffer, elementBytes);
+                        switch (elementBytes) {
+                            case Long.BYTES -> buffer.putLong(random.nextLong());
+                            case Integer.BYTES -> buffer.putInt(random.nextInt());
+                            default -> buffer.put((byte) random.nextInt());
+                        }
+                    }
+                    written = _align(written + (long) size * elementBytes);
+                    _ensureSpace(channel, buffer, Long.BYTES);
+                    while (channel.position() + buffer.position() < written) {
+                        buffer.put((byte) 0);
+                    }
+                }
+                _drain(channel, buffer);
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to write corpus "+file, e);
+        } finally {
+            try {
+                Files.deleteIfExists(temp);
+            } catch (IOException e) {
+                // Only a leftover temporary file; the corpus itself is unaffected
+            }
+        }
+    }
+
+    private static long _dataStart(int count) {
+        return _align(_HEADER_BYTES + (long) count * _ENTRY_BYTES);
+    }
+
+    private static long _align(long offset) {
+        return (offset + 7) & ~7L;
+    }
+
+    private static void _ensureSpace(FileChannel channel, ByteBuffer buffer, int bytes) throws IOException {
+        if (buffer.remaining() < bytes) {
+            _drain(channel, buffer);
+        }
+    }
+
+    private static void _drain(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    private static ByteBuffer _readFully(FileChannel channel, long position, long bytes) throws IOException {
+        if (bytes > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Corpus header is too large");
+        }
+        ByteBuffer buffer = ByteBuffer.allocate((int) bytes).order(_ORDER);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IllegalArgumentException("Corpus header is truncated");
+            }
+        }
+        return buffer.flip();
+    }
+}
@@ -0,0 +1,118 @@
+package com.slc.tools.util;
+
+import java.util.List;
+import java.util.function.IntFunction;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * A fixed sequence of benchmark inputs which are only created when they're needed. Unlike a List, a source made
+ * with <code>bySize()</code> only remembers the sizes, and generates each input just before it's benchmarked, so
+ * a sweep up to millions of elements only ever holds one input in memory at a time (or one per worker thread, when
+ * benchmarks run in parallel). Unlike a Stream, it can be read more than once, so several methods can share it.
+ *
+ * <p> Because inputs are generated again every time they're read, a generator should be deterministic (e.g. use a
+ * fixed seed, like the methods in RandomInputs) so that every method is benchmarked on the same data. Since nothing
+ * else can be using a generated input, ClassRunner and LambdaRunner hand each one back through
+ * <code>release()</code> as soon as its benchmark finishes, which closes inputs like OffHeapDataset that hold
+ * memory outside the heap.
+ * @param <T> The type of input
+ */
+public interface InputSource<T> {
+
+    /**
+     * @return How many inputs there are
+     */
+    int size();
+
+    /**
+     * Creates or fetches one input
+     * @param index Which input to get, from 0 to <code>size() - 1</code>
+     * @return The input at that index
+     */
+    T get(int index);
+
+    /**
+     * Called once a benchmark has finished with an input from <code>get()</code> or <code>stream()</code>. Sources
+     * which create their inputs close them here; sources wrapping existing inputs do nothing.
+     * @param input The input that's no longer needed
+     */
+    default void release(T input) {    }
+
+    /**
+     * @return A lazy Stream of every input in order, each of which is only created when the Stream reaches it
+     */
+    default Stream<T> stream() {
+        return IntStream.range(0, size()).mapToObj(this::get);
+    }
+
+    /**
+     * Wraps inputs which already exist
+     * @param <T> The type of input
+     * @param inputs The inputs, in order
+     * @return A source reading from <code>inputs</code>
+     */
+    static <T> InputSource<T> of(List<T> inputs) {
+        return new InputSource<>() {
+            @Override
+            public int size() {
+                return inputs.size();
+            }
+
+            @Override
+            public T get(int index) {
+                return inputs.get(index);
+            }
+
+            @Override
+            public Stream<T> stream() {
+                return inputs.stream();
+            }
+        };
+    }
+
+    /**
+     * Creates one input per size, as each is needed. Inputs which are AutoCloseable (like OffHeapDataset) are closed
+     * when they're released.
+     * @param <T> The type of input
+     * @param generator A function creating an input of the given size, e.g. <code>size -> RandomInputs.ints(size, 42)</code>
+     * @param sizes The size of each input, in order
+     * @return A source generating an input from each size
+     */
+    static <T> InputSource<T> bySize(IntFunction<T> generator, int... sizes) {
+        int[] sizesCopy = sizes.clone();
+        return new InputSource<>() {
+            @Override
+            public int size() {
+                return sizesCopy.length;
+            }
+
+            @Override
+            public T get(int index) {
+                return generator.apply(sizesCopy[index]);
+            }
+
+            @Override
+            public void release(T input) {
+                if (input instanceof AutoCloseable closeable) {
+                    try {
+                        closeable.close();
+                    } catch (Exception e) {
+                        throw new IllegalStateException("Unable to close input "+input, e);
+                    }
+                }
+            }
+        };
+    }
+
+    /**
+     * Creates one input per size, as each is needed, and closes AutoCloseable inputs when they're released
+     * @param <T> The type of input
+     * @param generator A function creating an input of the given size
+     * @param sizes The size of each input, in order; this is read straight away, but nothing is generated yet
+     * @return A source generating an input from each size
+     */
+    static <T> InputSource<T> bySize(IntFunction<T> generator, IntStream sizes) {
+        return bySize(generator, sizes.toArray());
+    }
+}
@@ -0,0 +1,145 @@
+package com.slc.tools.util;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * The per-iteration results of a benchmark that was measured in several iterations. Alongside the mean and its
+ * t-distribution confidence interval, which assume the iterations are normally distributed, it holds robust
+ * statistics that a few noisy iterations (e.g. one interrupted by a GC pause) can't drag around: iterations outside
+ * Tukey's fences are rejected, and the median, its median absolute deviation and a bootstrap confidence interval
+ * are calculated from the rest.
+ * @param warmupIterations How many discarded warmup iterations were run before measuring
+ * @param averageTimesNanos The average time per call in each measured iteration, in order
+ * @param meanNanos The mean of averageTimesNanos
+ * @param confidenceLow The lower bound of the 95% confidence interval around the mean
+ * @param confidenceHigh The upper bound of the 95% confidence interval around the mean
+ * @param medianNanos The median of the iterations that weren't outliers
+ * @param madNanos The median absolute deviation from medianNanos of the iterations that weren't outliers
+ * @param outliers How many iterations were more than 1.5 interquartile ranges outside the quartiles, and so left
+ * out of the robust statistics; outliers are only looked for with at least four iterations
+ * @param robustLow The lower bound of the bootstrap 95% confidence interval around the median
+ * @param robustHigh The upper bound of the bootstrap 95% confidence interval around the median
+ */
+public record IterationStats(int warmupIterations, double[] averageTimesNanos, double meanNanos,
+                                double confidenceLow, double confidenceHigh, double medianNanos, double madNanos,
+                                int outliers, double robustLow, double robustHigh) implements Serializable {
+
+    /** Two-sided 95% critical values of Student's t-distribution for 1 to 30 degrees of freedom */
+    private static final double[] _T_CRITICAL = {
+        12.706, 4.303, 3.182, 2.776, 2.571, 2.447, 2.365, 2.306, 2.262, 2.228,
+        2.201, 2.179, 2.160, 2.145, 2.131, 2.120, 2.110, 2.101, 2.093, 2.086,
+        2.080, 2.074, 2.069, 2.064, 2.060, 2.056, 2.052, 2.048, 2.045, 2.042
+    };
+    /** How many resamples the bootstrap confidence interval is built from */
+    private static final int _BOOTSTRAP_RESAMPLES = 1000;
+    /** Fixed, so the same iterations always give the same interval */
+    private static final long _BOOTSTRAP_SEED = 0x5EED_B007L;
+    private static final int _MIN_ITERATIONS_FOR_OUTLIERS = 4;
+    private static final double _TUKEY_FENCE = 1.5;
+
+    /**
+     * Calculates the mean and confidence interval of the given iterations
+     * @param warmupIterations How many warmup iterations were run
+     * @param averageTimesNanos The average time per call of each measured iteration; must not be empty
+     * @return A new IterationStats object. If there's only one iteration, both intervals are just that iteration.
+     */
+    public static IterationStats of(int warmupIterations, double[] averageTimesNanos) {
+        int n = averageTimesNanos.length;
+        double sum = 0;
+        for (double time : averageTimesNanos) {
+            sum += time;
+        }
+        double mean = sum / n;
+
+        double[] kept = _rejectOutliers(averageTimesNanos);
+        double median = _median(kept);
+        double[] deviations = new double[kept.length];
+        for (int i = 0; i < kept.length; i++) {
+            deviations[i] = Math.abs(kept[i] - median);
+        }
+        double mad = _median(deviations);
+        int outliers = n - kept.length;
+        if (n < 2) {
+            return new IterationStats(warmupIterations, averageTimesNanos, mean, mean, mean, median, mad, outliers,
+                                        median, median);
+        }
+        double[] robustInterval = _bootstrapMedian(kept);
+
+        double squaredError = 0;
+        for (double time : averageTimesNanos) {
+            squaredError += (time - mean) * (time - mean);
+        }
+        double standardError = Math.sqrt(squaredError / (n - 1)) / Math.sqrt(n);
+        double t = (n - 1 <= _T_CRITICAL.length) ? _T_CRITICAL[n - 2] : 1.96;
+        double halfWidth = t * standardError;
+        return new IterationStats(warmupIterations, averageTimesNanos, mean, mean - halfWidth, mean + halfWidth,
+                                    median, mad, outliers, robustInterval[0], robustInterval[1]);
+    }
+
+    /**
+     * @return Half the width of the bootstrap confidence interval, as a fraction of the median; e.g. 0.01 means the
+     * median is known to within about 1%. A median of 0 is exact if the interval is empty too, and otherwise
+     * infinitely uncertain.
+     */
+    public double relativeError() {
+        double halfWidth = (robustHigh - robustLow) / 2;
+        if (medianNanos == 0) {
+            return (halfWidth == 0) ? 0 : Double.POSITIVE_INFINITY;
+        }
+        return halfWidth / medianNanos;
+    }
+
+    /** Returns a print-friendly one-line version of the iteration results */
+    @Override
+    public String toString() {
+        return String.format("%d measured (%d warmup), mean %.2f ns, 95%% CI [%.2f, %.2f] ns; "
+                                +"median %.2f ns, MAD %.2f ns, bootstrap 95%% CI [%.2f, %.2f] ns, %d outlier(s)",
+                                averageTimesNanos.length, warmupIterations, meanNanos, confidenceLow, confidenceHigh,
+                                medianNanos, madNanos, robustLow, robustHigh, outliers);
+    }
+
+    /** Drops any values outside Tukey's fences, i.e. more than 1.5 interquartile ranges below Q1 or above Q3 */
+    private static double[] _rejectOutliers(double[] values) {
+        if (values.length < _MIN_ITERATIONS_FOR_OUTLIERS) {
+            return values.clone();
+        }
+        double[] sorted = values.clone();
+        Arrays.sort(sorted);
+        double q1 = _quantile(sorted, 0.25);
+        double q3 = _quantile(sorted, 0.75);
+        double low = q1 - _TUKEY_FENCE * (q3 - q1);
+        double high = q3 + _TUKEY_FENCE * (q3 - q1);
+        return Arrays.stream(sorted).filter((double value) -> value >= low && value <= high).toArray();
+    }
+
+    /** Resamples the values with replacement, and takes the 2.5th and 97.5th percentiles of the resamples' medians */
+    private static double[] _bootstrapMedian(double[] values) {
+        SplittableRandom random = new SplittableRandom(_BOOTSTRAP_SEED);
+        double[] medians = new double[_BOOTSTRAP_RESAMPLES];
+        double[] resample = new double[values.length];
+        for (int b = 0; b < _BOOTSTRAP_RESAMPLES; b++) {
+            for (int i = 0; i < resample.length; i++) {
+                resample[i] = values[random.nextInt(values.length)];
+            }
+            medians[b] = _median(resample);
+        }
+        Arrays.sort(medians);
+        return new double[] {_quantile(medians, 0.025), _quantile(medians, 0.975)};
+    }
+
+    /** Sorts the given array in place and returns its median */
+    private static double _median(double[] values) {
+        Arrays.sort(values);
+        return _quantile(values, 0.5);
+    }
+
+    /** Linearly interpolates the given quantile of an already sorted array */
+    private static double _quantile(double[] sorted, double quantile) {
+        double position = quantile * (sorted.length - 1);
+        int below = (int) Math.floor(position);
+        int above = Math.min(below + 1, sorted.length - 1);
+        return sorted[below] + (position - below) * (sorted[above] - sorted[below]);
+    }
+}
@@ -2,6 +2,7 @@ package com.slc.tools.util;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Files;
 import java.time.Duration;
 import java.util.ArrayList;
 import java.util.List;
@@ -18,12 +19,18 @@ import com.slc.tools.annotations.BenchmarkSuite;
 public class Jsonifier {
 
     /** Copy of BenchmarkStats without testName field, so it can be extracted into the Jsonifier object */
-    private static record NamelessStats(Double size, int clockChecks, int loopsBetweenChecks, int loopsCompleted,
-                                    Duration maxDuration, Duration actualTimeElapsed, double averageTimeMillis) {
+    static record NamelessStats(Double size, int clockChecks, int loopsBetweenChecks, int loopsCompleted,
+                                    Duration maxDuration, Duration actualTimeElapsed, double averageTimeMillis,
+                                    double rawTimeNanos, double overheadNanos, double netTimeNanos,
+                                    boolean indistinguishableFromBaseline, LatencyPercentiles latency,
+                                    IterationStats iterations, ThreadStats threadStats,
+                                    LoadStats load, MemoryStats memory) {
         public NamelessStats(BenchmarkStats baseStats) {
             this(baseStats.size(), baseStats.clockChecks(), baseStats.loopsBetweenChecks(),
             baseStats.loopsCompleted(), baseStats.maxDuration(), baseStats.actualTimeElapsed(),
-            baseStats.averageTimeNanos());
+            baseStats.averageTimeNanos(), baseStats.rawTimeNanos(), baseStats.overheadNanos(), baseStats.netTimeNanos(),
+            baseStats.isIndistinguishableFromBaseline(), baseStats.latency(), baseStats.iterations(), baseStats.threadStats(),
+            baseStats.load(), baseStats.memory());
         }
     }
 
@@ -91,22 +98,38 @@ public class Jsonifier {
     }
 
     public void jsonify() throws StreamWriteException, DatabindException, IOException {
-        ObjectMapper om = new ObjectMapper();
-        om.registerModule(new JavaTimeModule());
+        ObjectMapper om = newObjectMapper();
         om.enable(SerializationFeature.INDENT_OUTPUT);
-        om.disable(SerializationFeature.FAIL_ON_EMPTY_BEANS);
+        File directory = destinationFile.getAbsoluteFile().getParentFile();
+        if (directory != null) {
+            Files.createDirectories(directory.toPath());
+        }
         om.writeValue(destinationFile, dataFields);
     }
 
     public static Jsonifier getJsonifier(Class<?> clazz) {
-        String savePath;
+        return new Jsonifier(getSavePath(clazz));
+    }
+
+    /**
+     * Finds where results for the given class should be saved, based on its <code>@BenchmarkSuite</code> annotation
+     * @param clazz The class containing Benchmarkable methods
+     * @return The path to save its results to
+     */
+    public static String getSavePath(Class<?> clazz) {
         BenchmarkSuite classAnno = clazz.getAnnotation(BenchmarkSuite.class);
         if (classAnno != null) {
-            savePath = classAnno.saveLocation() + "/" + classAnno.fileName();
-        } else {
-            savePath = "src/main/output/results.json";
+            return classAnno.saveLocation() + "/" + classAnno.fileName();
         }
-        return new Jsonifier(savePath);
+        return "src/main/output/results.json";
+    }
+
+    /** Creates an ObjectMapper configured the same way for every JSON writer in this package */
+    static ObjectMapper newObjectMapper() {
+        ObjectMapper om = new ObjectMapper();
+        om.registerModule(new JavaTimeModule());
+        om.disable(SerializationFeature.FAIL_ON_EMPTY_BEANS);
+        return om;
     }
 
 }
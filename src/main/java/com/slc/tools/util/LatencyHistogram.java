@@ -0,0 +1,134 @@
+package com.slc.tools.util;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * A fixed-size, log-bucketed histogram of latencies in nanoseconds, in the style of HdrHistogram.
+ * Every power of two is split into 32 linear sub-buckets, so any recorded value is off by at most ~3%.
+ * All of the memory is allocated up front, so recording a value never allocates.
+ */
+public class LatencyHistogram implements Serializable {
+    private static final int _SUB_BUCKET_BITS = 5;
+    private static final int _SUB_BUCKET_COUNT = 1 << _SUB_BUCKET_BITS;
+    private static final int _BUCKET_COUNT = (64 - _SUB_BUCKET_BITS) * _SUB_BUCKET_COUNT;
+
+    private final long[] _counts = new long[_BUCKET_COUNT];
+    private long _totalCount;
+    private long _maxValue;
+
+    /**
+     * Records a single latency
+     * @param nanos The latency to record; negative values are recorded as zero
+     */
+    public void record(long nanos) {
+        recordMultiple(nanos, 1);
+    }
+
+    /**
+     * Records the same latency several times
+     * @param nanos The latency to record; negative values are recorded as zero
+     * @param count How many times to record it
+     */
+    public void recordMultiple(long nanos, long count) {
+        if (count <= 0) {
+            return;
+        }
+        long value = Math.max(0, nanos);
+        _counts[_indexOf(value)] += count;
+        _totalCount += count;
+        if (value > _maxValue) {
+            _maxValue = value;
+        }
+    }
+
+    /**
+     * Records a batch of calls which were timed together, by giving every call in it the batch's average time
+     * @param batchNanos How long the whole batch took
+     * @param calls How many calls were in the batch
+     */
+    public void recordBatch(long batchNanos, int calls) {
+        if (calls > 0) {
+            recordMultiple(batchNanos / calls, calls);
+        }
+    }
+
+    /**
+     * Finds the smallest recorded value that at least the given percentage of samples are less than or equal to
+     * @param percentile A number between 0 and 100
+     * @return The value at that percentile, or 0 if nothing has been recorded
+     */
+    public long valueAtPercentile(double percentile) {
+        if (_totalCount == 0) {
+            return 0;
+        }
+        double clamped = Math.min(100, Math.max(0, percentile));
+        long countAtPercentile = Math.max(1, (long) Math.ceil(clamped / 100 * _totalCount));
+        long seen = 0;
+        for (int i = 0; i < _counts.length; i++) {
+            seen += _counts[i];
+            if (seen >= countAtPercentile) {
+                return Math.min(_highestEquivalentValue(i), _maxValue);
+            }
+        }
+        return _maxValue;
+    }
+
+    /**
+     * Adds every value recorded in another histogram to this one
+     * @param other The histogram to copy values from; it isn't changed
+     */
+    public void add(LatencyHistogram other) {
+        for (int i = 0; i < _counts.length; i++) {
+            _counts[i] += other._counts[i];
+        }
+        _totalCount += other._totalCount;
+        _maxValue = Math.max(_maxValue, other._maxValue);
+    }
+
+    public long getMaxValue() {
+        return _maxValue;
+    }
+
+    public long getTotalCount() {
+        return _totalCount;
+    }
+
+    /** Clears every recorded value so the histogram can be reused */
+    public void reset() {
+        Arrays.fill(_counts, 0);
+        _totalCount = 0;
+        _maxValue = 0;
+    }
+
+    /**
+     * Summarizes the histogram into its most commonly-reported percentiles
+     * @return A LatencyPercentiles object with p50, p90, p99, p99.9 and max, holding a copy of this histogram
+     */
+    public LatencyPercentiles toPercentiles() {
+        LatencyHistogram copy = new LatencyHistogram();
+        copy.add(this);
+        return new LatencyPercentiles(valueAtPercentile(50), valueAtPercentile(90), valueAtPercentile(99),
+                                    valueAtPercentile(99.9), _maxValue, _totalCount, copy);
+    }
+
+    private static int _indexOf(long value) {
+        if (value < _SUB_BUCKET_COUNT) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int shift = exponent - _SUB_BUCKET_BITS;
+        int subBucket = (int) ((value >>> shift) & (_SUB_BUCKET_COUNT - 1));
+        return (shift + 1) * _SUB_BUCKET_COUNT + subBucket;
+    }
+
+    private static long _highestEquivalentValue(int index) {
+        if (index < _SUB_BUCKET_COUNT) {
+            return index;
+        }
+        int shift = index / _SUB_BUCKET_COUNT - 1;
+        long subBucket = index % _SUB_BUCKET_COUNT;
+        long lowestValue = (_SUB_BUCKET_COUNT + subBucket) << shift;
+        return lowestValue + (1L << shift) - 1;
+    }
+}
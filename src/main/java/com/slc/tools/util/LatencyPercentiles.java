@@ -0,0 +1,78 @@
+package com.slc.tools.util;
+
+import java.io.Serializable;
+import java.util.List;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+/**
+ * A summary of a LatencyHistogram, with every value in nanoseconds. Percentiles from <code>toPercentiles()</code>
+ * also keep a copy of the histogram itself, so that percentiles from separate runs (e.g. forks) can be combined
+ * exactly; it isn't written to JSON.
+ */
+public record LatencyPercentiles(long p50, long p90, long p99, long p999, long max, long count,
+                                @JsonIgnore LatencyHistogram histogram) implements Serializable {
+
+    /** Creates percentiles without a histogram behind them, which can only be averaged with others */
+    public LatencyPercentiles(long p50, long p90, long p99, long p999, long max, long count) {
+        this(p50, p90, p99, p999, max, count, null);
+    }
+
+    /**
+     * Combines the percentiles of several runs of the same benchmark into the percentiles of all of their calls,
+     * by merging their histograms. The p99 of several runs isn't the average of their p99s, so this is only
+     * approximated with <code>average()</code> if any of them has no histogram.
+     * @param all The percentiles to combine; null elements are ignored
+     * @return The combined percentiles, or null if there were none
+     */
+    public static LatencyPercentiles merge(List<LatencyPercentiles> all) {
+        LatencyHistogram merged = new LatencyHistogram();
+        boolean anyPresent = false;
+        for (LatencyPercentiles percentiles : all) {
+            if (percentiles == null) {
+                continue;
+            }
+            if (percentiles.histogram() == null) {
+                return average(all);
+            }
+            merged.add(percentiles.histogram());
+            anyPresent = true;
+        }
+        return anyPresent ? merged.toPercentiles() : null;
+    }
+
+    /**
+     * Averages several sets of percentiles together, e.g. from separate runs of the same benchmark. This is only
+     * an approximation of the combined percentiles; use <code>merge()</code> when the histograms are available.
+     * The max is the largest of their maxes, and the count is their total.
+     * @param all The percentiles to average; null elements are ignored
+     * @return The averaged percentiles, or null if there were none
+     */
+    public static LatencyPercentiles average(List<LatencyPercentiles> all) {
+        long p50 = 0, p90 = 0, p99 = 0, p999 = 0, max = 0, count = 0;
+        int n = 0;
+        for (LatencyPercentiles percentiles : all) {
+            if (percentiles == null) {
+                continue;
+            }
+            p50 += percentiles.p50();
+            p90 += percentiles.p90();
+            p99 += percentiles.p99();
+            p999 += percentiles.p999();
+            max = Math.max(max, percentiles.max());
+            count += percentiles.count();
+            n++;
+        }
+        if (n == 0) {
+            return null;
+        }
+        return new LatencyPercentiles(p50 / n, p90 / n, p99 / n, p999 / n, max, count);
+    }
+
+    /** Returns a print-friendly one-line version of the percentiles */
+    @Override
+    public String toString() {
+        return "p50 " + p50 + " ns, p90 " + p90 + " ns, p99 " + p99 + " ns, p99.9 " + p999
+                + " ns, max " + max + " ns (" + count + " samples)";
+    }
+}
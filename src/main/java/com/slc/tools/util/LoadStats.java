@@ -0,0 +1,50 @@
+package com.slc.tools.util;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * The results of an open-loop load test, where calls are started at a fixed rate whether or not earlier calls
+ * have finished. BenchmarkStats' <code>latency</code> field holds the corrected latencies, measured from when each
+ * call <i>should</i> have started; serviceTime holds the uncorrected latencies, measured from when it actually did.
+ * @param targetRatePerSecond How many calls per second were supposed to be started
+ * @param achievedRatePerSecond How many calls per second actually finished
+ * @param dispatched How many calls were started in total
+ * @param maxInFlight The largest number of calls that were running at the same moment
+ * @param serviceTime Percentiles of the time each call took once it had started
+ */
+public record LoadStats(double targetRatePerSecond, double achievedRatePerSecond, long dispatched,
+                            int maxInFlight, LatencyPercentiles serviceTime) implements Serializable {
+
+    /**
+     * Combines the load tests of several runs of the same benchmark (e.g. from separate forks). Every run lasts
+     * the same time, so the achieved rate is their average; dispatched calls are summed, the largest number in
+     * flight is kept, and service times are merged.
+     * @param all The LoadStats to combine; null elements are ignored
+     * @return The combined LoadStats, or null if there were none
+     */
+    public static LoadStats combine(List<LoadStats> all) {
+        List<LoadStats> present = all.stream().filter(load -> load != null).toList();
+        if (present.isEmpty()) {
+            return null;
+        }
+        double achieved = 0;
+        long dispatched = 0;
+        int maxInFlight = 0;
+        for (LoadStats load : present) {
+            achieved += load.achievedRatePerSecond();
+            dispatched += load.dispatched();
+            maxInFlight = Math.max(maxInFlight, load.maxInFlight());
+        }
+        return new LoadStats(present.get(0).targetRatePerSecond(), achieved / present.size(), dispatched,
+                                maxInFlight, LatencyPercentiles.merge(present.stream().map(LoadStats::serviceTime).toList()));
+    }
+
+    /** Returns a print-friendly one-line version of the load test results */
+    @Override
+    public String toString() {
+        return String.format("%.0f/%.0f calls/sec achieved/target, %d max in flight, service time p99 %d ns",
+                                achievedRatePerSecond, targetRatePerSecond, maxInFlight,
+                                (serviceTime == null) ? 0 : serviceTime.p99());
+    }
+}
@@ -0,0 +1,56 @@
+package com.slc.tools.util;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * Memory activity during the measured part of a benchmark (warmup isn't counted)
+ * @param bytesAllocated Total bytes allocated on the heap by the benchmarking threads, or -1 if the JVM can't tell
+ * @param bytesPerCall bytesAllocated divided by the number of calls, or -1 if the JVM can't tell
+ * @param gcCount How many garbage collections happened, across every collector in the JVM
+ * @param gcTimeMillis How long those garbage collections took in total
+ */
+public record MemoryStats(long bytesAllocated, double bytesPerCall, long gcCount, long gcTimeMillis)
+                            implements Serializable {
+
+    /**
+     * Creates a MemoryStats object, working out the bytes allocated per call
+     * @param bytesAllocated Total bytes allocated, or -1 if unknown
+     * @param calls How many calls were made while those bytes were allocated
+     * @param gcCount How many garbage collections happened
+     * @param gcTimeMillis How long those garbage collections took in total
+     * @return A new MemoryStats object
+     */
+    public static MemoryStats of(long bytesAllocated, long calls, long gcCount, long gcTimeMillis) {
+        double perCall = (bytesAllocated < 0 || calls <= 0) ? -1 : (double) bytesAllocated / calls;
+        return new MemoryStats(bytesAllocated, perCall, gcCount, gcTimeMillis);
+    }
+
+    /**
+     * Adds together the memory activity of several runs of the same benchmark
+     * @param all The MemoryStats to add; null elements are ignored
+     * @param totalCalls The number of calls made across all of those runs
+     * @return The combined MemoryStats, or null if there were none
+     */
+    public static MemoryStats combine(List<MemoryStats> all, long totalCalls) {
+        long bytes = 0, gcCount = 0, gcTime = 0;
+        boolean anyPresent = false;
+        for (MemoryStats memory : all) {
+            if (memory == null) {
+                continue;
+            }
+            anyPresent = true;
+            bytes = (bytes < 0 || memory.bytesAllocated() < 0) ? -1 : bytes + memory.bytesAllocated();
+            gcCount += memory.gcCount();
+            gcTime += memory.gcTimeMillis();
+        }
+        return anyPresent ? of(bytes, totalCalls, gcCount, gcTime) : null;
+    }
+
+    /** Returns a print-friendly one-line version of the memory activity */
+    @Override
+    public String toString() {
+        String allocated = (bytesPerCall < 0) ? "unknown" : String.format("%.1f bytes", bytesPerCall);
+        return allocated + " allocated per call, " + gcCount + " GCs taking " + gcTimeMillis + " ms";
+    }
+}
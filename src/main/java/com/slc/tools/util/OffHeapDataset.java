@@ -0,0 +1,368 @@
+package com.slc.tools.util;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AccessDeniedException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.SplittableRandom;
+
+/**
+ * A block of ints, longs or bytes stored outside the Java heap, for benchmarks over datasets too large to
+ * comfortably keep on it. The garbage collector never has to scan or move the data, so it can't add pauses to the
+ * timings, and the heap size (<code>-Xmx</code>) doesn't limit how large a sweep can go. Datasets are either
+ * allocated in native memory or memory-mapped from a file.
+ *
+ * <p> Closing a dataset frees its memory (or unmaps its file) straight away, instead of whenever the garbage
+ * collector gets round to it. When datasets come from <code>InputSource.bySize()</code>, ClassRunner and
+ * LambdaRunner close each one as soon as its benchmark finishes, so only one is ever allocated at a time. Once
+ * it's closed, every accessor throws an IllegalStateException, and so do <code>bytes()</code>, <code>ints()</code>
+ * and <code>longs()</code>. Views handed out before then can't be revoked, though, so if any were, closing leaves
+ * the memory for the garbage collector to free once they're unreachable, rather than letting them read freed
+ * memory. Use <code>getInt()</code> and the other accessors, or <code>toIntArray()</code>, to have it freed
+ * immediately.
+ *
+ * <p> Data is stored in the platform's native byte order (except in an InputCorpus, which always uses little-endian
+ * so its files are the same on every machine). Because it's backed by a ByteBuffer, a dataset can hold at most
+ * <code>Integer.MAX_VALUE</code> bytes.
+ */
+public final class OffHeapDataset implements AutoCloseable {
+    /** Frees a direct buffer immediately, or null if this JVM doesn't allow it */
+    private static final MethodHandle _INVOKE_CLEANER = _findCleaner();
+
+    private final ByteBuffer _BUFFER;
+    private final int _ELEMENT_BYTES;
+    private final boolean _IS_MAPPED;
+    private boolean _closed;
+    /** Whether a view has been handed out, which might still be reading the buffer after the dataset is closed */
+    private boolean _isViewed;
+
+    private OffHeapDataset(ByteBuffer buffer, int elementBytes, boolean isMapped, ByteOrder order) {
+        _BUFFER = buffer.order(order);
+        _ELEMENT_BYTES = elementBytes;
+        _IS_MAPPED = isMapped;
+    }
+
+    /**
+     * @param count How many ints to hold
+     * @return A new dataset of <code>count</code> zeroes
+     */
+    public static OffHeapDataset allocateInts(int count) {
+        return _allocate(count, Integer.BYTES);
+    }
+
+    /**
+     * @param count How many longs to hold
+     * @return A new dataset of <code>count</code> zeroes
+     */
+    public static OffHeapDataset allocateLongs(int count) {
+        return _allocate(count, Long.BYTES);
+    }
+
+    /**
+     * @param count How many bytes to hold
+     * @return A new dataset of <code>count</code> zeroes
+     */
+    public static OffHeapDataset allocateBytes(int count) {
+        return _allocate(count, Byte.BYTES);
+    }
+
+    /**
+     * Creates a dataset of random ints; it holds exactly the same values as <code>RandomInputs.ints(count, seed)</code>
+     * @param count How many ints to generate
+     * @param seed The seed for the random number generator
+     * @return A new dataset of random ints
+     */
+    public static OffHeapDataset randomInts(int count, long seed) {
+        OffHeapDataset dataset = allocateInts(count);
+        SplittableRandom random = RandomInputs.random(count, seed);
+        for (int i = 0; i < count; i++) {
+            dataset._BUFFER.putInt(i * Integer.BYTES, random.nextInt());
+        }
+        return dataset;
+    }
+
+    /**
+     * Creates a dataset of random longs; it holds exactly the same values as <code>RandomInputs.longs(count, seed)</code>
+     * @param count How many longs to generate
+     * @param seed The seed for the random number generator
+     * @return A new dataset of random longs
+     */
+    public static OffHeapDataset randomLongs(int count, long seed) {
+        OffHeapDataset dataset = allocateLongs(count);
+        SplittableRandom random = RandomInputs.random(count, seed);
+        for (int i = 0; i < count; i++) {
+            dataset._BUFFER.putLong(i * Long.BYTES, random.nextLong());
+        }
+        return dataset;
+    }
+
+    /**
+     * @param count How many bytes to generate
+     * @param seed The seed for the random number generator; the same seed and count always give the same bytes
+     * @return A new dataset of random bytes
+     */
+    public static OffHeapDataset randomBytes(int count, long seed) {
+        OffHeapDataset dataset = allocateBytes(count);
+        SplittableRandom random = RandomInputs.random(count, seed);
+        for (int i = 0; i < count; i++) {
+            dataset._BUFFER.put(i, (byte) random.nextInt());
+        }
+        return dataset;
+    }
+
+    /**
+     * Memory-maps a file of ints in native byte order. The mapping is private, so a benchmark can modify the data
+     * (e.g. sort it in place) without changing the file. If the file is read-only, so is the dataset.
+     * @param file The file to map
+     * @return A dataset reading the file's contents
+     * @throws UncheckedIOException If the file can't be opened or mapped
+     */
+    public static OffHeapDataset mapInts(Path file) {
+        return map(file, 0, -1, Integer.BYTES, ByteOrder.nativeOrder());
+    }
+
+    /**
+     * Memory-maps a file of longs in native byte order; see <code>mapInts()</code>
+     * @param file The file to map
+     * @return A dataset reading the file's contents
+     * @throws UncheckedIOException If the file can't be opened or mapped
+     */
+    public static OffHeapDataset mapLongs(Path file) {
+        return map(file, 0, -1, Long.BYTES, ByteOrder.nativeOrder());
+    }
+
+    /**
+     * Memory-maps a file of bytes; see <code>mapInts()</code>
+     * @param file The file to map
+     * @return A dataset reading the file's contents
+     * @throws UncheckedIOException If the file can't be opened or mapped
+     */
+    public static OffHeapDataset mapBytes(Path file) {
+        return map(file, 0, -1, Byte.BYTES, ByteOrder.nativeOrder());
+    }
+
+    /**
+     * @return How many elements (ints, longs or bytes) the dataset holds; also used as its size when benchmarking
+     */
+    public int size() {
+        return _BUFFER.capacity() / _ELEMENT_BYTES;
+    }
+
+    /**
+     * @return How many bytes the dataset takes up
+     */
+    public long byteSize() {
+        return _BUFFER.capacity();
+    }
+
+    /**
+     * @return True if the dataset is a memory-mapped file, false if it was allocated
+     */
+    public boolean isMapped() {
+        return _IS_MAPPED;
+    }
+
+    /**
+     * @return True once the dataset has been closed and its memory released
+     */
+    public boolean isClosed() {
+        return _closed;
+    }
+
+    public int getInt(int index) {
+        _checkOpen();
+        return _BUFFER.getInt(index * Integer.BYTES);
+    }
+
+    public void setInt(int index, int value) {
+        _checkOpen();
+        _BUFFER.putInt(index * Integer.BYTES, value);
+    }
+
+    public long getLong(int index) {
+        _checkOpen();
+        return _BUFFER.getLong(index * Long.BYTES);
+    }
+
+    public void setLong(int index, long value) {
+        _checkOpen();
+        _BUFFER.putLong(index * Long.BYTES, value);
+    }
+
+    public byte getByte(int index) {
+        _checkOpen();
+        return _BUFFER.get(index);
+    }
+
+    public void setByte(int index, byte value) {
+        _checkOpen();
+        _BUFFER.put(index, value);
+    }
+
+    /**
+     * @return A view of the whole dataset as bytes, with its own position and limit
+     * @throws IllegalStateException If the dataset has been closed
+     */
+    public ByteBuffer bytes() {
+        _checkOpen();
+        _isViewed = true;
+        return _view();
+    }
+
+    /**
+     * @return A view of the whole dataset as ints, with its own position and limit
+     * @throws IllegalStateException If the dataset has been closed
+     */
+    public IntBuffer ints() {
+        return bytes().asIntBuffer();
+    }
+
+    /**
+     * @return A view of the whole dataset as longs, with its own position and limit
+     * @throws IllegalStateException If the dataset has been closed
+     */
+    public LongBuffer longs() {
+        return bytes().asLongBuffer();
+    }
+
+    /**
+     * Copies the whole dataset onto the heap; unlike <code>ints()</code>, this doesn't stop <code>close()</code>
+     * freeing the memory straight away
+     * @return A new array holding every int
+     * @throws IllegalStateException If the dataset has been closed
+     */
+    public int[] toIntArray() {
+        _checkOpen();
+        int[] values = new int[_BUFFER.capacity() / Integer.BYTES];
+        _view().asIntBuffer().get(values);
+        return values;
+    }
+
+    /**
+     * Copies the whole dataset onto the heap; see <code>toIntArray()</code>
+     * @return A new array holding every long
+     * @throws IllegalStateException If the dataset has been closed
+     */
+    public long[] toLongArray() {
+        _checkOpen();
+        long[] values = new long[_BUFFER.capacity() / Long.BYTES];
+        _view().asLongBuffer().get(values);
+        return values;
+    }
+
+    /**
+     * Frees the dataset's memory, or unmaps its file, straight away, unless a view of it has been handed out.
+     * Does nothing if it's already closed.
+     */
+    @Override
+    public void close() {
+        if (_closed) {
+            return;
+        }
+        _closed = true;
+        // A view shares the buffer's memory, and keeps it reachable, so it's only safe to let the GC free it
+        if (_INVOKE_CLEANER != null && !_isViewed) {
+            try {
+                _INVOKE_CLEANER.invokeExact(_BUFFER);
+            } catch (Throwable e) {
+                // Freeing failed, so leave the memory for the garbage collector to release later
+            }
+        }
+    }
+
+    /** A view that never leaves this class, so it can't outlive the buffer */
+    private ByteBuffer _view() {
+        return _BUFFER.duplicate().order(_BUFFER.order());
+    }
+
+    private void _checkOpen() {
+        if (_closed) {
+            throw new IllegalStateException("This dataset has already been closed");
+        }
+    }
+
+    private static OffHeapDataset _allocate(int count, int elementBytes) {
+        return new OffHeapDataset(ByteBuffer.allocateDirect(_byteSize(count, elementBytes)), elementBytes, false,
+                                    ByteOrder.nativeOrder());
+    }
+
+    /**
+     * Memory-maps part of a file, privately if the file is writable and read-only otherwise
+     * @param file The file to map
+     * @param offset Where the dataset starts in the file, in bytes
+     * @param bytes How long the dataset is in bytes, or -1 to map everything from offset to the end of the file
+     * @param elementBytes How many bytes each element takes up
+     * @param order The byte order the data was written in
+     * @return A dataset reading that part of the file
+     * @throws UncheckedIOException If the file can't be opened or mapped
+     */
+    static OffHeapDataset map(Path file, long offset, long bytes, int elementBytes, ByteOrder order) {
+        try {
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                return _map(file, channel, FileChannel.MapMode.PRIVATE, offset, bytes, elementBytes, order);
+            } catch (AccessDeniedException e) {
+                // A private mapping needs write access to the file, even though it never writes to it
+                try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                    return _map(file, channel, FileChannel.MapMode.READ_ONLY, offset, bytes, elementBytes, order);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to map "+file, e);
+        }
+    }
+
+    private static OffHeapDataset _map(Path file, FileChannel channel, FileChannel.MapMode mode, long offset,
+                                        long bytes, int elementBytes, ByteOrder order) throws IOException {
+        if (bytes < 0) {
+            bytes = channel.size() - offset;
+        }
+        if (bytes % elementBytes != 0) {
+            throw new IllegalArgumentException(file+" holds "+bytes+" bytes, which isn't a whole number of "
+                                                +elementBytes+"-byte elements");
+        }
+        if (offset + bytes > channel.size()) {
+            throw new IllegalArgumentException(file+" is too short; it may have been truncated");
+        }
+        _byteSize(bytes / elementBytes, elementBytes);
+        return new OffHeapDataset(channel.map(mode, offset, bytes), elementBytes, true, order);
+    }
+
+    private static int _byteSize(long count, int elementBytes) {
+        if (count < 0) {
+            throw new IllegalArgumentException("Size can't be negative: "+count);
+        }
+        long bytes = count * elementBytes;
+        if (bytes > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException(count+" elements of "+elementBytes+" bytes is too large for a dataset");
+        }
+        return (int) bytes;
+    }
+
+    /**
+     * Direct buffers are normally only freed once the garbage collector notices they're unreachable.
+     * <code>sun.misc.Unsafe.invokeCleaner()</code> frees one immediately; it's exported by the jdk.unsupported
+     * module, so it works without any extra JVM flags.
+     */
+    private static MethodHandle _findCleaner() {
+        try {
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+            theUnsafe.setAccessible(true);
+            MethodHandle invokeCleaner = MethodHandles.lookup().findVirtual(unsafeClass, "invokeCleaner",
+                                                            MethodType.methodType(void.class, ByteBuffer.class));
+            return invokeCleaner.bindTo(theUnsafe.get(null));
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return null;
+        }
+    }
+}
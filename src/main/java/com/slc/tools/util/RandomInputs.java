@@ -0,0 +1,102 @@
+package com.slc.tools.util;
+
+import java.util.SplittableRandom;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * Generates random primitive arrays to benchmark with. Unlike a List&lt;Integer&gt;, an int[] holds its values
+ * directly rather than as pointers to boxed objects scattered around the heap, so a benchmark reading it measures
+ * the algorithm instead of cache misses and unboxing.
+ *
+ * <p> Every method takes a seed, and the same seed always gives the same values, so runs can be repeated exactly.
+ * Each array is generated from the seed and its own size, so an array of a given size is the same no matter which
+ * other sizes are generated alongside it or in what order.
+ */
+public final class RandomInputs {
+    /** Spreads consecutive sizes far apart, so neighbouring sizes don't get related sequences */
+    private static final long _SIZE_MIXER = 0x9E3779B97F4A7C15L;
+
+    private RandomInputs() {    }
+
+    /**
+     * @param size How many values to generate
+     * @param seed The seed for the random number generator
+     * @return An array of <code>size</code> random ints
+     */
+    public static int[] ints(int size, long seed) {
+        return random(size, seed).ints(size).toArray();
+    }
+
+    /**
+     * @param size How many values to generate
+     * @param min The smallest value to generate (inclusive)
+     * @param max The largest value to generate (exclusive)
+     * @param seed The seed for the random number generator
+     * @return An array of <code>size</code> random ints between min and max
+     */
+    public static int[] ints(int size, int min, int max, long seed) {
+        return random(size, seed).ints(size, min, max).toArray();
+    }
+
+    /**
+     * @param size How many values to generate
+     * @param seed The seed for the random number generator
+     * @return An array of <code>size</code> random longs
+     */
+    public static long[] longs(int size, long seed) {
+        return random(size, seed).longs(size).toArray();
+    }
+
+    /**
+     * @param size How many values to generate
+     * @param seed The seed for the random number generator
+     * @return An array of <code>size</code> random doubles between 0 (inclusive) and 1 (exclusive)
+     */
+    public static double[] doubles(int size, long seed) {
+        return random(size, seed).doubles(size).toArray();
+    }
+
+    /**
+     * Generates one random int array for each size, as it's needed, so only the array currently being benchmarked
+     * has to be in memory
+     * @param sizes The size of each array
+     * @param seed The seed for the random number generator
+     * @return A lazy Stream of random int arrays, one for each size
+     */
+    public static Stream<int[]> intArrays(IntStream sizes, long seed) {
+        return sizes.mapToObj((int size) -> ints(size, seed));
+    }
+
+    /**
+     * Generates one random long array for each size, as it's needed
+     * @param sizes The size of each array
+     * @param seed The seed for the random number generator
+     * @return A lazy Stream of random long arrays, one for each size
+     */
+    public static Stream<long[]> longArrays(IntStream sizes, long seed) {
+        return sizes.mapToObj((int size) -> longs(size, seed));
+    }
+
+    /**
+     * Generates one random double array for each size, as it's needed
+     * @param sizes The size of each array
+     * @param seed The seed for the random number generator
+     * @return A lazy Stream of random double arrays, one for each size
+     */
+    public static Stream<double[]> doubleArrays(IntStream sizes, long seed) {
+        return sizes.mapToObj((int size) -> doubles(size, seed));
+    }
+
+    /**
+     * @param size The size of the input being generated
+     * @param seed The seed the caller was given
+     * @return The random number generator every input of this size and seed is generated from
+     */
+    static SplittableRandom random(int size, long seed) {
+        if (size < 0) {
+            throw new IllegalArgumentException("Size can't be negative: "+size);
+        }
+        return new SplittableRandom(seed ^ (size * _SIZE_MIXER));
+    }
+}
@@ -0,0 +1,387 @@
+package com.slc.tools.util;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Compares a benchmark run against a baseline run, e.g. a pull request against its target branch, and flags every
+ * test and size that got slower by more than a threshold. Results are matched by test name and size, and the
+ * per-iteration samples on each side are compared with a two-sided Mann-Whitney U test, so a change only counts if
+ * it's both large enough and unlikely to be noise. If either side has too few samples for the test to ever be
+ * significant (e.g. it was measured in one go), a change beyond the threshold is only reported as
+ * <code>INCONCLUSIVE</code>, since there's no telling it apart from noise; it never fails the check. Measure with
+ * more iterations (at least four per side) to gate on those results.
+ *
+ * <p> <code>main()</code> runs a check from the command line and exits with status 1 if anything regressed, so it
+ * can be used directly as a CI step.
+ */
+public class RegressionCheck {
+
+    /** What happened to one test and size between the baseline and the candidate */
+    public enum Verdict {
+        /** Significantly slower by more than the threshold */
+        REGRESSION,
+        /** Significantly faster by more than the threshold */
+        IMPROVEMENT,
+        /** Within the threshold, or not significantly different */
+        UNCHANGED,
+        /** Beyond the threshold, but with too few samples to tell whether it's noise; never fails the check */
+        INCONCLUSIVE,
+        /** In the baseline but not the candidate */
+        MISSING,
+        /** In the candidate but not the baseline */
+        NEW
+    }
+
+    /**
+     * The comparison of one test and size
+     * @param testName The name of the test
+     * @param size The size of the input, or null if it had none
+     * @param baselineMedianNanos The median of the baseline's samples, or NaN if the baseline didn't have it
+     * @param candidateMedianNanos The median of the candidate's samples, or NaN if the candidate didn't have it
+     * @param relativeChange How much slower the candidate is, as a fraction of the baseline (e.g. 0.1 is 10% slower,
+     * -0.1 is 10% faster), or NaN if the baseline's median is 0
+     * @param pValue The Mann-Whitney U test's two-sided p-value, or NaN if there weren't enough samples to test
+     * @param verdict What the comparison concluded
+     */
+    public static record Comparison(String testName, Double size, double baselineMedianNanos,
+                                    double candidateMedianNanos, double relativeChange, double pValue,
+                                    Verdict verdict) {
+        @Override
+        public String toString() {
+            String pText = Double.isNaN(pValue) ? "n/a" : String.format("%.4f", pValue);
+            return String.format("%-11s %-40s %12s %14.2f %14.2f %+9.2f%% %8s",
+                                    verdict, testName, size, baselineMedianNanos, candidateMedianNanos,
+                                    relativeChange * 100, pText);
+        }
+    }
+
+    /** The default slowdown allowed before a change counts as a regression */
+    public static final double DEFAULT_THRESHOLD = 0.05;
+    /** The significance level changes must reach */
+    public static final double ALPHA = 0.05;
+    /** Above this many samples per side, the normal approximation is used instead of the exact distribution */
+    private static final int _MAX_EXACT_SAMPLES = 20;
+
+    private final ResultsStore.StoredRun _BASELINE;
+    private final ResultsStore.StoredRun _CANDIDATE;
+    private final double _THRESHOLD;
+    private final List<Comparison> _COMPARISONS;
+
+    private RegressionCheck(ResultsStore.StoredRun baseline, ResultsStore.StoredRun candidate, double threshold,
+                            List<Comparison> comparisons) {
+        _BASELINE = baseline;
+        _CANDIDATE = candidate;
+        _THRESHOLD = threshold;
+        _COMPARISONS = Collections.unmodifiableList(comparisons);
+    }
+
+    /**
+     * Compares every test and size in two runs
+     * @param baseline The run to compare against
+     * @param candidate The run being checked
+     * @param threshold The fraction the candidate may be slower by before it counts as a regression, e.g. 0.05
+     * @return The comparison, in the baseline's order followed by anything new in the candidate
+     * @throws IllegalArgumentException If either run has more than one result for the same test and size, since
+     * they couldn't be told apart
+     */
+    public static RegressionCheck compare(ResultsStore.StoredRun baseline, ResultsStore.StoredRun candidate,
+                                            double threshold) throws IllegalArgumentException {
+        _byKey(baseline);
+        Map<String, ResultsStore.StoredResult> remaining = _byKey(candidate);
+
+        List<Comparison> comparisons = new ArrayList<>();
+        for (ResultsStore.StoredResult before : baseline.results()) {
+            ResultsStore.StoredResult after = remaining.remove(_key(before));
+            if (after == null) {
+                comparisons.add(new Comparison(before.testName(), before.size(), median(before.samplesNanos()),
+                                                Double.NaN, Double.NaN, Double.NaN, Verdict.MISSING));
+            } else {
+                comparisons.add(_compare(before, after, threshold));
+            }
+        }
+        for (ResultsStore.StoredResult after : remaining.values()) {
+            comparisons.add(new Comparison(after.testName(), after.size(), Double.NaN, median(after.samplesNanos()),
+                                            Double.NaN, Double.NaN, Verdict.NEW));
+        }
+        return new RegressionCheck(baseline, candidate, threshold, comparisons);
+    }
+
+    /**
+     * @return Every comparison made
+     */
+    public List<Comparison> comparisons() {
+        return _COMPARISONS;
+    }
+
+    /**
+     * @return Only the comparisons that regressed
+     */
+    public List<Comparison> regressions() {
+        return _COMPARISONS.stream().filter((Comparison c) -> c.verdict() == Verdict.REGRESSION).toList();
+    }
+
+    /**
+     * @return Whether anything regressed
+     */
+    public boolean hasRegressions() {
+        return !regressions().isEmpty();
+    }
+
+    /**
+     * @return The exit status a CI step should finish with: 1 if anything regressed, otherwise 0
+     */
+    public int exitCode() {
+        return hasRegressions() ? 1 : 0;
+    }
+
+    /** Returns a print-friendly table of every comparison, headed by the two runs being compared */
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("Baseline:  ").append(_describe(_BASELINE.info())).append("\n");
+        sb.append("Candidate: ").append(_describe(_CANDIDATE.info())).append("\n");
+        if (!_BASELINE.info().isComparableTo(_CANDIDATE.info())) {
+            sb.append("WARNING: These runs used different JVMs or machines, so their times may not be comparable.\n");
+        }
+        sb.append(String.format("Threshold: %.1f%%, alpha: %.2f\n\n", _THRESHOLD * 100, ALPHA));
+        sb.append(String.format("%-11s %-40s %12s %14s %14s %10s %8s\n",
+                                "Verdict", "Test", "Size", "Baseline (ns)", "Candidate (ns)", "Change", "p"));
+        for (Comparison comparison : _COMPARISONS) {
+            sb.append(comparison).append("\n");
+        }
+        sb.append("\n").append(regressions().size()).append(" regression(s)\n");
+        long inconclusive = _COMPARISONS.stream()
+                                        .filter((Comparison c) -> c.verdict() == Verdict.INCONCLUSIVE).count();
+        if (inconclusive > 0) {
+            sb.append(inconclusive).append(" inconclusive; measure with more iterations to test them\n");
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Runs a check from the command line and exits with <code>exitCode()</code>. Arguments are the store's
+     * directory, then optionally the commit to use as the baseline (by default, the latest run before the
+     * candidate on the same JVM and host), then optionally <code>--threshold 0.05</code>. The candidate is always
+     * the latest run in the store.
+     * @param args The command line arguments
+     */
+    public static void main(String[] args) {
+        if (args.length < 1) {
+            System.err.println("Usage: RegressionCheck <store directory> [baseline commit] [--threshold 0.05]");
+            System.exit(2);
+        }
+        ResultsStore store = new ResultsStore(Path.of(args[0]));
+        String baselineCommit = null;
+        double threshold = DEFAULT_THRESHOLD;
+        for (int i = 1; i < args.length; i++) {
+            if (args[i].equals("--threshold") && i + 1 < args.length) {
+                threshold = Double.parseDouble(args[++i]);
+            } else {
+                baselineCommit = args[i];
+            }
+        }
+
+        Optional<ResultsStore.StoredRun> candidate = store.latest();
+        if (candidate.isEmpty()) {
+            System.err.println("No runs found in "+store.directory());
+            System.exit(2);
+        }
+        Optional<ResultsStore.StoredRun> baseline = (baselineCommit == null)
+                                                        ? store.previousComparable(candidate.get())
+                                                        : store.findByCommit(baselineCommit);
+        if (baseline.isEmpty()) {
+            System.err.println("No baseline run found in "+store.directory());
+            System.exit(2);
+        }
+
+        RegressionCheck check = compare(baseline.get(), candidate.get(), threshold);
+        System.out.println(check);
+        System.exit(check.exitCode());
+    }
+
+    /**
+     * @param samples Any number of values
+     * @return Their median, or NaN if there aren't any
+     */
+    static double median(double[] samples) {
+        if (samples.length == 0) {
+            return Double.NaN;
+        }
+        double[] sorted = samples.clone();
+        Arrays.sort(sorted);
+        int middle = sorted.length / 2;
+        return (sorted.length % 2 == 1) ? sorted[middle] : (sorted[middle - 1] + sorted[middle]) / 2;
+    }
+
+    /**
+     * Runs a two-sided Mann-Whitney U test on two samples. Small samples without ties use the exact distribution of
+     * U; otherwise the normal approximation is used, corrected for ties and continuity.
+     * @param first One sample
+     * @param second The other sample
+     * @return The probability of seeing a difference at least this large if both came from the same distribution
+     */
+    static double mannWhitneyPValue(double[] first, double[] second) {
+        int n1 = first.length, n2 = second.length, n = n1 + n2;
+        double[] pooled = new double[n];
+        System.arraycopy(first, 0, pooled, 0, n1);
+        System.arraycopy(second, 0, pooled, n1, n2);
+        Arrays.sort(pooled);
+
+        // Average ranks of tied values, and the tie correction sum of (t^3 - t) over each group of ties
+        double rankSum = 0;
+        double tieCorrection = 0;
+        for (double value : first) {
+            int below = _countBelow(pooled, value);
+            int equal = _countBelow(pooled, Math.nextUp(value)) - below;
+            rankSum += below + (equal + 1) / 2.0;
+        }
+        for (int i = 0; i < n; ) {
+            int j = i;
+            while (j < n && pooled[j] == pooled[i]) {
+                j++;
+            }
+            double t = j - i;
+            tieCorrection += t * t * t - t;
+            i = j;
+        }
+        double u = rankSum - n1 * (n1 + 1) / 2.0;
+
+        if (tieCorrection == 0 && n1 <= _MAX_EXACT_SAMPLES && n2 <= _MAX_EXACT_SAMPLES) {
+            double[] distribution = _exactDistribution(n1, n2);
+            double total = 0, atMost = 0;
+            for (int k = 0; k < distribution.length; k++) {
+                total += distribution[k];
+                if (k <= u) {
+                    atMost += distribution[k];
+                }
+            }
+            double atLeast = total - atMost + distribution[(int) u];
+            return Math.min(1, 2 * Math.min(atMost, atLeast) / total);
+        }
+
+        double mean = n1 * n2 / 2.0;
+        double variance = n1 * n2 / 12.0 * ((n + 1) - tieCorrection / ((double) n * (n - 1)));
+        if (variance <= 0) {
+            return 1;
+        }
+        double z = Math.max(0, Math.abs(u - mean) - 0.5) / Math.sqrt(variance);
+        return Math.min(1, 2 * (1 - _normalCdf(z)));
+    }
+
+    private static Comparison _compare(ResultsStore.StoredResult before, ResultsStore.StoredResult after,
+                                        double threshold) {
+        double baselineMedian = median(before.samplesNanos());
+        double candidateMedian = median(after.samplesNanos());
+        if (baselineMedian == 0) {
+            // No relative change can be measured from nothing, so only an unchanged 0 can be judged
+            Verdict verdict = (candidateMedian == 0) ? Verdict.UNCHANGED : Verdict.INCONCLUSIVE;
+            return new Comparison(before.testName(), before.size(), baselineMedian, candidateMedian, Double.NaN,
+                                    Double.NaN, verdict);
+        }
+        double change = candidateMedian / baselineMedian - 1;
+
+        // With too few samples the test can never reach ALPHA, so a change can't be told apart from noise
+        boolean testable = _canReachAlpha(before.samplesNanos().length, after.samplesNanos().length);
+        double pValue = testable ? mannWhitneyPValue(before.samplesNanos(), after.samplesNanos()) : Double.NaN;
+
+        Verdict verdict = Verdict.UNCHANGED;
+        if (Math.abs(change) > threshold) {
+            if (!testable) {
+                verdict = Verdict.INCONCLUSIVE;
+            } else if (pValue < ALPHA) {
+                verdict = (change > 0) ? Verdict.REGRESSION : Verdict.IMPROVEMENT;
+            }
+        }
+        return new Comparison(before.testName(), before.size(), baselineMedian, candidateMedian, change, pValue,
+                                verdict);
+    }
+
+    /** The smallest two-sided p-value possible is 2 / (n1 + n2 choose n1), when the samples don't overlap at all */
+    private static boolean _canReachAlpha(int n1, int n2) {
+        if (n1 < 2 || n2 < 2) {
+            return false;
+        }
+        double combinations = 1;
+        for (int i = 1; i <= n1; i++) {
+            combinations = combinations * (n2 + i) / i;
+        }
+        return 2 / combinations < ALPHA;
+    }
+
+    /**
+     * Counts how many ways the two samples' ranks can be arranged to give each value of U, using the recurrence
+     * f(i, j, u) = f(i - 1, j, u - j) + f(i, j - 1, u)
+     */
+    private static double[] _exactDistribution(int n1, int n2) {
+        double[][][] counts = new double[n1 + 1][n2 + 1][];
+        for (int i = 0; i <= n1; i++) {
+            for (int j = 0; j <= n2; j++) {
+                double[] current = new double[i * j + 1];
+                if (i == 0 || j == 0) {
+                    current[0] = 1;
+                } else {
+                    double[] withoutFirst = counts[i - 1][j];
+                    double[] withoutSecond = counts[i][j - 1];
+                    for (int u = 0; u < current.length; u++) {
+                        double count = (u < withoutSecond.length) ? withoutSecond[u] : 0;
+                        if (u >= j && u - j < withoutFirst.length) {
+                            count += withoutFirst[u - j];
+                        }
+                        current[u] = count;
+                    }
+                }
+                counts[i][j] = current;
+            }
+        }
+        return counts[n1][n2];
+    }
+
+    private static int _countBelow(double[] sorted, double value) {
+        int low = 0, high = sorted.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (sorted[mid] < value) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /** The standard normal CDF, from Abramowitz and Stegun's approximation 7.1.26 of erf (error below 1.5e-7) */
+    private static double _normalCdf(double z) {
+        double x = Math.abs(z) / Math.sqrt(2);
+        double t = 1 / (1 + 0.3275911 * x);
+        double erf = 1 - t * (0.254829592 + t * (-0.284496736 + t * (1.421413741
+                                + t * (-1.453152027 + t * 1.061405429)))) * Math.exp(-x * x);
+        return (z >= 0) ? (1 + erf) / 2 : (1 - erf) / 2;
+    }
+
+    private static String _key(ResultsStore.StoredResult result) {
+        return result.testName()+"@"+result.size();
+    }
+
+    /** Indexes a run's results by test and size, in order, rejecting any that share both */
+    private static Map<String, ResultsStore.StoredResult> _byKey(ResultsStore.StoredRun run) {
+        Map<String, ResultsStore.StoredResult> results = new LinkedHashMap<>();
+        for (ResultsStore.StoredResult result : run.results()) {
+            if (results.putIfAbsent(_key(result), result) != null) {
+                throw new IllegalArgumentException("Run "+run.info().gitCommit()+" has more than one result for test \""
+                                                    +result.testName()+"\" at size "+result.size());
+            }
+        }
+        return results;
+    }
+
+    private static String _describe(RunInfo info) {
+        return info.gitCommit()+" at "+info.timestamp()+" ("+info.jvmVersion()+", host "+info.hostFingerprint()+")";
+    }
+}
@@ -0,0 +1,191 @@
+package com.slc.tools.util;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+/**
+ * Keeps the results of every benchmark run in a directory, one JSON file per run, each tagged with the RunInfo
+ * (git commit, JVM and host) it came from. Runs are never overwritten, so a later run can be checked against any
+ * earlier one with RegressionCheck.
+ *
+ * <p> Only what's needed for comparing runs is kept: each result's test name, size, raw time per call and
+ * per-iteration samples. Use Jsonifier or BinaryResultsWriter to keep everything else.
+ */
+public class ResultsStore {
+
+    /**
+     * One benchmark result, reduced to what's needed to compare it against another run
+     * @param testName The name of the test
+     * @param size The size of the input, or null if it had none
+     * @param rawTimeNanos The average time per call, in nanoseconds
+     * @param samplesNanos The average time per call of each measured iteration (or fork), or just rawTimeNanos
+     * if the benchmark was measured in one go
+     */
+    public static record StoredResult(String testName, Double size, double rawTimeNanos, double[] samplesNanos)
+                                        implements Serializable {
+        /**
+         * @param stats A benchmark result; it must have completed at least one call
+         * @return The parts of it worth storing
+         */
+        public static StoredResult of(BenchmarkStats stats) {
+            double[] samples = (stats.iterations() != null)
+                                    ? stats.iterations().averageTimesNanos().clone()
+                                    : new double[] {stats.rawTimeNanos()};
+            return new StoredResult(stats.testName(), stats.size(), stats.rawTimeNanos(), samples);
+        }
+    }
+
+    /**
+     * Every result from one benchmark run
+     * @param info Where and when the run happened
+     * @param results The results, in the order they were saved
+     */
+    public static record StoredRun(RunInfo info, List<StoredResult> results) implements Serializable {    }
+
+    private final Path _DIRECTORY;
+
+    /**
+     * @param directory The directory to keep runs in; it's created when the first run is saved
+     */
+    public ResultsStore(Path directory) {
+        _DIRECTORY = directory;
+    }
+
+    /**
+     * @return The directory runs are kept in
+     */
+    public Path directory() {
+        return _DIRECTORY;
+    }
+
+    /**
+     * Saves a run, tagged with the current commit, JVM and host
+     * @param results The results of the run; null results, and results which didn't complete any calls, are skipped
+     * @return The saved run
+     * @throws UncheckedIOException If the run can't be written
+     */
+    public StoredRun save(List<BenchmarkStats> results) {
+        return save(RunInfo.current(), results);
+    }
+
+    /**
+     * Saves a run under the given RunInfo
+     * @param info Where and when the run happened
+     * @param results The results of the run; null results, and results which didn't complete any calls, are skipped
+     * @return The saved run
+     * @throws UncheckedIOException If the run can't be written
+     */
+    public StoredRun save(RunInfo info, List<BenchmarkStats> results) {
+        List<StoredResult> stored = new ArrayList<>();
+        for (BenchmarkStats result : results) {
+            if (result != null && result.loopsCompleted() > 0) {
+                stored.add(StoredResult.of(result));
+            }
+        }
+        StoredRun run = new StoredRun(info, stored);
+
+        String commit = info.gitCommit().replaceAll("[^A-Za-z0-9-]", "");
+        String name = info.timestamp().toEpochMilli()+"-"+commit.substring(0, Math.min(12, commit.length()));
+        try {
+            Files.createDirectories(_DIRECTORY);
+            Path file = _DIRECTORY.resolve(name+".json");
+            for (int i = 1; Files.exists(file); i++) {
+                file = _DIRECTORY.resolve(name+"-"+i+".json");
+            }
+            // Written to a temporary file first, so a run that's cut short never leaves a half-written file behind
+            Path temp = Files.createTempFile(_DIRECTORY, name, ".tmp");
+            ObjectMapper om = Jsonifier.newObjectMapper();
+            om.enable(SerializationFeature.INDENT_OUTPUT);
+            om.writeValue(temp.toFile(), run);
+            Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to save results to "+_DIRECTORY, e);
+        }
+        return run;
+    }
+
+    /**
+     * @return Every run in the store, oldest first; empty if the directory doesn't exist yet
+     * @throws UncheckedIOException If a run can't be read
+     */
+    public List<StoredRun> list() {
+        if (!Files.isDirectory(_DIRECTORY)) {
+            return List.of();
+        }
+        List<StoredRun> runs = new ArrayList<>();
+        try (Stream<Path> files = Files.list(_DIRECTORY)) {
+            for (Path file : files.filter((Path path) -> path.toString().endsWith(".json")).toList()) {
+                runs.add(load(file));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to list "+_DIRECTORY, e);
+        }
+        runs.sort(Comparator.comparing((StoredRun run) -> run.info().timestamp()));
+        return runs;
+    }
+
+    /**
+     * @return The most recently saved run, if there is one
+     */
+    public Optional<StoredRun> latest() {
+        List<StoredRun> runs = list();
+        return runs.isEmpty() ? Optional.empty() : Optional.of(runs.get(runs.size() - 1));
+    }
+
+    /**
+     * @param commitPrefix The start of a git commit hash, e.g. the short hash from <code>git log --oneline</code>
+     * @return The most recent run of that commit, if there is one
+     */
+    public Optional<StoredRun> findByCommit(String commitPrefix) {
+        List<StoredRun> runs = list();
+        for (int i = runs.size() - 1; i >= 0; i--) {
+            if (runs.get(i).info().gitCommit().startsWith(commitPrefix)) {
+                return Optional.of(runs.get(i));
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * @param run A run
+     * @return The most recent run saved before it on the same JVM and host, if there is one
+     */
+    public Optional<StoredRun> previousComparable(StoredRun run) {
+        List<StoredRun> runs = list();
+        for (int i = runs.size() - 1; i >= 0; i--) {
+            RunInfo candidate = runs.get(i).info();
+            if (candidate.timestamp().isBefore(run.info().timestamp()) && candidate.isComparableTo(run.info())) {
+                return Optional.of(runs.get(i));
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * @param file A file written by <code>save()</code>
+     * @return The run it holds
+     * @throws UncheckedIOException If the file can't be read
+     */
+    public static StoredRun load(Path file) {
+        ObjectMapper om = Jsonifier.newObjectMapper();
+        om.disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+        try {
+            return om.readValue(file.toFile(), StoredRun.class);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to read "+file, e);
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package com.slc.tools.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Serializable;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Identifies where and when a set of benchmark results came from, so results can be compared against earlier runs
+ * of the same code on the same machine
+ * @param gitCommit The commit the code was built from, with "-dirty" appended if there were uncommitted changes,
+ * or "unknown" if it couldn't be found
+ * @param jvmVersion The JVM's vendor, name and version
+ * @param hostFingerprint A short hash of the machine's CPU model, core count, architecture and operating system;
+ * runs with different fingerprints aren't comparable
+ * @param timestamp When the run was saved
+ */
+public record RunInfo(String gitCommit, String jvmVersion, String hostFingerprint, Instant timestamp)
+                        implements Serializable {
+
+    private static final long _COMMAND_TIMEOUT_SECONDS = 5;
+    /** Commit variables set by common CI systems, checked before asking git */
+    private static final String[] _COMMIT_VARIABLES = {"GIT_COMMIT", "GITHUB_SHA", "CI_COMMIT_SHA"};
+
+    /**
+     * @return Information about the current JVM, machine and git commit, timestamped now
+     */
+    public static RunInfo current() {
+        return new RunInfo(_findGitCommit(), _jvmVersion(), _hostFingerprint(), Instant.now());
+    }
+
+    /**
+     * @param other Another run
+     * @return True if the two runs used the same JVM on the same machine, so their times can be compared
+     */
+    public boolean isComparableTo(RunInfo other) {
+        return jvmVersion.equals(other.jvmVersion) && hostFingerprint.equals(other.hostFingerprint);
+    }
+
+    private static String _findGitCommit() {
+        for (String variable : _COMMIT_VARIABLES) {
+            String commit = System.getenv(variable);
+            if (commit != null && !commit.isBlank()) {
+                return commit.trim();
+            }
+        }
+        // rev-parse always gives the full hash, unlike describe, which switches to tag names once there are any
+        String commit = _run("git", "rev-parse", "HEAD");
+        if (commit == null || commit.isEmpty()) {
+            return "unknown";
+        }
+        String changes = _run("git", "status", "--porcelain");
+        return (changes == null || changes.isEmpty()) ? commit : commit+"-dirty";
+    }
+
+    /** Runs a short command, returning its trimmed output, or null if it failed or took too long */
+    private static String _run(String... command) {
+        try {
+            Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+            String output;
+            try (InputStream in = process.getInputStream()) {
+                output = new String(in.readAllBytes(), StandardCharsets.UTF_8).trim();
+            }
+            if (!process.waitFor(_COMMAND_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                process.destroy();
+                return null;
+            }
+            return (process.exitValue() == 0) ? output : null;
+        } catch (IOException e) {
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+    }
+
+    private static String _jvmVersion() {
+        return System.getProperty("java.vm.vendor")+" "+System.getProperty("java.vm.name")+" "+Runtime.version();
+    }
+
+    /**
+     * Describes the hardware rather than the host, so that fresh CI runners of the same type, whose host names and
+     * kernel versions change every time, still get the same fingerprint
+     */
+    private static String _hostFingerprint() {
+        String description = String.join("|", _cpuModel(), String.valueOf(Runtime.getRuntime().availableProcessors()),
+                                            System.getProperty("os.arch"), System.getProperty("os.name"));
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(description.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(hash, 0, 8);
+        } catch (NoSuchAlgorithmException e) {
+            // Every JVM is required to support SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String _cpuModel() {
+        try (Stream<String> lines = Files.lines(Path.of("/proc/cpuinfo"))) {
+            Optional<String> model = lines.filter((String line) -> line.startsWith("model name"))
+                                          .map((String line) -> line.substring(line.indexOf(':') + 1).trim())
+                                          .findFirst();
+            if (model.isPresent()) {
+                return model.get();
+            }
+        } catch (IOException | UncheckedIOException e) {
+            // Not Linux; try the other platforms' sources below
+        }
+        String model = System.getenv("PROCESSOR_IDENTIFIER");
+        if (model == null && System.getProperty("os.name").startsWith("Mac")) {
+            model = _run("sysctl", "-n", "machdep.cpu.brand_string");
+        }
+        return (model == null || model.isBlank()) ? "unknown" : model.trim();
+    }
+}
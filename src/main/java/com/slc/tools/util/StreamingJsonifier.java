@@ -0,0 +1,161 @@
+package com.slc.tools.util;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.Objects;
+import java.util.stream.Stream;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Writes BenchmarkStats to a JSON file as soon as they're produced, instead of holding them all in memory like
+ * Jsonifier does. The file has exactly the same layout as Jsonifier's, with consecutive results that share a test
+ * name grouped together.
+ *
+ * <p> Results are buffered in memory until the buffer fills up or the flush interval passes. Every flush writes the
+ * closing brackets after the new data and then seeks back over them on the next flush, so the file on disk is always
+ * a complete, valid JSON document; if the program crashes, only the results since the last flush are lost.
+ */
+public class StreamingJsonifier implements Closeable {
+    public static final int DEFAULT_BUFFER_BYTES = 64 * 1024;
+    public static final long DEFAULT_FLUSH_INTERVAL_NANOS = 1_000_000_000;
+
+    private static final byte[] _OPEN_ARRAY = "[".getBytes(StandardCharsets.UTF_8);
+
+    private final File _destinationFile;
+    private final ObjectMapper _mapper = Jsonifier.newObjectMapper();
+    private final ByteArrayOutputStream _buffer = new ByteArrayOutputStream();
+    private final int _maxBufferBytes;
+    private final long _flushIntervalNanos;
+
+    private FileChannel _channel;
+    private long _committedLength;
+    private long _lastFlushTime;
+    private String _currentTestName;
+    private boolean _groupOpen, _anyGroups, _forceNewGroup;
+    private int _size;
+
+    public StreamingJsonifier(File destinationFile, int maxBufferBytes, long flushIntervalNanos) {
+        _destinationFile = destinationFile;
+        _maxBufferBytes = maxBufferBytes;
+        _flushIntervalNanos = flushIntervalNanos;
+    }
+
+    public StreamingJsonifier(File destinationFile) {
+        this(destinationFile, DEFAULT_BUFFER_BYTES, DEFAULT_FLUSH_INTERVAL_NANOS);
+    }
+
+    public StreamingJsonifier(String savePath) {
+        this(new File(savePath));
+    }
+
+    /**
+     * Adds one result to the file. The file isn't created until the first result is added.
+     * @param stat The result to add; null results are skipped
+     * @throws IOException If the file can't be created or written to
+     */
+    public void append(BenchmarkStats stat) throws IOException {
+        if (stat == null) {
+            return;
+        }
+        if (_channel == null) {
+            _open();
+        }
+
+        if (!_groupOpen || _forceNewGroup || !Objects.equals(stat.testName(), _currentTestName)) {
+            if (_groupOpen) {
+                _buffer.write(_bytes("]}"));
+            }
+            _buffer.write(_bytes(_anyGroups ? ",\n" : "\n"));
+            _buffer.write(_bytes("{\"testName\":"));
+            _buffer.write(_mapper.writeValueAsBytes(stat.testName()));
+            _buffer.write(_bytes(",\"data\":[\n"));
+            _currentTestName = stat.testName();
+            _groupOpen = true;
+            _anyGroups = true;
+            _forceNewGroup = false;
+        } else {
+            _buffer.write(_bytes(",\n"));
+        }
+        _buffer.write(_mapper.writeValueAsBytes(new Jsonifier.NamelessStats(stat)));
+        _size++;
+
+        if (_buffer.size() >= _maxBufferBytes || System.nanoTime() - _lastFlushTime >= _flushIntervalNanos) {
+            flush();
+        }
+    }
+
+    /**
+     * Adds every result in a Stream to the file, in order, under a new test name entry (just like
+     * <code>Jsonifier.addToJson(Stream)</code>). This is a terminal operation on the Stream.
+     * @param stats The results to add
+     * @throws IOException If the file can't be created or written to
+     */
+    public void append(Stream<BenchmarkStats> stats) throws IOException {
+        _forceNewGroup = true;
+        Iterator<BenchmarkStats> iterator = stats.iterator();
+        while (iterator.hasNext()) {
+            append(iterator.next());
+        }
+    }
+
+    /**
+     * Writes any buffered results to the file, followed by the brackets needed to close the document
+     * @throws IOException If the file can't be written to
+     */
+    public void flush() throws IOException {
+        if (_channel == null) {
+            return;
+        }
+        byte[] data = _buffer.toByteArray();
+        _buffer.reset();
+        _channel.write(ByteBuffer.wrap(data), _committedLength);
+        _committedLength += data.length;
+
+        byte[] closing = _bytes(_groupOpen ? "]}\n]" : "\n]");
+        _channel.write(ByteBuffer.wrap(closing), _committedLength);
+        _channel.truncate(_committedLength + closing.length);
+        _lastFlushTime = System.nanoTime();
+    }
+
+    /**
+     * @return The number of results added so far
+     */
+    public int size() {
+        return _size;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (_channel != null) {
+            flush();
+            _channel.close();
+            _channel = null;
+        }
+    }
+
+    private void _open() throws IOException {
+        File directory = _destinationFile.getAbsoluteFile().getParentFile();
+        if (directory != null) {
+            Files.createDirectories(directory.toPath());
+        }
+        _channel = FileChannel.open(_destinationFile.toPath(), StandardOpenOption.CREATE,
+                                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        _channel.write(ByteBuffer.wrap(_OPEN_ARRAY), 0);
+        _committedLength = _OPEN_ARRAY.length;
+        _lastFlushTime = System.nanoTime();
+        flush();
+    }
+
+    private static byte[] _bytes(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+}
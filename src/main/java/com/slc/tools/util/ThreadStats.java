@@ -0,0 +1,82 @@
+package com.slc.tools.util;
+
+import java.io.Serializable;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The per-thread results of a benchmark that was run on several threads at once, all calling the same target
+ * @param threads How many threads were run
+ * @param wallTime How long the slowest thread ran for; since every thread starts together, this is the wall-clock time
+ * @param totalOpsPerSecond How many calls all the threads completed per second of wall-clock time, combined
+ * @param opsPerSecond How many calls each thread completed per second
+ * @param averageTimesNanos The average time per call on each thread
+ */
+public record ThreadStats(int threads, Duration wallTime, double totalOpsPerSecond,
+                            double[] opsPerSecond, double[] averageTimesNanos) implements Serializable {
+
+    /**
+     * Calculates throughput and latency for each thread
+     * @param wallTime The wall-clock time every thread ran for
+     * @param loopsPerThread How many calls each thread completed
+     * @param nanosPerThread How many nanoseconds each thread spent making those calls
+     * @return A new ThreadStats object
+     */
+    public static ThreadStats of(Duration wallTime, long[] loopsPerThread, long[] nanosPerThread) {
+        int threads = loopsPerThread.length;
+        double[] opsPerSecond = new double[threads];
+        double[] averageTimes = new double[threads];
+        long totalLoops = 0;
+        for (int t = 0; t < threads; t++) {
+            opsPerSecond[t] = loopsPerThread[t] * 1e9 / nanosPerThread[t];
+            averageTimes[t] = (double) nanosPerThread[t] / loopsPerThread[t];
+            totalLoops += loopsPerThread[t];
+        }
+        double totalOpsPerSecond = totalLoops * 1e9 / wallTime.toNanos();
+        return new ThreadStats(threads, wallTime, totalOpsPerSecond, opsPerSecond, averageTimes);
+    }
+
+    /**
+     * Combines the thread results of several runs of the same benchmark, which ran one after another (e.g. in
+     * separate forks). Their wall times are summed, the combined throughput is the total calls over that total
+     * time, and the per-thread arrays hold every thread of every run, in order.
+     * @param all The ThreadStats to combine; null elements are ignored
+     * @return The combined ThreadStats, or null if there were none
+     */
+    public static ThreadStats combine(List<ThreadStats> all) {
+        List<ThreadStats> present = all.stream().filter(stats -> stats != null).toList();
+        if (present.isEmpty()) {
+            return null;
+        }
+        long wallNanos = 0;
+        double totalCalls = 0;
+        double[] opsPerSecond = new double[0];
+        double[] averageTimes = new double[0];
+        for (ThreadStats stats : present) {
+            wallNanos += stats.wallTime().toNanos();
+            totalCalls += stats.totalOpsPerSecond() * stats.wallTime().toNanos() / 1e9;
+            opsPerSecond = _concat(opsPerSecond, stats.opsPerSecond());
+            averageTimes = _concat(averageTimes, stats.averageTimesNanos());
+        }
+        return new ThreadStats(present.get(0).threads(), Duration.ofNanos(wallNanos), totalCalls * 1e9 / wallNanos,
+                                opsPerSecond, averageTimes);
+    }
+
+    private static double[] _concat(double[] first, double[] second) {
+        double[] both = Arrays.copyOf(first, first.length + second.length);
+        System.arraycopy(second, 0, both, first.length, second.length);
+        return both;
+    }
+
+    /** Returns a print-friendly one-line version of the thread results */
+    @Override
+    public String toString() {
+        double slowest = 0;
+        for (double time : averageTimesNanos) {
+            slowest = Math.max(slowest, time);
+        }
+        return String.format("%d threads, %.0f calls/sec combined, slowest thread %.2f ns per call",
+                                threads, totalOpsPerSecond, slowest);
+    }
+}
@@ -0,0 +1,43 @@
+package com.slc.tools;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.Duration;
+
+import com.slc.tools.util.BenchmarkStats;
+import com.slc.tools.util.BinaryResultsReader;
+import com.slc.tools.util.BinaryResultsReader.Column;
+import com.slc.tools.util.BinaryResultsWriter;
+
+
+public class BinaryResultsTests {
+
+    @Test
+    public void roundTrip() throws IOException {
+        String path = "src/test/output/results.bin";
+        BinaryResultsWriter writer = new BinaryResultsWriter(path);
+        for (int i = 0; i < 100; i++) {
+            String testName = (i % 2 == 0) ? "even" : "odd";
+            writer.add(new BenchmarkStats(15, 15, Duration.ofMillis(10), 1000 + i,
+                                            Duration.ofNanos(2_000_000 + i), (double) i, testName));
+        }
+        writer.add(new BenchmarkStats(1, 1, Duration.ofMillis(10), 1, Duration.ofMillis(1), null, "none"));
+        writer.write();
+
+        BinaryResultsReader reader = BinaryResultsReader.open(path);
+        assertEquals(101, reader.size());
+        assertEquals("odd", reader.testName(7));
+        assertEquals(7.0, reader.getDouble(Column.SIZE, 7));
+        assertEquals(1007, reader.getLong(Column.LOOPS_COMPLETED, 7));
+        assertEquals(2_000_007, reader.getLong(Column.ELAPSED_NANOS, 7));
+        assertEquals(-1, reader.getLong(Column.P99_NANOS, 7));
+        assertTrue(Double.isNaN(reader.getDouble(Column.SIZE, 100)));
+        assertEquals(50, reader.rowsFor("even").count());
+        assertEquals(1099, reader.longColumn(Column.LOOPS_COMPLETED).max().getAsLong());
+    }
+
+}
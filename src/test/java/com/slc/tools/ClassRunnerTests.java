@@ -14,17 +14,34 @@ import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.PrintStream;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Scanner;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.slc.tools.annotations.CpuPolicy;
+import com.slc.tools.annotations.Level;
 import com.slc.tools.examples.Sorters;
 import com.slc.tools.runners.ClassRunner;
+import com.slc.tools.runners.JmhRunner;
+import com.slc.tools.runners.SuiteSettings;
 import com.slc.tools.util.BenchmarkStats;
+import com.slc.tools.util.InputSource;
+import com.slc.tools.util.IterationStats;
+import com.slc.tools.util.ThreadStats;
 import com.slc.tools.utility_classes.ArrDequeWrapper;
+import com.slc.tools.utility_classes.Contended;
 import com.slc.tools.utility_classes.LinkQueueWrapper;
 import com.slc.tools.utility_classes.DifferentArgs;
 import com.slc.tools.utility_classes.EachSize;
+import com.slc.tools.utility_classes.Iterations;
+import com.slc.tools.utility_classes.Lifecycle;
 import com.slc.tools.utility_classes.Never;
+import com.slc.tools.utility_classes.NoIterations;
+import com.slc.tools.utility_classes.PooledEachSize;
+import com.slc.tools.utility_classes.PreparedInputs;
+import com.slc.tools.utility_classes.RealWork;
+import com.slc.tools.utility_classes.SharedTarget;
 import com.slc.tools.utility_classes.JsonBenchmarks;
 
 
@@ -52,8 +69,8 @@ public class ClassRunnerTests {
         List<Integer> randomInts = Sorters.getRandomIntList(4);
         ClassRunner.runBenchmarks(clazz, randomInts);
 
-        // Expected instances: 1 from ON_INIT + 1 per method from _isValidMethod
-        assertEquals(3, ArrDequeWrapper.getInstances());
+        // Expected instances: just 1 from ON_INIT, since validating the methods doesn't create any
+        assertEquals(1, ArrDequeWrapper.getInstances());
         String outTxt = out.toString();
         assertFalse(outTxt.contains("Skipping method"), outTxt);
     }
@@ -67,8 +84,8 @@ public class ClassRunnerTests {
         List<Integer> randomInts = Sorters.getRandomIntList(4);
         ClassRunner.runBenchmarks(clazz, randomInts);
 
-        // Expected instances: 1 per method from PER_METHOD + 1 per method from _isValidMethod
-        assertEquals(4, LinkQueueWrapper.getInstances());
+        // Expected instances: 1 per method from PER_METHOD
+        assertEquals(2, LinkQueueWrapper.getInstances());
         String outTxt = out.toString();
         assertFalse(outTxt.contains("Skipping method"), outTxt);
     }
@@ -81,7 +98,16 @@ public class ClassRunnerTests {
         Class<EachSize> clazz = EachSize.class;
         List<Integer> randomInts = Sorters.getRandomIntList(4);
         ClassRunner.runBenchmarks(clazz, randomInts);
-        assertEquals(randomInts.size(), LinkQueueWrapper.getInstances());
+        assertEquals(randomInts.size(), EachSize.getInstances());
+
+        // Pooled: the one instance is reset and reused for every other size of both methods
+        List<BenchmarkStats> results = ClassRunner.runBenchmarks(PooledEachSize.class, randomInts);
+        assertEquals(8, results.size());
+        for (BenchmarkStats result : results) {
+            assertNotNull(result);
+        }
+        assertEquals(1, PooledEachSize.getInstances());
+        assertEquals(7, PooledEachSize.getResets());
         String outTxt = out.toString();
         assertFalse(outTxt.contains("Skipping method"), outTxt);
     }
@@ -105,6 +131,28 @@ public class ClassRunnerTests {
             assertNotNull(result);
             assertTrue(result.isComplete(), out.toString());
         }
+        // notEmptyBenchmark returns a (usually large) int, which is consumed without ever being boxed
+        for (BenchmarkStats result : results.subList(4, 8)) {
+            if (result.memory() != null && result.memory().bytesAllocated() >= 0) {
+                assertTrue(result.memory().bytesPerCall() < 1, result.toString());
+            }
+        }
+    }
+
+    @Test
+    public void baselineTest() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        System.setOut(new PrintStream(out));
+
+        // The baseline is timed next to each benchmark, so it can't exceed the time of a method doing real work
+        List<BenchmarkStats> results = ClassRunner.runBenchmarks(RealWork.class, List.of(1000, 2000, 4000));
+        assertEquals(3, results.size());
+        for (BenchmarkStats result : results) {
+            assertNotNull(result, out.toString());
+            assertTrue(result.overheadNanos() > 0, result.toString());
+            assertTrue(result.overheadNanos() < result.rawTimeNanos(), result.toString());
+            assertFalse(result.isIndistinguishableFromBaseline(), result.toString());
+        }
     }
 
     @Test
@@ -127,6 +175,11 @@ public class ClassRunnerTests {
 
         assertEquals(0, results.size());
         assertNotEquals(beforeText, afterText);
+        try {
+            assertTrue(new ObjectMapper().readTree(afterText).isArray());
+        } catch (IOException e) {
+            fail("Results file isn't valid JSON: "+e.getMessage());
+        }
     }
 
     @Test
@@ -148,6 +201,187 @@ public class ClassRunnerTests {
         assertEquals(13, results.size());
     }
 
+    @Test
+    public void iterationsTest() throws IOException {
+        List<Integer> randomInts = Sorters.getRandomIntList(2);
+        List<BenchmarkStats> results = ClassRunner.runBenchmarks(Iterations.class, randomInts);
+
+        assertEquals(2, results.size());
+        for (BenchmarkStats result : results) {
+            assertTrue(result.isComplete(), result.toString());
+            IterationStats iterations = result.iterations();
+            assertNotNull(iterations);
+            assertEquals(3, iterations.averageTimesNanos().length);
+            assertTrue(iterations.warmupIterations() >= 2);
+            assertTrue(iterations.confidenceLow() <= iterations.meanNanos());
+            assertTrue(iterations.meanNanos() <= iterations.confidenceHigh());
+        }
+
+        // Zero measurement iterations is rejected up front, naming the method, instead of failing mid-run
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        System.setOut(new PrintStream(out));
+        assertTrue(ClassRunner.runBenchmarks(NoIterations.class, randomInts).isEmpty());
+        String outTxt = out.toString();
+        assertTrue(outTxt.contains("Skipping method 'square()' because of fatal IllegalArgumentException: "
+                                    +"Invalid settings for method square"), outTxt);
+    }
+
+    @Test
+    public void jmhTest() throws IOException {
+        List<Integer> inputs = List.of(30, 4, 200);
+        // In-process for the first method, since every JMH fork takes a second or so to start
+        List<BenchmarkStats> results = JmhRunner.runBenchmarks(Never.class, SuiteSettings.defaults(), inputs);
+        results.addAll(JmhRunner.runBenchmarks(Never.class, SuiteSettings.defaults().withForks(1), List.of(7)));
+
+        // Expected: 2 methods * 3 inputs in process, then 2 methods * 1 input in a fork
+        assertEquals(8, results.size());
+        for (int i = 0; i < 3; i++) {
+            BenchmarkStats result = results.get(i);
+            assertTrue(result.isComplete(), result.toString());
+            assertEquals("emptyBenchmark", result.testName());
+            assertEquals(inputs.get(i).doubleValue(), result.size()); // still in input order, though JMH sorts its params
+            assertEquals(1, result.iterations().averageTimesNanos().length);
+        }
+        assertEquals("notEmptyBenchmark", results.get(3).testName());
+        assertEquals(7.0, results.get(7).size());
+        assertTrue(results.get(7).isComplete(), results.get(7).toString());
+
+        // Both runners name unnamed methods the same way, so their results can be matched up
+        List<BenchmarkStats> ours = ClassRunner.runBenchmarks(Never.class, inputs);
+        assertEquals(results.subList(0, 6).stream().map(BenchmarkStats::testName).toList(),
+                        ours.stream().map(BenchmarkStats::testName).toList());
+    }
+
+    @Test
+    public void forkedTest() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        System.setOut(new PrintStream(out));
+
+        List<Integer> randomInts = Sorters.getRandomIntList(4);
+        List<BenchmarkStats> results = ClassRunner.runBenchmarks(Never.class, SuiteSettings.defaults().withForks(2, "-Xmx64m"), randomInts);
+        String outTxt = out.toString();
+        assertFalse(outTxt.contains("Skipping method"), outTxt);
+
+        // Expected size: 2 methods * 4 test cases = 8, each combined from 2 forks
+        assertEquals(8, results.size());
+        for (BenchmarkStats result : results) {
+            assertTrue(result.isComplete(), result.toString());
+            assertEquals(2, result.iterations().averageTimesNanos().length);
+        }
+    }
+
+    @Test
+    public void parallelTest() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        System.setOut(new PrintStream(out));
+
+        List<Integer> randomInts = Sorters.getRandomIntList(4);
+        SuiteSettings parallel = SuiteSettings.defaults().withThreads(4, CpuPolicy.SHARED);
+        List<BenchmarkStats> results = ClassRunner.runBenchmarks(Never.class, parallel, randomInts);
+        String outTxt = out.toString();
+        assertFalse(outTxt.contains("Skipping method"), outTxt);
+
+        // Results must come back in the same order as a serial run: method by method, then input by input
+        assertEquals(8, results.size());
+        for (int i = 0; i < results.size(); i++) {
+            assertTrue(results.get(i).isComplete(), results.get(i).toString());
+            assertEquals(randomInts.get(i % 4).doubleValue(), results.get(i).size());
+        }
+    }
+
+    @Test
+    public void lifecycleHooksTest() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        System.setOut(new PrintStream(out));
+
+        // Lifecycle throws if a call isn't surrounded by its own invocation and size hooks
+        List<Integer> inputs = List.of(1, 2, 3);
+        for (SuiteSettings settings : List.of(SuiteSettings.defaults(),
+                                                SuiteSettings.defaults().withThreads(2, CpuPolicy.SHARED))) {
+            Lifecycle.clearCounts();
+            List<BenchmarkStats> results = ClassRunner.runBenchmarks(Lifecycle.class, settings, inputs);
+            String outTxt = out.toString();
+            assertFalse(outTxt.contains("Skipping method"), outTxt);
+            assertEquals(6, results.size());
+            for (BenchmarkStats result : results) {
+                assertNotNull(result, outTxt);
+            }
+
+            assertEquals(1, Lifecycle.getCount(Level.TRIAL, true));
+            assertEquals(1, Lifecycle.getCount(Level.TRIAL, false));
+            assertEquals(2, Lifecycle.getCount(Level.METHOD, true));
+            assertEquals(2, Lifecycle.getCount(Level.METHOD, false));
+            assertEquals(6, Lifecycle.getCount(Level.SIZE, true));
+            assertEquals(6, Lifecycle.getCount(Level.SIZE, false));
+            assertTrue(Lifecycle.getCount(Level.INVOCATION, true) > 6);
+            assertEquals(Lifecycle.getCount(Level.INVOCATION, true), Lifecycle.getCount(Level.INVOCATION, false));
+        }
+
+        // Hooks that only prepare their own call's fresh copy are set up a whole batch ahead, each with that copy
+        List<ArrayList<Integer>> lists = List.of(new ArrayList<>(List.of(1, 2, 3, 4, 5)));
+        List<BenchmarkStats> prepared = ClassRunner.runBenchmarks(PreparedInputs.class, lists);
+        String outTxt = out.toString();
+        assertFalse(outTxt.contains("Skipping method"), outTxt);
+        assertNotNull(prepared.get(0), outTxt);
+        assertTrue(prepared.get(0).loopsBetweenChecks() > 1, prepared.get(0).toString());
+        assertTrue(PreparedInputs.setUps >= prepared.get(0).loopsCompleted());
+        assertEquals(PreparedInputs.setUps, PreparedInputs.tearDowns);
+    }
+
+    @Test
+    public void exclusiveSharedTargetTest() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        System.setOut(new PrintStream(out));
+
+        List<Integer> randomInts = Sorters.getRandomIntList(4);
+        SuiteSettings exclusive = SuiteSettings.defaults().withThreads(8, CpuPolicy.EXCLUSIVE);
+        List<BenchmarkStats> results = ClassRunner.runBenchmarks(SharedTarget.class, exclusive, randomInts);
+        String outTxt = out.toString();
+        assertFalse(outTxt.contains("Skipping method"), outTxt);
+
+        // SharedTarget throws if two workers ever use its one instance at the same time
+        assertEquals(8, results.size());
+        for (BenchmarkStats result : results) {
+            assertNotNull(result, outTxt);
+        }
+    }
+
+    @Test
+    public void contendedTest() throws IOException {
+        List<Integer> randomInts = Sorters.getRandomIntList(2);
+        List<BenchmarkStats> results = ClassRunner.runBenchmarks(Contended.class, randomInts);
+
+        assertEquals(2, results.size());
+        for (BenchmarkStats result : results) {
+            assertTrue(result.isComplete(), result.toString());
+            ThreadStats threadStats = result.threadStats();
+            assertNotNull(threadStats);
+            assertEquals(4, threadStats.opsPerSecond().length);
+            assertTrue(threadStats.totalOpsPerSecond() > 0);
+        }
+    }
+
+    @Test
+    public void lazyInputTest() throws IOException {
+        List<Long> generatedAt = new ArrayList<>();
+        InputSource<Integer> sizes = InputSource.bySize((int size) -> {
+            generatedAt.add(System.nanoTime());
+            return size;
+        }, 1, 2, 3);
+        List<BenchmarkStats> results = ClassRunner.runBenchmarks(Never.class, sizes);
+
+        // Both methods share the source, so it's read twice, and each input is only created just before it's used
+        assertEquals(6, results.size());
+        assertEquals(6, generatedAt.size());
+        for (int i = 0; i < results.size(); i++) {
+            assertEquals(i % 3 + 1, results.get(i).size());
+        }
+        for (int i = 1; i < generatedAt.size(); i++) {
+            // Every benchmark in Never runs for at least 10ms
+            assertTrue(generatedAt.get(i) - generatedAt.get(i - 1) >= 10_000_000, generatedAt.toString());
+        }
+    }
+
     private static String _getJsonText() {
         StringBuilder sb = new StringBuilder();
         try {
@@ -0,0 +1,77 @@
+package com.slc.tools;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.function.DoubleUnaryOperator;
+
+import com.slc.tools.runners.ClassRunner;
+import com.slc.tools.util.BenchmarkStats;
+import com.slc.tools.util.ComplexityFit;
+import com.slc.tools.util.ComplexityFit.Model;
+import com.slc.tools.utility_classes.Never;
+
+
+public class ComplexityFitTests {
+
+    @Test
+    public void findsBestModel() {
+        SplittableRandom random = new SplittableRandom(1);
+        // 20,000 sizes, each with up to 5% noise
+        List<BenchmarkStats> quadratic = _sweep("quadratic", 20_000, random, (double n) -> 50 + 0.5 * n * n);
+        List<BenchmarkStats> nLogN = _sweep("nLogN", 20_000, random, (double n) -> 100 + 3 * n * Math.log(n) / Math.log(2));
+        List<BenchmarkStats> constant = _sweep("constant", 20_000, random, (double n) -> 1000);
+
+        ComplexityFit quadraticFit = ComplexityFit.best(quadratic);
+        assertEquals(Model.N_SQUARED, quadraticFit.model(), quadraticFit.toString());
+        assertTrue(quadraticFit.rSquared() > 0.99, quadraticFit.toString());
+        assertEquals(0.5, quadraticFit.coefficient(), 0.01);
+        // Extrapolating well past the largest size measured
+        assertEquals(50 + 0.5 * 1e10, quadraticFit.predictNanos(100_000), 0.02 * 0.5 * 1e10);
+
+        assertEquals(Model.N_LOG_N, ComplexityFit.best(nLogN).model(), ComplexityFit.best(nLogN).toString());
+        assertEquals(Model.CONSTANT, ComplexityFit.best(constant).model(), ComplexityFit.best(constant).toString());
+        assertFalse(ComplexityFit.fit(quadratic, Model.EXPONENTIAL).isValid()); // 2^20000 overflows
+
+        List<BenchmarkStats> all = new ArrayList<>(quadratic);
+        all.addAll(constant);
+        Map<String, ComplexityFit> byTest = ComplexityFit.bestByTest(all);
+        assertEquals(List.of("quadratic", "constant"), List.copyOf(byTest.keySet()));
+        assertEquals(Model.CONSTANT, byTest.get("constant").model());
+    }
+
+    @Test
+    public void groupsUnnamedMethods() throws IOException {
+        // Neither method has a testName, so each sweep is named after its method
+        List<BenchmarkStats> results = ClassRunner.runBenchmarks(Never.class, List.of(10, 100, 1000));
+        Map<String, ComplexityFit> byTest = ComplexityFit.bestByTest(results);
+        assertEquals(Set.of("emptyBenchmark", "notEmptyBenchmark"), byTest.keySet());
+
+        List<BenchmarkStats> unnamed = _sweep("", 10, new SplittableRandom(1), (double n) -> 1000);
+        assertThrows(IllegalArgumentException.class, () -> ComplexityFit.bestByTest(unnamed));
+    }
+
+    private static List<BenchmarkStats> _sweep(String testName, int sizes, SplittableRandom random,
+                                                DoubleUnaryOperator nanosPerCall) {
+        List<BenchmarkStats> results = new ArrayList<>();
+        int loops = 1000;
+        for (int size = 1; size <= sizes; size++) {
+            double nanos = nanosPerCall.applyAsDouble(size) * random.nextDouble(0.95, 1.05);
+            results.add(new BenchmarkStats(15, 15, Duration.ofMillis(10), loops,
+                                            Duration.ofNanos((long) (nanos * loops)), (double) size, testName));
+        }
+        return results;
+    }
+
+}
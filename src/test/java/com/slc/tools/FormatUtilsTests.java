@@ -0,0 +1,39 @@
+package com.slc.tools;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import com.slc.tools.util.FormatUtils;
+
+
+public class FormatUtilsTests {
+
+    public static class Sized {
+        public int size = 7;
+        public long count() { return 12L; }
+        public String label() { return "3.5"; }
+        public boolean empty() { return false; }
+    }
+
+    @Test
+    public void propertyAccessors() {
+        Sized sized = new Sized();
+        assertEquals(7.0, FormatUtils.getPropertyByName(sized, "size", false));
+        assertNull(FormatUtils.getPropertyByName(sized, "size", true));
+        assertEquals(12.0, FormatUtils.getPropertyByName(sized, "count", true));
+        assertNull(FormatUtils.getPropertyByName(sized, "count", false));
+        assertEquals(3.5, FormatUtils.getPropertyByName(sized, "label", true));
+        assertNull(FormatUtils.getPropertyByName(sized, "empty", true));
+        assertEquals(7.0, FormatUtils.getPropertyByName(sized, "size"));
+
+        // Implemented by a class that isn't public, so it has to be reached through List
+        assertEquals(3.0, FormatUtils.getPropertyByName(List.of(1, 2, 3), "size", true));
+        assertEquals(4.0, FormatUtils.getPropertyByName(new int[4], "length", false));
+        assertEquals(5.0, FormatUtils.getPropertyByName(5, "intValue", true));
+    }
+
+}
@@ -0,0 +1,58 @@
+package com.slc.tools;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+
+import com.slc.tools.runners.LambdaRunner;
+import com.slc.tools.runners.RunSettings;
+import com.slc.tools.util.BenchmarkStats;
+import com.slc.tools.util.InputCorpus;
+import com.slc.tools.util.OffHeapDataset;
+import com.slc.tools.util.RandomInputs;
+
+
+public class InputCorpusTests {
+
+    @Test
+    public void generateAndReopen() throws IOException {
+        Path first = Path.of("src/test/output/corpus.bin");
+        Path second = Path.of("src/test/output/corpus-copy.bin");
+        Files.deleteIfExists(first);
+        Files.deleteIfExists(second);
+
+        InputCorpus corpus = InputCorpus.ints(first, 42, 10, 1000, 3);
+        assertEquals(42, corpus.seed());
+        assertArrayEquals(RandomInputs.ints(1000, 42), corpus.getInts(1));
+        try (OffHeapDataset dataset = corpus.get(2)) {
+            assertEquals(3, dataset.size());
+            assertEquals(RandomInputs.ints(3, 42)[2], dataset.getInt(2));
+        }
+
+        // The same seed and sizes always give a byte-identical file, and an existing file is reused as it is
+        InputCorpus.ints(second, 42, 10, 1000, 3);
+        assertArrayEquals(Files.readAllBytes(first), Files.readAllBytes(second));
+        long modified = Files.getLastModifiedTime(first).toMillis();
+        InputCorpus reopened = InputCorpus.ints(first, 42, 10, 1000, 3);
+        assertEquals(modified, Files.getLastModifiedTime(first).toMillis());
+        assertArrayEquals(new int[] {10, 1000, 3}, InputCorpus.open(first).sizes());
+        assertThrows(IllegalArgumentException.class, () -> InputCorpus.ints(first, 43, 10, 1000, 3));
+
+        RunSettings settings = RunSettings.defaults().withMaxDuration(Duration.ofMillis(10));
+        List<BenchmarkStats> results = LambdaRunner.benchmarkConsumable((OffHeapDataset dataset) -> {
+            assertFalse(dataset.isClosed());
+        }, reopened.datasets(), settings).toList();
+        assertEquals(3, results.size());
+        assertEquals(1000, results.get(1).size());
+    }
+
+}
@@ -0,0 +1,280 @@
+package com.slc.tools;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import com.slc.tools.runners.LambdaRunner;
+import com.slc.tools.runners.RunSettings;
+import com.slc.tools.util.BenchmarkStats;
+import com.slc.tools.util.InputSource;
+import com.slc.tools.util.IterationStats;
+import com.slc.tools.util.LoadStats;
+import com.slc.tools.util.MemoryStats;
+import com.slc.tools.util.OffHeapDataset;
+import com.slc.tools.util.RandomInputs;
+
+
+public class LambdaRunnerTests {
+    @SuppressWarnings("unused")
+    private static volatile byte[] _sink;
+
+    @Test
+    public void openLoopTest() {
+        RunSettings settings = RunSettings.defaults()
+                                    .withMaxDuration(Duration.ofMillis(200))
+                                    .withArrivalRate(500)
+                                    .withId("intValue", true)
+                                    .withTestName("sleep");
+        List<Integer> sleepMillis = List.of(2);
+        List<BenchmarkStats> results = LambdaRunner.benchmarkConsumable(LambdaRunnerTests::_sleep, sleepMillis, settings)
+                                                    .toList();
+
+        assertEquals(1, results.size());
+        BenchmarkStats result = results.get(0);
+        assertTrue(result.isComplete(), result.toString());
+
+        LoadStats load = result.load();
+        assertNotNull(load);
+        assertEquals(100, load.dispatched(), 5);
+        assertEquals(load.dispatched(), result.loopsCompleted());
+        // Each call sleeps for 2ms but a new one starts every 2ms, so several must overlap at some point
+        assertTrue(load.maxInFlight() > 1, result.toString());
+        assertTrue(result.latency().p50() >= 2_000_000, result.toString());
+        assertTrue(result.latency().p99() >= load.serviceTime().p99() - load.serviceTime().p99() / 32);
+    }
+
+    @Test
+    public void allocationTest() {
+        RunSettings settings = RunSettings.defaults()
+                                    .withMaxDuration(Duration.ofMillis(50))
+                                    .withId("intValue", true);
+        List<Integer> arraySizes = List.of(1024);
+        BenchmarkStats result = LambdaRunner.benchmarkConsumable(LambdaRunnerTests::_allocate, arraySizes, settings)
+                                            .toList().get(0);
+
+        MemoryStats memory = result.memory();
+        assertNotNull(memory);
+        assertTrue(memory.gcCount() >= 0);
+        if (memory.bytesAllocated() >= 0) {
+            // A 1024-byte array plus its header; boxing and the harness itself may add a little more
+            assertTrue(memory.bytesPerCall() >= 1024, result.toString());
+        }
+    }
+
+    @Test
+    public void adaptiveClockTest() {
+        RunSettings settings = RunSettings.defaults()
+                                    .withMaxDuration(Duration.ofMillis(50))
+                                    .withAdaptiveClock(0.01)
+                                    .withId("intValue", true);
+        // Sleeping calls are slow, so batches stay small and the deadline is overshot by at most about one call
+        BenchmarkStats slow = LambdaRunner.benchmarkConsumable(LambdaRunnerTests::_sleep, List.of(5), settings)
+                                            .toList().get(0);
+        assertTrue(slow.actualTimeElapsed().toNanos() < 50_000_000 + 2 * 5_000_000 + 20_000_000, slow.toString());
+
+        // Allocating a tiny array is fast, so batches should grow well past the fixed default of 15
+        BenchmarkStats fast = LambdaRunner.benchmarkConsumable(LambdaRunnerTests::_allocate, List.of(1), settings)
+                                            .toList().get(0);
+        assertTrue(fast.loopsBetweenChecks() > 15, fast.toString());
+    }
+
+    @Test
+    public void freshInputTest() {
+        RunSettings settings = RunSettings.defaults()
+                                    .withMaxDuration(Duration.ofMillis(20))
+                                    .withId("size", true);
+        List<Integer> descending = new ArrayList<>();
+        for (int i = 100; i > 0; i--) {
+            descending.add(i);
+        }
+        int[] alreadySorted = new int[1];
+        Consumer<List<Integer>> sortInPlace = (List<Integer> list) -> {
+            if (list.get(0) == 1) {
+                alreadySorted[0]++;
+            }
+            Collections.sort(list);
+        };
+
+        BenchmarkStats result = LambdaRunner.benchmarkConsumable(sortInPlace, Stream.of(descending),
+                                                                ArrayList::new, settings).toList().get(0);
+        assertTrue(result.loopsCompleted() > 1, result.toString());
+        assertEquals(0, alreadySorted[0]);
+        assertEquals(100, descending.get(0)); // the original is never handed out
+
+        // Without fresh inputs, every call after the first sorts an already-sorted list
+        LambdaRunner.benchmarkConsumable(sortInPlace, Stream.of(new ArrayList<>(descending)), settings).toList();
+        assertTrue(alreadySorted[0] > 0);
+
+        // A batch would ask for far more 16 MB copies than fit in the heap, but only gets as many as fit its budget
+        BenchmarkStats large = LambdaRunner.benchmarkConsumable((byte[] array) -> Arrays.fill(array, (byte) 1),
+                                                Stream.of(new byte[16 << 20]), byte[]::clone,
+                                                settings.withClockFrequency(1000)).toList().get(0);
+        assertTrue(large.loopsCompleted() > 1, large.toString());
+    }
+
+    @Test
+    public void adaptiveIterationsTest() {
+        // One iteration interrupted by something else is rejected as an outlier, and doesn't move the median
+        IterationStats stats = IterationStats.of(0, new double[] {100, 101, 99, 100, 102, 98, 100, 5000});
+        assertEquals(1, stats.outliers(), stats.toString());
+        assertEquals(100, stats.medianNanos(), 0.5);
+        assertTrue(stats.robustLow() <= stats.medianNanos() && stats.medianNanos() <= stats.robustHigh());
+        assertTrue(stats.relativeError() < 0.02, stats.toString());
+        // A benchmark too fast to measure has a median of 0, which mustn't turn into NaN
+        assertEquals(0, IterationStats.of(0, new double[] {0, 0, 0, 0, 0}).relativeError());
+        assertEquals(Double.POSITIVE_INFINITY, IterationStats.of(0, new double[] {0, 0, 0, 1, 2}).relativeError());
+
+        RunSettings settings = RunSettings.defaults()
+                                    .withMaxDuration(Duration.ofMillis(5))
+                                    .withTestName("sum");
+        List<int[]> inputs = List.of(RandomInputs.ints(100, 7));
+        // A target this loose is met as soon as the minimum five iterations have run, however noisy they are...
+        BenchmarkStats loose = LambdaRunner.benchmarkToLongFunction(LambdaRunnerTests::_sum, inputs.stream(),
+                                    settings.withAdaptiveIterations(10, 20, Duration.ZERO)).toList().get(0);
+        assertEquals(5, loose.iterations().averageTimesNanos().length, loose.toString());
+        // ...while an impossible one runs until the maximum or the budget runs out
+        BenchmarkStats tight = LambdaRunner.benchmarkToLongFunction(LambdaRunnerTests::_sum, inputs.stream(),
+                                    settings.withAdaptiveIterations(1e-12, 8, Duration.ZERO)).toList().get(0);
+        assertEquals(8, tight.iterations().averageTimesNanos().length, tight.toString());
+        BenchmarkStats budgeted = LambdaRunner.benchmarkToLongFunction(LambdaRunnerTests::_sum, inputs.stream(),
+                                    settings.withAdaptiveIterations(1e-12, 100, Duration.ofMillis(30))).toList().get(0);
+        assertTrue(budgeted.iterations().averageTimesNanos().length < 100, budgeted.toString());
+    }
+
+    @Test
+    public void primitiveInputTest() {
+        // The same seed and size always give the same array, whatever else is generated alongside it
+        int[] first = RandomInputs.intArrays(IntStream.of(100, 1000), 7).toList().get(1);
+        assertArrayEquals(first, RandomInputs.ints(1000, 7));
+
+        RunSettings settings = RunSettings.defaults()
+                                    .withMaxDuration(Duration.ofMillis(20))
+                                    .withTestName("sum");
+        List<BenchmarkStats> results = LambdaRunner.benchmarkToLongFunction(LambdaRunnerTests::_sum,
+                                                    RandomInputs.intArrays(IntStream.of(10, 100), 7), settings)
+                                                    .toList();
+        assertEquals(2, results.size());
+        assertEquals(100, results.get(1).size()); // arrays report their length as their size
+        MemoryStats memory = results.get(1).memory();
+        if (memory != null && memory.bytesAllocated() >= 0) {
+            // Summing an int[] into a long needs no boxing, so the loop itself shouldn't allocate anything
+            assertTrue(memory.bytesPerCall() < 1, results.get(1).toString());
+        }
+
+        BenchmarkStats counted = LambdaRunner.benchmarkIntConsumer(LambdaRunnerTests::_allocate, IntStream.of(64),
+                                                                    settings).toList().get(0);
+        assertEquals(64, counted.size());
+
+        // Lambdas are measured against a consumer that does nothing, so real work stands out from the baseline
+        for (BenchmarkStats result : List.of(results.get(1), counted)) {
+            assertTrue(result.overheadNanos() > 0, result.toString());
+            assertTrue(result.overheadNanos() < result.rawTimeNanos(), result.toString());
+            assertFalse(result.isIndistinguishableFromBaseline(), result.toString());
+        }
+    }
+
+    @Test
+    public void offHeapTest() throws IOException {
+        IntBuffer view;
+        try (OffHeapDataset dataset = OffHeapDataset.randomInts(1000, 7)) {
+            assertArrayEquals(RandomInputs.ints(1000, 7), _toArray(dataset));
+            view = dataset.ints();
+            dataset.close();
+            assertTrue(dataset.isClosed());
+            assertThrows(IllegalStateException.class, () -> dataset.getInt(0));
+            assertThrows(IllegalStateException.class, () -> dataset.setInt(0, 1));
+            assertThrows(IllegalStateException.class, dataset::bytes);
+            assertThrows(IllegalStateException.class, dataset::ints);
+            assertThrows(IllegalStateException.class, dataset::longs);
+        }
+        // A view taken while it was open keeps its memory alive, rather than reading freed memory
+        assertEquals(RandomInputs.ints(1000, 7)[999], view.get(999));
+
+        Path file = Files.createTempFile("ints", ".bin");
+        try {
+            ByteBuffer contents = ByteBuffer.allocate(3 * Integer.BYTES).order(ByteOrder.nativeOrder());
+            contents.putInt(5).putInt(-1).putInt(42);
+            Files.write(file, contents.array());
+            try (OffHeapDataset mapped = OffHeapDataset.mapInts(file)) {
+                assertTrue(mapped.isMapped());
+                assertArrayEquals(new int[] {5, -1, 42}, _toArray(mapped));
+                mapped.setInt(0, 6); // mappings are private, so the file itself is never changed
+            }
+            assertArrayEquals(contents.array(), Files.readAllBytes(file));
+        } finally {
+            Files.delete(file);
+        }
+
+        // Each dataset is created just before its benchmark and closed straight after it
+        List<OffHeapDataset> created = new ArrayList<>();
+        InputSource<OffHeapDataset> datasets = InputSource.bySize((int size) -> {
+            assertTrue(created.stream().allMatch(OffHeapDataset::isClosed));
+            OffHeapDataset dataset = OffHeapDataset.randomInts(size, 7);
+            created.add(dataset);
+            return dataset;
+        }, 10, 100);
+        RunSettings settings = RunSettings.defaults().withMaxDuration(Duration.ofMillis(20));
+        List<BenchmarkStats> results = LambdaRunner.benchmarkFunction(LambdaRunnerTests::_sum, datasets, settings)
+                                                    .toList();
+        assertEquals(2, results.size());
+        assertEquals(100, results.get(1).size());
+        assertEquals(2, created.size());
+        assertTrue(created.stream().allMatch(OffHeapDataset::isClosed));
+    }
+
+    private static int[] _toArray(OffHeapDataset dataset) {
+        int[] values = new int[dataset.size()];
+        dataset.ints().get(values);
+        return values;
+    }
+
+    private static long _sum(OffHeapDataset dataset) {
+        long sum = 0;
+        for (int i = 0; i < dataset.size(); i++) {
+            sum += dataset.getInt(i);
+        }
+        return sum;
+    }
+
+    private static long _sum(int[] values) {
+        long sum = 0;
+        for (int value : values) {
+            sum += value;
+        }
+        return sum;
+    }
+
+    private static void _allocate(int bytes) {
+        _sink = new byte[bytes];
+    }
+
+    private static void _sleep(int millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+}
@@ -0,0 +1,70 @@
+package com.slc.tools;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.slc.tools.util.BenchmarkStats;
+import com.slc.tools.util.LatencyHistogram;
+import com.slc.tools.util.LatencyPercentiles;
+
+
+public class LatencyHistogramTests {
+
+    @Test
+    public void percentilesWithinPrecision() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long i = 1; i <= 10_000; i++) {
+            histogram.record(i);
+        }
+        LatencyPercentiles percentiles = histogram.toPercentiles();
+        assertEquals(10_000, percentiles.count());
+        assertEquals(10_000, percentiles.max());
+        // Sub-buckets are 1/32 of a power of two wide, so values can be off by just over 3%
+        assertEquals(5_000, percentiles.p50(), 5_000 * 0.035);
+        assertEquals(9_000, percentiles.p90(), 9_000 * 0.035);
+        assertEquals(9_900, percentiles.p99(), 9_900 * 0.035);
+        assertTrue(percentiles.p999() <= percentiles.max());
+    }
+
+    @Test
+    public void batchRecordsAverage() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.recordBatch(1_500, 15);
+        assertEquals(15, histogram.getTotalCount());
+        assertEquals(100, histogram.valueAtPercentile(50), 100 * 0.035);
+
+        histogram.reset();
+        assertEquals(0, histogram.getTotalCount());
+        assertEquals(0, histogram.valueAtPercentile(99));
+    }
+
+    @Test
+    public void forksMergeHistograms() throws JsonProcessingException {
+        LatencyHistogram fast = new LatencyHistogram();
+        fast.recordMultiple(100, 1000);
+        LatencyHistogram slow = new LatencyHistogram();
+        slow.recordMultiple(10_000, 1000);
+        BenchmarkStats combined = BenchmarkStats.combine(List.of(_fork(fast), _fork(slow)));
+
+        // Half of all the calls took 100 ns, so that's the median, not the average of the two forks' medians
+        LatencyPercentiles latency = combined.latency();
+        assertEquals(2000, latency.count());
+        assertEquals(100, latency.p50(), 100 * 0.035);
+        assertEquals(10_000, latency.p99(), 10_000 * 0.035);
+        assertFalse(new ObjectMapper().writeValueAsString(latency).contains("histogram"));
+    }
+
+    private static BenchmarkStats _fork(LatencyHistogram histogram) {
+        return new BenchmarkStats(1, 1000, Duration.ofMillis(1), 1000, Duration.ofMillis(1), 1.0, "fork", 0,
+                                    histogram.toPercentiles(), null, null, null, null);
+    }
+}
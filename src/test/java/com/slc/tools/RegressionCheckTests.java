@@ -0,0 +1,110 @@
+package com.slc.tools;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.stream.Stream;
+
+import com.slc.tools.runners.RunSettings;
+import com.slc.tools.util.BenchmarkStats;
+import com.slc.tools.util.IterationStats;
+import com.slc.tools.util.RegressionCheck;
+import com.slc.tools.util.RegressionCheck.Verdict;
+import com.slc.tools.util.ResultsStore;
+import com.slc.tools.util.RunInfo;
+import com.slc.tools.utility_classes.Never;
+
+
+public class RegressionCheckTests {
+
+    @Test
+    public void flagsRegressions() throws IOException {
+        Path directory = Path.of("src/test/output/history");
+        if (Files.exists(directory)) {
+            try (Stream<Path> files = Files.walk(directory)) {
+                for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                    Files.delete(file);
+                }
+            }
+        }
+        ResultsStore store = new ResultsStore(directory);
+        SplittableRandom random = new SplittableRandom(7);
+        Instant start = Instant.parse("2026-01-01T00:00:00Z");
+
+        store.save(new RunInfo("aaaa111", "jvm", "host", start), List.of(
+            _result("sort", 100.0, 1000, random, 10),
+            _result("sort", 1000.0, 20_000, random, 10),
+            _result("search", 100.0, 50, random, 1),
+            _result("empty", 100.0, 0, random, 10),
+            _result("removed", 100.0, 50, random, 1)));
+        // Another machine's run in between, which shouldn't be used as the default baseline
+        store.save(new RunInfo("bbbb222", "jvm", "other host", start.plusSeconds(60)), List.of(
+            _result("sort", 100.0, 10, random, 10)));
+        store.save(new RunInfo("cccc333", "jvm", "host", start.plusSeconds(120)), List.of(
+            _result("sort", 100.0, 1300, random, 10),
+            _result("sort", 1000.0, 20_000, random, 10),
+            _result("search", 100.0, 25, random, 1),
+            _result("empty", 100.0, 0, random, 10),
+            _result("added", 100.0, 50, random, 1)));
+
+        assertEquals(3, store.list().size());
+        ResultsStore.StoredRun candidate = store.latest().orElseThrow();
+        ResultsStore.StoredRun baseline = store.previousComparable(candidate).orElseThrow();
+        assertEquals("aaaa111", baseline.info().gitCommit());
+        assertEquals(baseline.info(), store.findByCommit("aaaa").orElseThrow().info());
+
+        RegressionCheck check = RegressionCheck.compare(baseline, candidate, RegressionCheck.DEFAULT_THRESHOLD);
+        List<RegressionCheck.Comparison> comparisons = check.comparisons();
+        assertEquals(List.of(Verdict.REGRESSION, Verdict.UNCHANGED, Verdict.INCONCLUSIVE, Verdict.UNCHANGED,
+                                Verdict.MISSING, Verdict.NEW),
+                        comparisons.stream().map(RegressionCheck.Comparison::verdict).toList(), check.toString());
+        assertTrue(comparisons.get(0).pValue() < RegressionCheck.ALPHA);
+        assertTrue(Double.isNaN(comparisons.get(2).pValue())); // One sample per side is too few to test
+        assertTrue(Double.isNaN(comparisons.get(3).relativeChange())); // No change can be measured from 0
+        assertEquals(1, check.exitCode());
+        assertEquals(0, RegressionCheck.compare(baseline, baseline, RegressionCheck.DEFAULT_THRESHOLD).exitCode());
+    }
+
+    @Test
+    public void rejectsAmbiguousResults() throws NoSuchMethodException {
+        // Methods without a testName are told apart by their own names
+        assertEquals("emptyBenchmark", RunSettings.from(Never.class.getMethod("emptyBenchmark", int.class)).testName());
+        assertEquals("notEmptyBenchmark",
+                        RunSettings.testNameOf(Never.class.getMethod("notEmptyBenchmark", int.class)));
+
+        SplittableRandom random = new SplittableRandom(7);
+        RunInfo info = new RunInfo("aaaa111", "jvm", "host", Instant.parse("2026-01-01T00:00:00Z"));
+        ResultsStore.StoredRun unique = new ResultsStore.StoredRun(info, List.of(
+            ResultsStore.StoredResult.of(_result("sort", 100.0, 1000, random, 10))));
+        ResultsStore.StoredRun duplicated = new ResultsStore.StoredRun(info, List.of(
+            ResultsStore.StoredResult.of(_result("sort", 100.0, 1000, random, 10)),
+            ResultsStore.StoredResult.of(_result("sort", 100.0, 2000, random, 10))));
+        assertThrows(IllegalArgumentException.class,
+                        () -> RegressionCheck.compare(unique, duplicated, RegressionCheck.DEFAULT_THRESHOLD));
+        assertThrows(IllegalArgumentException.class,
+                        () -> RegressionCheck.compare(duplicated, unique, RegressionCheck.DEFAULT_THRESHOLD));
+    }
+
+    /** Creates a result whose samples are spread up to 2% either side of the given time */
+    private static BenchmarkStats _result(String name, double size, double nanos, SplittableRandom random,
+                                            int samples) {
+        double[] times = new double[samples];
+        for (int i = 0; i < samples; i++) {
+            times[i] = nanos * (1 + random.nextDouble(-0.02, 0.02));
+        }
+        IterationStats iterations = (samples > 1) ? IterationStats.of(0, times) : null;
+        return new BenchmarkStats(1, 1000, Duration.ofSeconds(1), 1000, Duration.ofNanos((long) (times[0] * 1000)),
+                                    size, name, 0, null, iterations, null, null, null);
+    }
+}
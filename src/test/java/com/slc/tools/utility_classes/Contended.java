@@ -0,0 +1,18 @@
+package com.slc.tools.utility_classes;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.slc.tools.annotations.BenchmarkSuite;
+import com.slc.tools.annotations.Benchmarkable;
+import com.slc.tools.annotations.Frequency;
+import com.slc.tools.annotations.OutputType;
+
+@BenchmarkSuite(whenToInstantiate = Frequency.ON_INIT, outputTo = OutputType.RETURN)
+public class Contended {
+    private final AtomicLong _counter = new AtomicLong();
+
+    @Benchmarkable(nanoTime = 5_000_000, idName = "intValue", threads = 4)
+    public void increment(int x) {
+        _counter.addAndGet(x);
+    }
+}
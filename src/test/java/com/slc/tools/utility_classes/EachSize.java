@@ -14,4 +14,8 @@ public class EachSize {
 
     @Benchmarkable(nanoTime = 10_000_000, idName = "intValue", idIsMethod = true)
     public void baz(int x) {    }
+
+    public static int getInstances() {
+        return numberOfInstancesMade;
+    }
 }
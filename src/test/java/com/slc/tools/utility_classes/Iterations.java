@@ -0,0 +1,14 @@
+package com.slc.tools.utility_classes;
+
+import com.slc.tools.annotations.BenchmarkSuite;
+import com.slc.tools.annotations.Benchmarkable;
+import com.slc.tools.annotations.OutputType;
+
+@BenchmarkSuite(outputTo = OutputType.RETURN)
+public class Iterations {
+    @Benchmarkable(nanoTime = 5_000_000, warmupIterations = 2, warmupNanoTime = 5_000_000,
+                    measurementIterations = 3, idName = "intValue")
+    public static int square(int x) {
+        return x*x;
+    }
+}
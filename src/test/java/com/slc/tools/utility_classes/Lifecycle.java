@@ -0,0 +1,89 @@
+package com.slc.tools.utility_classes;
+
+import com.slc.tools.annotations.BenchmarkSuite;
+import com.slc.tools.annotations.Benchmarkable;
+import com.slc.tools.annotations.Frequency;
+import com.slc.tools.annotations.Level;
+import com.slc.tools.annotations.OutputType;
+import com.slc.tools.annotations.Setup;
+import com.slc.tools.annotations.TearDown;
+
+@BenchmarkSuite(whenToInstantiate = Frequency.ON_INIT, outputTo = OutputType.RETURN)
+public class Lifecycle {
+    /** How many times each hook has run, indexed by level, then 0 for setup and 1 for teardown */
+    static final int[][] hookCounts = new int[Level.values().length][2];
+    private Integer _size;
+    private boolean _isSetUp;
+
+    @Benchmarkable(nanoTime = 1_000_000, idName = "intValue", idIsMethod = true)
+    public void first(int x) {
+        _check(x);
+    }
+
+    @Benchmarkable(nanoTime = 1_000_000, idName = "intValue", idIsMethod = true)
+    public void second(int x) {
+        _check(x);
+    }
+
+    @Setup
+    public static void setUpTrial() {
+        hookCounts[Level.TRIAL.ordinal()][0]++;
+    }
+
+    @TearDown
+    public void tearDownTrial() {
+        hookCounts[Level.TRIAL.ordinal()][1]++;
+    }
+
+    @Setup(Level.METHOD)
+    public void setUpMethod() {
+        hookCounts[Level.METHOD.ordinal()][0]++;
+    }
+
+    @TearDown(Level.METHOD)
+    public static void tearDownMethod() {
+        hookCounts[Level.METHOD.ordinal()][1]++;
+    }
+
+    @Setup(Level.SIZE)
+    public void setUpSize(int x) {
+        hookCounts[Level.SIZE.ordinal()][0]++;
+        _size = x;
+    }
+
+    @TearDown(Level.SIZE)
+    public void tearDownSize() {
+        hookCounts[Level.SIZE.ordinal()][1]++;
+        _size = null;
+    }
+
+    @Setup(Level.INVOCATION)
+    public void setUpInvocation() {
+        hookCounts[Level.INVOCATION.ordinal()][0]++;
+        _isSetUp = true;
+    }
+
+    @TearDown(Level.INVOCATION)
+    public void tearDownInvocation() {
+        hookCounts[Level.INVOCATION.ordinal()][1]++;
+    }
+
+    public static int getCount(Level level, boolean isSetup) {
+        return hookCounts[level.ordinal()][isSetup ? 0 : 1];
+    }
+
+    public static void clearCounts() {
+        for (int[] counts : hookCounts) {
+            counts[0] = 0;
+            counts[1] = 0;
+        }
+    }
+
+    /** Every call should come straight after its own invocation setup, within its own size's setup */
+    private void _check(int x) {
+        if (!_isSetUp || _size == null || _size != x) {
+            throw new IllegalStateException("Called with "+x+" outside of its hooks");
+        }
+        _isSetUp = false;
+    }
+}
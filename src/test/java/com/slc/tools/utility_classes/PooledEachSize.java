@@ -0,0 +1,53 @@
+package com.slc.tools.utility_classes;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.slc.tools.annotations.BenchmarkSuite;
+import com.slc.tools.annotations.Benchmarkable;
+import com.slc.tools.annotations.Frequency;
+import com.slc.tools.annotations.OutputType;
+
+@BenchmarkSuite(whenToInstantiate = Frequency.PER_SIZE_VALUE, poolInstances = true, resetMethod = "reset",
+                outputTo = OutputType.RETURN)
+public class PooledEachSize {
+    static int numberOfInstancesMade;
+    static int numberOfResets;
+    private final List<Integer> _seen = new ArrayList<>();
+
+    public PooledEachSize() {
+        numberOfInstancesMade++;
+    }
+
+    @Benchmarkable(nanoTime = 5_000_000, idName = "intValue", idIsMethod = true)
+    public void first(int x) {
+        _check(x);
+    }
+
+    @Benchmarkable(nanoTime = 5_000_000, idName = "intValue", idIsMethod = true)
+    public void second(int x) {
+        _check(x);
+    }
+
+    public void reset() {
+        numberOfResets++;
+        _seen.clear();
+    }
+
+    public static int getInstances() {
+        return numberOfInstancesMade;
+    }
+
+    public static int getResets() {
+        return numberOfResets;
+    }
+
+    /** Every call on one instance should see the same size, or the instance wasn't reset between sizes */
+    private void _check(int x) {
+        if (_seen.isEmpty()) {
+            _seen.add(x);
+        } else if (_seen.get(0) != x) {
+            throw new IllegalStateException("Instance reused for size "+x+" without being reset");
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package com.slc.tools.utility_classes;
+
+import java.util.ArrayList;
+
+import com.slc.tools.annotations.BenchmarkSuite;
+import com.slc.tools.annotations.Benchmarkable;
+import com.slc.tools.annotations.Frequency;
+import com.slc.tools.annotations.Level;
+import com.slc.tools.annotations.OutputType;
+import com.slc.tools.annotations.Setup;
+import com.slc.tools.annotations.TearDown;
+
+/** Invocation hooks that only touch their own call's fresh copy, so a whole batch can be set up ahead of time */
+@BenchmarkSuite(whenToInstantiate = Frequency.ON_INIT, outputTo = OutputType.RETURN)
+public class PreparedInputs {
+    public static int setUps;
+    public static int tearDowns;
+
+    @Benchmarkable(nanoTime = 1_000_000, freshInput = true)
+    public void clear(ArrayList<Integer> list) {
+        if (list.get(0) != -1) {
+            throw new IllegalStateException("Called with a copy that wasn't set up");
+        }
+        list.clear();
+    }
+
+    @Setup(Level.INVOCATION)
+    public static void mark(ArrayList<Integer> list) {
+        setUps++;
+        list.set(0, -1);
+    }
+
+    @TearDown(Level.INVOCATION)
+    public static void count(ArrayList<Integer> list) {
+        if (!list.isEmpty()) {
+            throw new IllegalStateException("Torn down with a copy that wasn't called");
+        }
+        tearDowns++;
+    }
+}
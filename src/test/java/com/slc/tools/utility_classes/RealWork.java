@@ -0,0 +1,20 @@
+package com.slc.tools.utility_classes;
+
+import com.slc.tools.annotations.BenchmarkSuite;
+import com.slc.tools.annotations.Benchmarkable;
+import com.slc.tools.annotations.Frequency;
+import com.slc.tools.annotations.OutputType;
+
+@BenchmarkSuite(outputTo = OutputType.RETURN, whenToInstantiate = Frequency.NEVER)
+public class RealWork {
+
+    /** Takes hundreds of nanoseconds even at its smallest size, far more than an empty call */
+    @Benchmarkable(nanoTime = 10_000_000, idName = "intValue", idIsMethod = true)
+    public static long sumOfSquares(int n) {
+        long sum = 0;
+        for (int i = 0; i < n; i++) {
+            sum += (long) i * i ^ sum >>> 3;
+        }
+        return sum;
+    }
+}
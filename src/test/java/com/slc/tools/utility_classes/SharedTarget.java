@@ -0,0 +1,30 @@
+package com.slc.tools.utility_classes;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import com.slc.tools.annotations.BenchmarkSuite;
+import com.slc.tools.annotations.Benchmarkable;
+import com.slc.tools.annotations.Frequency;
+import com.slc.tools.annotations.OutputType;
+
+@BenchmarkSuite(whenToInstantiate = Frequency.ON_INIT, outputTo = OutputType.RETURN)
+public class SharedTarget {
+    private final AtomicBoolean _inUse = new AtomicBoolean();
+
+    @Benchmarkable(nanoTime = 5_000_000, idName = "intValue")
+    public void first(int x) {
+        _use();
+    }
+
+    @Benchmarkable(nanoTime = 5_000_000, idName = "intValue")
+    public void second(int x) {
+        _use();
+    }
+
+    private void _use() {
+        if (!_inUse.compareAndSet(false, true)) {
+            throw new IllegalStateException("Instance used by two threads at once");
+        }
+        _inUse.set(false);
+    }
+}